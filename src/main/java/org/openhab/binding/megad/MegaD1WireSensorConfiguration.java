@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaD1WireSensorConfiguration} class holds parsed configuration of sensor at 1-wire bus
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaD1WireSensorConfiguration {
+    public final String address;
+
+    public MegaD1WireSensorConfiguration(Configuration config) {
+        address = MegaDConfigurationParser.text(config, "address", "0");
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaDBusConfiguration} class holds parsed configuration of bridges located at MegaD port:
+ * 1-wire bus and extenders
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDBusConfiguration {
+    public final String port;
+    /**
+     * Polling period in milliseconds, 0 if polling is disabled
+     */
+    public final int refresh;
+    /**
+     * Port of extender interrupt line, empty if not set
+     */
+    public final String interrupt;
+    /**
+     * Time in milliseconds 1-wire sensors need for temperature conversion
+     */
+    public final int conversionTime;
+    /**
+     * Frames per second PCA9685 extender outputs are updated with
+     */
+    public final int frameRate;
+
+    public MegaDBusConfiguration(Configuration config) {
+        port = MegaDConfigurationParser.text(config, "port", "0");
+        refresh = (int) MegaDConfigurationParser.millis(config, "refresh", 0);
+        interrupt = MegaDConfigurationParser.text(config, "int", "");
+        conversionTime = MegaDConfigurationParser.integer(config, "conv_time", 1000);
+        frameRate = MegaDConfigurationParser.integer(config, "frame_rate", 20);
+    }
+}
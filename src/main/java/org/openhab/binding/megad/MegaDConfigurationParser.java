@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaDConfigurationParser} class converts raw thing configuration values into primitives.
+ * Text parameters are parsed the same way handlers did it before, wrong values fall back to defaults
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+final class MegaDConfigurationParser {
+
+    private MegaDConfigurationParser() {
+    }
+
+    static String text(Configuration config, String key, String defaultValue) {
+        @Nullable
+        Object value = config.get(key);
+        return value == null ? defaultValue : value.toString();
+    }
+
+    static int integer(Configuration config, String key, int defaultValue) {
+        try {
+            return (int) Float.parseFloat(text(config, key, Integer.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    static boolean bool(Configuration config, String key, boolean defaultValue) {
+        return Boolean.parseBoolean(text(config, key, Boolean.toString(defaultValue)));
+    }
+
+    /**
+     * @return value in seconds, which may be fractional, converted to milliseconds
+     */
+    static long millis(Configuration config, String key, long defaultValue) {
+        @Nullable
+        Object value = config.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return (long) (Float.parseFloat(value.toString()) * 1000);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
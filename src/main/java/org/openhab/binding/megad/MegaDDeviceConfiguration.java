@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaDDeviceConfiguration} class holds parsed configuration of MegaD device bridge
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDDeviceConfiguration {
+    public final String hostname;
+    public final String password;
+    /**
+     * Device url with trailing slash, e.g. http://192.168.0.14/sec/
+     */
+    public final String baseUrl;
+    /**
+     * Period in milliseconds to re-publish unchanged polled values, 0 if disabled
+     */
+    public final long heartbeat;
+    /**
+     * Maximal age in milliseconds of cached port state used to answer REFRESH
+     */
+    public final long refreshMaxAge;
+
+    public MegaDDeviceConfiguration(Configuration config) {
+        hostname = MegaDConfigurationParser.text(config, "hostname", "");
+        password = MegaDConfigurationParser.text(config, "password", "");
+        baseUrl = "http://" + hostname + "/" + password + "/";
+        heartbeat = MegaDConfigurationParser.millis(config, "heartbeat", 0);
+        refreshMaxAge = MegaDConfigurationParser.millis(config, "refresh_max_age", 5000);
+    }
+}
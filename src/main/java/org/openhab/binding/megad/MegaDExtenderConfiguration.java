@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaDExtenderConfiguration} class holds parsed configuration of extender port
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDExtenderConfiguration {
+    public final String extport;
+    /**
+     * Time in milliseconds PCA9685 output fades to a new value, 0 for instant change
+     */
+    public final int fadeTime;
+
+    public MegaDExtenderConfiguration(Configuration config) {
+        extport = MegaDConfigurationParser.text(config, "extport", "0");
+        fadeTime = MegaDConfigurationParser.integer(config, "fade_time", 0);
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaDItoCBusConfiguration} class holds parsed configuration of I2C bus bridge
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDItoCBusConfiguration {
+    public final String port;
+    public final String scl;
+    /**
+     * Minimal time in milliseconds between transactions at the bus, sensors may set their own
+     */
+    public final int gap;
+
+    public MegaDItoCBusConfiguration(Configuration config) {
+        port = MegaDConfigurationParser.text(config, "port", "0");
+        scl = MegaDConfigurationParser.text(config, "scl", "0");
+        gap = MegaDConfigurationParser.integer(config, "gap", 200);
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaDItoCSensorConfiguration} class holds parsed configuration of I2C bus sensor
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDItoCSensorConfiguration {
+    /**
+     * Value of {@link #gap} if bus gap is used
+     */
+    public static final int BUS_GAP = -1;
+
+    public final String sensorType;
+    /**
+     * Polling period in milliseconds, 0 if polling is disabled
+     */
+    public final long refresh;
+    /**
+     * Parameters of request for raw channel, empty if not set
+     */
+    public final String rawParam;
+    /**
+     * Minimal time in milliseconds between transactions with this sensor type, {@link #BUS_GAP} if not set
+     */
+    public final int gap;
+
+    public MegaDItoCSensorConfiguration(Configuration config) {
+        sensorType = MegaDConfigurationParser.text(config, "sensortype", "");
+        refresh = MegaDConfigurationParser.millis(config, "refresh", 0);
+        rawParam = MegaDConfigurationParser.text(config, "rawparam", "");
+        gap = MegaDConfigurationParser.integer(config, "gap", BUS_GAP);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaDPortConfiguration} class holds parsed configuration of standard MegaD port
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDPortConfiguration {
+    public final String port;
+    /**
+     * Polling period in milliseconds, 0 if polling is disabled
+     */
+    public final int refresh;
+    public final boolean correction;
+    public final int minPwm;
+    public final String ds2413Channel;
+
+    public MegaDPortConfiguration(Configuration config) {
+        port = MegaDConfigurationParser.text(config, "port", "0");
+        refresh = (int) MegaDConfigurationParser.millis(config, "refresh", 0);
+        correction = MegaDConfigurationParser.bool(config, "correction", false);
+        minPwm = MegaDConfigurationParser.integer(config, "min_pwm", 0);
+        ds2413Channel = MegaDConfigurationParser.text(config, "ds2413_ch", "");
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.config.core.Configuration;
+
+/**
+ * The {@link MegaDRs485Configuration} class holds parsed configuration of rs485 device
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDRs485Configuration {
+    public final String type;
+    /**
+     * Device address as two hex digits
+     */
+    public final String address;
+    /**
+     * Polling period in milliseconds, 0 if polling is disabled
+     */
+    public final long refresh;
+    /**
+     * Name of bundled modbus profile for type modbus-profile
+     */
+    public final String profile;
+
+    public MegaDRs485Configuration(Configuration config) {
+        type = MegaDConfigurationParser.text(config, "type", "");
+        String rawAddress = MegaDConfigurationParser.text(config, "address", "01");
+        address = rawAddress.length() == 1 ? "0" + rawAddress : rawAddress;
+        refresh = MegaDConfigurationParser.millis(config, "refresh", 0);
+        profile = MegaDConfigurationParser.text(config, "profile", "");
+    }
+}
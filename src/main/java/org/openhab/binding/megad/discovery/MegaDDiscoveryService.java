@@ -20,7 +20,14 @@ import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -29,7 +36,10 @@ import org.openhab.binding.megad.MegaDBindingConstants;
 import org.openhab.binding.megad.handler.MegaDBridge1WireBusHandler;
 import org.openhab.binding.megad.handler.MegaDBridgeIToCHandler;
 import org.openhab.binding.megad.handler.MegaDBridgeIncomingHandler;
+import org.openhab.binding.megad.internal.MegaD1WireSensorSlot;
+import org.openhab.binding.megad.internal.MegaDValueParser;
 import org.openhab.binding.megad.internal.MegaHttpHelpers;
+import org.openhab.core.common.NamedThreadFactory;
 import org.openhab.core.config.discovery.AbstractDiscoveryService;
 import org.openhab.core.config.discovery.DiscoveryResult;
 import org.openhab.core.config.discovery.DiscoveryResultBuilder;
@@ -49,15 +59,20 @@ import org.slf4j.LoggerFactory;
 @Component(service = DiscoveryService.class, configurationPid = "discovery.megad")
 @NonNullByDefault
 public class MegaDDiscoveryService extends AbstractDiscoveryService {
+    private static final int MAX_PARALLEL_SCANS = 4;
+    /**
+     * I2C bus is not polled with cmd=scan, result of earlier scan is used only while it is this fresh
+     */
+    private static final long I2C_SCAN_MAX_AGE_MILLIS = 600000;
     private final Logger logger = LoggerFactory.getLogger(MegaDDiscoveryService.class);
     @Nullable
     DatagramSocket socket;
     @Nullable
     private Runnable scanner;
     private @Nullable ScheduledFuture<?> backgroundFuture;
-    public static @Nullable List<MegaDBridge1WireBusHandler> oneWireBusList = new ArrayList<>();
+    public static @Nullable List<MegaDBridge1WireBusHandler> oneWireBusList = new CopyOnWriteArrayList<>();
     public static @Nullable List<MegaDBridgeIncomingHandler> incomingBusList = new ArrayList<>();
-    public static @Nullable List<MegaDBridgeIToCHandler> i2cBusList = new ArrayList<>();
+    public static @Nullable List<MegaDBridgeIToCHandler> i2cBusList = new CopyOnWriteArrayList<>();
 
     public MegaDDiscoveryService() {
         super(Collections.singleton(MegaDBindingConstants.THING_TYPE_DEVICE_BRIDGE), 30, true);
@@ -124,11 +139,9 @@ public class MegaDDiscoveryService extends AbstractDiscoveryService {
         } catch (InterruptedException e) {
             // e.printStackTrace();
         }
-        scanner = createScanner();
+        scanner = createScanner(true);
         scanner.run();
 
-        oneWireBusScan();
-        iToCBusScan();
         logger.debug("StartScan");
         try {
             Thread.sleep(10000);
@@ -149,7 +162,10 @@ public class MegaDDiscoveryService extends AbstractDiscoveryService {
         super.stopBackgroundDiscovery();
     }
 
-    private Runnable createScanner() {
+    /**
+     * @param explicit scan requested by user, all I2C buses are scanned again
+     */
+    private Runnable createScanner(boolean explicit) {
         return () -> {
             long timestampOfLastScan = getTimestampOfLastScan();
             try {
@@ -164,8 +180,7 @@ public class MegaDDiscoveryService extends AbstractDiscoveryService {
             } catch (IOException e) {
                 logger.warn("{}", e.getMessage());
             }
-            oneWireBusScan();
-            iToCBusScan();
+            busScan(explicit);
             removeOlderResults(timestampOfLastScan);
         };
     }
@@ -200,65 +215,104 @@ public class MegaDDiscoveryService extends AbstractDiscoveryService {
         return addresses;
     }
 
-    private void oneWireBusScan() {
-        if (!oneWireBusList.isEmpty()) {
-            logger.debug("scanning onewire bus");
-            for (MegaDBridge1WireBusHandler onewireBus : oneWireBusList) {
-                logger.debug("scanning {} port and {} host", onewireBus.getThing().getConfiguration().get("port"),
-                        onewireBus.getHostPassword()[0]);
-                String request = "http://" + onewireBus.getHostPassword()[0] + "/" + onewireBus.getHostPassword()[1]
-                        + "/?pt=" + onewireBus.getThing().getConfiguration().get("port").toString() + "?cmd=list";
-                String updateRequest = MegaHttpHelpers.sendRequest(request);
-                String[] getAddress = updateRequest.split("[;]");
-                logger.debug("scanner request: {}", request);
-                for (String address : getAddress) {
-                    String[] getValues = address.split("[:]");
-                    logger.debug("{}", getValues[0]);
-                    try {
-                        ThingUID thingUID = new ThingUID(MegaDBindingConstants.THING_TYPE_1WIREADDRESS,
-                                onewireBus.getThing().getUID(), "1wbusSensor_" + getValues[0]);
-                        DiscoveryResult resultS = DiscoveryResultBuilder.create(thingUID)
-                                .withProperty("address", getValues[0]).withRepresentationProperty("address")
-                                .withLabel(
-                                        "onwireSensor " + getValues[0] + " at bus " + onewireBus.getThing().getLabel())
-                                .withBridge(onewireBus.getThing().getUID()).build();
-                        thingDiscovered(resultS);
-                    } catch (Exception e) {
-                        logger.debug("Cannot create discover thing");
-                    }
-                }
+    /**
+     * Discovers sensors of 1-wire and I2C buses. 1-wire buses that are polled give their known sensors,
+     * I2C buses give sensors of a fresh scan unless scan is explicit, other buses are scanned.
+     * Scans of different controllers run in parallel, scans of one controller run one after another
+     */
+    private void busScan(boolean explicit) {
+        Map<String, List<Runnable>> scansByHost = new LinkedHashMap<>();
+        for (MegaDBridge1WireBusHandler onewireBus : oneWireBusList) {
+            if (onewireBus.getLastRefresh() != 0) {
+                discoverOneWireSensors(onewireBus);
+            } else {
+                scansByHost.computeIfAbsent(onewireBus.getHostPassword()[0], host -> new ArrayList<>())
+                        .add(() -> oneWireBusScan(onewireBus));
+            }
+        }
+        for (MegaDBridgeIToCHandler i2cBridge : i2cBusList) {
+            List<String> sensorTypes = explicit ? null : i2cBridge.getSensorTypes(I2C_SCAN_MAX_AGE_MILLIS);
+            if (sensorTypes != null) {
+                discoverIToCSensors(i2cBridge, sensorTypes);
+            } else {
+                scansByHost.computeIfAbsent(i2cBridge.getHostPassword()[0], host -> new ArrayList<>())
+                        .add(() -> iToCBusScan(i2cBridge));
+            }
+        }
+        if (scansByHost.isEmpty()) {
+            return;
+        }
+        // own pool: waiting for scans on a thread of the shared discovery pool could starve it
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_PARALLEL_SCANS, scansByHost.size()),
+                new NamedThreadFactory("megad-discovery"));
+        try {
+            List<CompletableFuture<Void>> scans = new ArrayList<>();
+            for (List<Runnable> hostScans : scansByHost.values()) {
+                scans.add(CompletableFuture.runAsync(() -> hostScans.forEach(Runnable::run), executor));
             }
+            CompletableFuture.allOf(scans.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            logger.debug("Bus scan failed: {}", e.getMessage());
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    private void iToCBusScan() {
-        if (!i2cBusList.isEmpty()) {
-            logger.debug("scanning i2c bus");
-            for (MegaDBridgeIToCHandler i2cBridge : i2cBusList) {
-                logger.debug("scanning {} port and {} host", i2cBridge.getThing().getConfiguration().get("port"),
-                        i2cBridge.getHostPassword()[0]);
-                String request = "http://" + i2cBridge.getHostPassword()[0] + "/" + i2cBridge.getHostPassword()[1]
-                        + "/?pt=" + i2cBridge.getThing().getConfiguration().get("port").toString() + "&cmd=scan";
-                String updateRequest = MegaHttpHelpers.sendRequest(request);
-                String[] sensorsList = updateRequest.split("<br>");
-                logger.debug("scanner request: {}", request);
-                for (int i = 1; i < sensorsList.length; i++) {
-                    try {
-                        String[] sensorUrl = sensorsList[i].split("href=");
-                        sensorUrl = sensorUrl[1].split("[>]");
-                        String[] sensorType = sensorUrl[0].split("[=]");
-                        logger.debug("sensor is {}", sensorType[3]);
-                        ThingUID thingUID = new ThingUID(MegaDBindingConstants.THING_TYPE_I2CBUSSENSOR,
-                                i2cBridge.getThing().getUID(), "I2CbusSensor_" + sensorType[3]);
-                        DiscoveryResult resultS = DiscoveryResultBuilder.create(thingUID)
-                                .withProperty("sensortype", sensorType[3]).withRepresentationProperty("sensortype")
-                                .withLabel("I2CSensor " + sensorType[3] + " at bus " + i2cBridge.getThing().getLabel())
-                                .withBridge(i2cBridge.getThing().getUID()).build();
-                        thingDiscovered(resultS);
-                    } catch (Exception e) {
-                        logger.debug("SDA port is not defined");
-                    }
-                }
+    private void oneWireBusScan(MegaDBridge1WireBusHandler onewireBus) {
+        logger.debug("scanning {} port and {} host", onewireBus.getBusConfig().port, onewireBus.getHostPassword()[0]);
+        String request = "http://" + onewireBus.getHostPassword()[0] + "/" + onewireBus.getHostPassword()[1]
+                + "/?pt=" + onewireBus.getBusConfig().port + "?cmd=list";
+        logger.debug("scanner request: {}", request);
+        onewireBus.getSensorStore().update(MegaHttpHelpers.sendRequest(request));
+        discoverOneWireSensors(onewireBus);
+    }
+
+    private void discoverOneWireSensors(MegaDBridge1WireBusHandler onewireBus) {
+        for (MegaD1WireSensorSlot slot : onewireBus.getSensorStore().slots()) {
+            String address = slot.getAddress();
+            // slots are also created by registered things, only sensors returned by the bus are proposed
+            if (slot.getTimestamp() == 0 || onewireBus.isSensorRegistered(address)) {
+                continue;
+            }
+            try {
+                ThingUID thingUID = new ThingUID(MegaDBindingConstants.THING_TYPE_1WIREADDRESS,
+                        onewireBus.getThing().getUID(), "1wbusSensor_" + address);
+                DiscoveryResult resultS = DiscoveryResultBuilder.create(thingUID).withProperty("address", address)
+                        .withRepresentationProperty("address")
+                        .withLabel("onwireSensor " + address + " at bus " + onewireBus.getThing().getLabel())
+                        .withBridge(onewireBus.getThing().getUID()).build();
+                thingDiscovered(resultS);
+            } catch (Exception e) {
+                logger.debug("Cannot create discover thing");
+            }
+        }
+    }
+
+    private void iToCBusScan(MegaDBridgeIToCHandler i2cBridge) {
+        logger.debug("scanning {} port and {} host", i2cBridge.getItoCBusConfig().port, i2cBridge.getHostPassword()[0]);
+        String request = i2cBridge.getPortUrl() + "&cmd=scan";
+        String updateRequest = MegaHttpHelpers.sendRequest(request);
+        logger.debug("scanner request: {}", request);
+        List<String> sensorTypes = MegaDValueParser.parseItoCScan(updateRequest);
+        logger.debug("sensors found: {}", sensorTypes);
+        if (!updateRequest.isEmpty()) {
+            i2cBridge.setSensorTypes(sensorTypes);
+        }
+        discoverIToCSensors(i2cBridge, sensorTypes);
+    }
+
+    private void discoverIToCSensors(MegaDBridgeIToCHandler i2cBridge, List<String> sensorTypes) {
+        for (String sensorType : sensorTypes) {
+            try {
+                ThingUID thingUID = new ThingUID(MegaDBindingConstants.THING_TYPE_I2CBUSSENSOR,
+                        i2cBridge.getThing().getUID(), "I2CbusSensor_" + sensorType);
+                DiscoveryResult resultS = DiscoveryResultBuilder.create(thingUID)
+                        .withProperty("sensortype", sensorType).withRepresentationProperty("sensortype")
+                        .withLabel("I2CSensor " + sensorType + " at bus " + i2cBridge.getThing().getLabel())
+                        .withBridge(i2cBridge.getThing().getUID()).build();
+                thingDiscovered(resultS);
+            } catch (Exception e) {
+                logger.debug("Cannot create discover thing");
             }
         }
     }
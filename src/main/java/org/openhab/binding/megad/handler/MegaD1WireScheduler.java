@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.handler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link MegaD1WireScheduler} runs conversion cycles of all 1-wire buses of one controller.
+ * Conversion is started on every due bus back-to-back, then one conversion window is awaited
+ * and the buses are read one after another. So buses of a controller convert at the same time
+ * instead of each bus keeping the controller busy with its own conversion
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+class MegaD1WireScheduler {
+    private final Logger logger = LoggerFactory.getLogger(MegaD1WireScheduler.class);
+    private final ScheduledExecutorService scheduler;
+    /**
+     * Time of the next conversion of every bus
+     */
+    private final Map<MegaDBridge1WireBusHandler, Long> nextConversion = new LinkedHashMap<>();
+    private @Nullable ScheduledFuture<?> job;
+    private boolean inCycle = false;
+    private boolean running = false;
+
+    MegaD1WireScheduler(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    synchronized void add(MegaDBridge1WireBusHandler bus) {
+        if (bus.getBusConfig().refresh != 0) {
+            nextConversion.put(bus, 0L);
+            reschedule();
+        }
+    }
+
+    synchronized void remove(MegaDBridge1WireBusHandler bus) {
+        nextConversion.remove(bus);
+        if (nextConversion.isEmpty()) {
+            cancel();
+        }
+    }
+
+    /**
+     * Starts conversion cycles of registered buses, buses stay registered while the controller is reinitialized
+     */
+    synchronized void start() {
+        running = true;
+        reschedule();
+    }
+
+    synchronized void stop() {
+        running = false;
+        cancel();
+    }
+
+    private void cancel() {
+        ScheduledFuture<?> current = job;
+        if (current != null) {
+            current.cancel(true);
+            job = null;
+        }
+        inCycle = false;
+    }
+
+    /**
+     * Schedules the next cycle to the earliest time a bus is due. A running cycle reschedules on its end
+     */
+    private void reschedule() {
+        if (!running || inCycle || nextConversion.isEmpty()) {
+            return;
+        }
+        ScheduledFuture<?> current = job;
+        if (current != null) {
+            current.cancel(false);
+        }
+        long earliest = Long.MAX_VALUE;
+        for (long time : nextConversion.values()) {
+            earliest = Math.min(earliest, time);
+        }
+        long delay = Math.max(0, earliest - System.currentTimeMillis());
+        job = scheduler.schedule(this::startCycle, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void startCycle() {
+        List<MegaDBridge1WireBusHandler> due = new ArrayList<>();
+        long window = 0;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            for (Map.Entry<MegaDBridge1WireBusHandler, Long> entry : nextConversion.entrySet()) {
+                if (entry.getValue() <= now) {
+                    MegaDBridge1WireBusHandler bus = entry.getKey();
+                    due.add(bus);
+                    entry.setValue(now + bus.getBusConfig().refresh);
+                    window = Math.max(window, bus.getBusConfig().conversionTime);
+                }
+            }
+            if (due.isEmpty()) {
+                reschedule();
+                return;
+            }
+            inCycle = true;
+        }
+        logger.debug("Starting 1-wire conversion at {} buses", due.size());
+        try {
+            for (MegaDBridge1WireBusHandler bus : due) {
+                try {
+                    bus.startConversion();
+                } catch (RuntimeException e) {
+                    logger.warn("1-wire bus {} failed to start conversion: {}", bus.getThing().getUID(),
+                            e.getMessage());
+                }
+            }
+        } finally {
+            // the cycle must reach its read part, which ends it, whatever happened to conversion
+            synchronized (this) {
+                if (inCycle) {
+                    job = scheduler.schedule(() -> readCycle(due), window, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    private void readCycle(List<MegaDBridge1WireBusHandler> due) {
+        try {
+            for (MegaDBridge1WireBusHandler bus : due) {
+                synchronized (this) {
+                    if (!nextConversion.containsKey(bus)) {
+                        continue;
+                    }
+                }
+                try {
+                    bus.readConversion();
+                } catch (RuntimeException e) {
+                    logger.warn("1-wire bus {} failed to read conversion: {}", bus.getThing().getUID(),
+                            e.getMessage());
+                }
+            }
+        } finally {
+            endCycle();
+        }
+    }
+
+    private synchronized void endCycle() {
+        if (inCycle) {
+            inCycle = false;
+            reschedule();
+        }
+    }
+}
@@ -20,11 +20,13 @@ import java.net.URL;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.megad.MegaD1WireSensorConfiguration;
 import org.openhab.binding.megad.MegaDBindingConstants;
+import org.openhab.binding.megad.internal.MegaD1WireSensorSlot;
+import org.openhab.binding.megad.internal.MegaDStateCache;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.thing.Bridge;
-import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
@@ -32,6 +34,8 @@ import org.openhab.core.thing.ThingStatusDetail;
 import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.types.Command;
+import org.openhab.core.types.RefreshType;
+import org.openhab.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,9 +52,17 @@ public class MegaD1WireSensorHandler extends BaseThingHandler {
 
     @Nullable
     MegaDBridge1WireBusHandler bridge1WireBusHandler;
+    private final MegaDStateCache stateCache = new MegaDStateCache();
+    private volatile @Nullable MegaD1WireSensorSlot slot;
+    private volatile boolean aLinked = false;
+    private volatile boolean bLinked = false;
+    private volatile boolean tempLinked = false;
+
+    private volatile MegaD1WireSensorConfiguration config;
 
     public MegaD1WireSensorHandler(Thing thing) {
         super(thing);
+        config = new MegaD1WireSensorConfiguration(thing.getConfiguration());
     }
 
     @SuppressWarnings("null")
@@ -59,19 +71,22 @@ public class MegaD1WireSensorHandler extends BaseThingHandler {
         int state = 0;
         String cmd = "";
         String addr = "";
-        if (!command.toString().equals("REFRESH")) {
+        stateCache.invalidate(channelUID.getId());
+        if (command instanceof RefreshType) {
+            updateValues();
+        } else {
             if (command.toString().equals("ON")) {
                 state = 1;
             } else if (command.toString().equals("OFF")) {
                 state = 0;
             }
             if (channelUID.getId().equals(MegaDBindingConstants.CHANNEL_MEGAD2W_A)) {
-                cmd = bridge1WireBusHandler.getThing().getConfiguration().get("port").toString() + "A:";
+                cmd = bridge1WireBusHandler.getBusConfig().port + "A:";
             } else if (channelUID.getId().equals(MegaDBindingConstants.CHANNEL_MEGAD2W_B)) {
-                cmd = bridge1WireBusHandler.getThing().getConfiguration().get("port").toString() + "B:";
+                cmd = bridge1WireBusHandler.getBusConfig().port + "B:";
             }
-            if (!getThing().getConfiguration().get("address").equals("0")) {
-                addr = "&addr=" + getThing().getConfiguration().get("address").toString();
+            if (!"0".equals(config.address)) {
+                addr = "&addr=" + config.address;
             }
             String result = "http://" + bridge1WireBusHandler.getHostPassword()[0] + "/"
                     + bridge1WireBusHandler.getHostPassword()[1] + "/?cmd=" + cmd + state + addr;
@@ -86,62 +101,87 @@ public class MegaD1WireSensorHandler extends BaseThingHandler {
         if (bridge1WireBusHandler != null) {
             bridge1WireBusHandler.unregisterMegad1WireListener(this);
         }
+        stateCache.clear();
         super.dispose();
     }
 
     @SuppressWarnings("null")
     @Override
     public void initialize() {
+        config = new MegaD1WireSensorConfiguration(getThing().getConfiguration());
         bridge1WireBusHandler = getBridgeHandler();
-        if (bridge1WireBusHandler != null) {
-            registerMegad1WireListener(bridge1WireBusHandler);
+        rebuildLinkedChannels();
+        MegaDBridge1WireBusHandler busHandler = bridge1WireBusHandler;
+        if (busHandler != null) {
+            slot = busHandler.getSensorStore().slot(config.address);
+            registerMegad1WireListener(busHandler);
+            stateCache.setHeartbeat(busHandler::getHeartbeat);
         } else {
             logger.debug("Can't register {} at bridge. BridgeHandler is null.", this.getThing().getUID());
         }
     }
 
-    @SuppressWarnings("null")
-    public void updateValues(String portStatus) {
-        String[] ports = portStatus.split("[/]");
-        for (Channel channel : getThing().getChannels()) {
-            if (isLinked(channel.getUID().getId())) {
-                if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MEGAD2W_A)) {
-                    try {
-                        if (ports[0].equals("ON")) {
-                            updateState(channel.getUID().getId(), OnOffType.ON);
-                        } else if (ports[0].equals("OFF")) {
-                            updateState(channel.getUID().getId(), OnOffType.OFF);
-                        } else {
-                            logger.debug("Status {} is udefined", ports[0]);
-                        }
-                    } catch (Exception e) {
-                        logger.debug("Cannot find value for port A");
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MEGAD2W_B)) {
-                    try {
-                        if (ports[1].equals("ON")) {
-                            updateState(channel.getUID().getId(), OnOffType.ON);
-                        } else if (ports[1].equals("OFF")) {
-                            updateState(channel.getUID().getId(), OnOffType.OFF);
-                        } else {
-                            logger.debug("Status {} is udefined", ports[1]);
-                        }
-                    } catch (Exception e) {
-                        logger.debug("Cannot find value for port B");
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_1WTEMP)) {
-                    String address = getThing().getConfiguration().get("address").toString();
-                    try {
-                        updateState(channel.getUID().getId(),
-                                DecimalType.valueOf(bridge1WireBusHandler.getOwvalues(address)));
-                    } catch (Exception e) {
-                        logger.debug("Can't update 1w-bus channel value bacause of {}", e.getMessage());
-                    }
-                }
+    /**
+     * Publishes values of the sensor slot, called by the bus after every read
+     */
+    public void updateValues() {
+        MegaD1WireSensorSlot sensorSlot = slot;
+        if (sensorSlot == null || sensorSlot.getTimestamp() == 0) {
+            return;
+        }
+        if (aLinked) {
+            updateSwitch(MegaDBindingConstants.CHANNEL_MEGAD2W_A, sensorSlot.getSwitchState(0));
+        }
+        if (bLinked) {
+            updateSwitch(MegaDBindingConstants.CHANNEL_MEGAD2W_B, sensorSlot.getSwitchState(1));
+        }
+        if (tempLinked) {
+            DecimalType temperature = sensorSlot.getTemperatureState();
+            if (temperature != null) {
+                updateStateIfChanged(MegaDBindingConstants.CHANNEL_1WTEMP, temperature);
+            } else {
+                logger.debug("Sensor {} did not report temperature", config.address);
             }
         }
     }
 
+    public MegaD1WireSensorConfiguration getSensorConfig() {
+        return config;
+    }
+
+    private void updateSwitch(String channelId, @Nullable OnOffType state) {
+        if (state != null) {
+            updateStateIfChanged(channelId, state);
+        } else {
+            logger.debug("Status of channel {} is undefined", channelId);
+        }
+    }
+
+    private void updateStateIfChanged(String channelId, State state) {
+        if (stateCache.isChanged(channelId, state)) {
+            updateState(channelId, state);
+        }
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        stateCache.invalidate(channelUID.getId());
+        super.channelLinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    private void rebuildLinkedChannels() {
+        aLinked = isLinked(MegaDBindingConstants.CHANNEL_MEGAD2W_A);
+        bLinked = isLinked(MegaDBindingConstants.CHANNEL_MEGAD2W_B);
+        tempLinked = isLinked(MegaDBindingConstants.CHANNEL_1WTEMP);
+    }
+
     @SuppressWarnings("null")
     public void sendCommand(String Result) {
         HttpURLConnection con;
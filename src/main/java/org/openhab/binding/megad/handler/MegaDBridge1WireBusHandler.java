@@ -12,15 +12,16 @@
  */
 package org.openhab.binding.megad.handler;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.megad.MegaDBusConfiguration;
+import org.openhab.binding.megad.MegaDDeviceConfiguration;
 import org.openhab.binding.megad.discovery.MegaDDiscoveryService;
+import org.openhab.binding.megad.internal.MegaD1WireSensorStore;
 import org.openhab.binding.megad.internal.MegaHttpHelpers;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.ChannelUID;
@@ -45,15 +46,15 @@ public class MegaDBridge1WireBusHandler extends BaseBridgeHandler {
     MegaDBridgeDeviceHandler bridgeDeviceHandler;
     @Nullable
     MegaDDiscoveryService discovery;
-    private @Nullable ScheduledFuture<?> refreshPollingJob;
-    boolean startup = true;
-    protected long lastRefresh = 0;
-    @Nullable
-    private final Map<String, String> owsensorvalues = new HashMap<>();
-    private @Nullable final Map<String, MegaD1WireSensorHandler> addressesHandlerMap = new HashMap<>();
+    protected volatile long lastRefresh = 0;
+    private final MegaD1WireSensorStore sensorStore = new MegaD1WireSensorStore();
+    private @Nullable final Map<String, MegaD1WireSensorHandler> addressesHandlerMap = new ConcurrentHashMap<>();
+
+    private volatile MegaDBusConfiguration config;
 
     public MegaDBridge1WireBusHandler(Bridge bridge) {
         super(bridge);
+        config = new MegaDBusConfiguration(bridge.getConfiguration());
         // bridgeDeviceHandler = Objects.requireNonNull(getBridgeHandler());
     }
 
@@ -63,6 +64,7 @@ public class MegaDBridge1WireBusHandler extends BaseBridgeHandler {
 
     @Override
     public void initialize() {
+        config = new MegaDBusConfiguration(getThing().getConfiguration());
         bridgeDeviceHandler = Objects.requireNonNull(getBridgeHandler());
         logger.debug("Thing Handler for {} started", getThing().getUID().getId());
         MegaDDiscoveryService.oneWireBusList.add(this);
@@ -72,56 +74,39 @@ public class MegaDBridge1WireBusHandler extends BaseBridgeHandler {
         // logger.debug("Can't register {} at bridge. BridgeHandler is null.", this.getThing().getUID());
         // }
 
-        String[] rr = { getThing().getConfiguration().get("refresh").toString() };// .split("[.]");
-        logger.debug("Thing {}, refresh interval is {} sec", getThing().getUID().toString(), rr[0]);
-        float msec = Float.parseFloat(rr[0]);
-        int pollingPeriod = (int) (msec * 1000);
-        if (refreshPollingJob == null || refreshPollingJob.isCancelled()) {
-            refreshPollingJob = scheduler.scheduleWithFixedDelay(() -> refresh(pollingPeriod), 0, 100,
-                    TimeUnit.MILLISECONDS);
+        logger.debug("Thing {}, refresh interval is {} msec, conversion time is {} msec",
+                getThing().getUID().toString(), config.refresh, config.conversionTime);
+    }
+
+    /**
+     * First phase of the cycle, called by controller 1-wire scheduler: starts temperature conversion at the bus
+     */
+    void startConversion() {
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDeviceHandler;
+        if (deviceHandler != null) {
+            MegaHttpHelpers.sendRequest(deviceHandler.getDeviceConfig().baseUrl + "?pt=" + config.port + "?cmd=conv");
         }
     }
 
-    @SuppressWarnings("null")
-    public void refresh(int interval) {
-        long now = System.currentTimeMillis();
-        if (startup) {
-            startup = false;
+    /**
+     * Second phase of the cycle, called by controller 1-wire scheduler after conversion time:
+     * reads converted values and passes them to sensors
+     */
+    void readConversion() {
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDeviceHandler;
+        if (deviceHandler != null) {
+            String request = deviceHandler.getDeviceConfig().baseUrl + "?pt=" + config.port + "?cmd=list";
+            updateSensors(MegaHttpHelpers.sendRequest(request));
         }
+        lastRefresh = System.currentTimeMillis();
+    }
 
-        if (interval != 0) {
-            if (now >= (lastRefresh + interval)) {
-                String conv = "http://" + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString()
-                        + "/" + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() + "/?pt="
-                        + getThing().getConfiguration().get("port").toString() + "?cmd=conv";
-                MegaHttpHelpers.sendRequest(conv);
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException ignored) {
-                }
-                String request = "http://"
-                        + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                        + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() + "/?pt="
-                        + getThing().getConfiguration().get("port").toString() + "?cmd=list";
-                String updateRequest = MegaHttpHelpers.sendRequest(request);
-                String[] getAddress = updateRequest.split("[;]");
-                for (String address : getAddress) {
-                    String[] getValues = address.split("[:]");
-                    try {
-                        setOwvalues(getValues[0], getValues[1]);
-                        if (addressesHandlerMap != null) {
-                            @Nullable
-                            MegaD1WireSensorHandler megaD1WireSensorHandler = addressesHandlerMap.get(getValues[0]);
-                            if (megaD1WireSensorHandler != null) {
-                                megaD1WireSensorHandler.updateValues(getValues[1]);
-                            }
-                        }
-                    } catch (Exception e) {
-                        logger.debug("NOT 1-W BUS");
-                    }
-                }
-                logger.debug("{}", updateRequest);
-                lastRefresh = now;
+    private void updateSensors(String updateRequest) {
+        int updated = sensorStore.update(updateRequest);
+        logger.debug("{} sensors updated from {}", updated, updateRequest);
+        if (addressesHandlerMap != null) {
+            for (MegaD1WireSensorHandler megaD1WireSensorHandler : addressesHandlerMap.values()) {
+                megaD1WireSensorHandler.updateValues();
             }
         }
     }
@@ -142,24 +127,36 @@ public class MegaDBridge1WireBusHandler extends BaseBridgeHandler {
         super.updateStatus(status, statusDetail, description);
     }
 
-    public void setOwvalues(String key, String value) {
-        owsensorvalues.put(key, value);
+    /**
+     * @return values of sensors of the bus keyed by ROM code
+     */
+    public MegaD1WireSensorStore getSensorStore() {
+        return sensorStore;
     }
 
-    public String getOwvalues(String address) {
-        String value;
-        assert owsensorvalues != null;
-        value = owsensorvalues.get(address);
-        if (value != null) {
-            return value;
-        } else {
-            return "NULL";
-        }
+    /**
+     * @return time of the last read of the bus in milliseconds, 0 if the bus was not read yet
+     */
+    public long getLastRefresh() {
+        return lastRefresh;
+    }
+
+    public boolean isSensorRegistered(String address) {
+        return addressesHandlerMap != null && addressesHandlerMap.containsKey(address);
+    }
+
+    public MegaDBusConfiguration getBusConfig() {
+        return config;
+    }
+
+    public long getHeartbeat() {
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDeviceHandler;
+        return deviceHandler != null ? deviceHandler.getHeartbeat() : 0;
     }
 
     public String[] getHostPassword() {
-        return new String[] { bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString(),
-                bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() };
+        MegaDDeviceConfiguration deviceConfig = bridgeDeviceHandler.getDeviceConfig();
+        return new String[] { deviceConfig.hostname, deviceConfig.password };
     }
 
     private synchronized @Nullable MegaDBridgeDeviceHandler getBridgeHandler() {
@@ -207,7 +204,7 @@ public class MegaDBridge1WireBusHandler extends BaseBridgeHandler {
     }
 
     public void unregisterMegad1WireListener(MegaD1WireSensorHandler megaD1WireSensorHandler) {
-        String ip = megaD1WireSensorHandler.getThing().getConfiguration().get("address").toString();
+        String ip = megaD1WireSensorHandler.getSensorConfig().address;
         if (addressesHandlerMap.get(ip) != null) {
             addressesHandlerMap.remove(ip);
             updateThingHandlerStatus(megaD1WireSensorHandler, ThingStatus.OFFLINE);
@@ -215,7 +212,7 @@ public class MegaDBridge1WireBusHandler extends BaseBridgeHandler {
     }
 
     public void registerMegad1WireListener(MegaD1WireSensorHandler megaD1WireSensorHandler) {
-        String oneWirePort = megaD1WireSensorHandler.getThing().getConfiguration().get("address").toString();
+        String oneWirePort = megaD1WireSensorHandler.getSensorConfig().address;
 
         if (addressesHandlerMap.get(oneWirePort) != null) {
             updateThingHandlerStatus(megaD1WireSensorHandler, ThingStatus.OFFLINE,
@@ -228,10 +225,7 @@ public class MegaDBridge1WireBusHandler extends BaseBridgeHandler {
 
     @Override
     public void dispose() {
-        if (refreshPollingJob != null && !refreshPollingJob.isCancelled()) {
-            refreshPollingJob.cancel(true);
-            refreshPollingJob = null;
-        }
+        MegaDDiscoveryService.oneWireBusList.remove(this);
         bridgeDeviceHandler.unregisterMegad1WireBridgeListener(this);
 
         super.dispose();
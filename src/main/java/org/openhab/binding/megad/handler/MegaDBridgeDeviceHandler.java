@@ -14,14 +14,20 @@ package org.openhab.binding.megad.handler;
 
 import java.io.IOException;
 import java.net.Socket;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.megad.MegaDDeviceConfiguration;
+import org.openhab.binding.megad.internal.MegaDPortState;
+import org.openhab.binding.megad.internal.MegaDPortStateTable;
+import org.openhab.binding.megad.internal.MegaDRs485Bus;
 import org.openhab.binding.megad.internal.MegaHttpHelpers;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.thing.Bridge;
@@ -49,10 +55,15 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     private @Nullable final Map<String, MegaDBridgeExtenderPortHandler> extenderBridgeHandlerMap = new HashMap<>();
     private @Nullable final Map<String, MegaDBridgeExtenderPCA9685Handler> extenderPCA9685BridgeHandlerMap = new HashMap<>();
     private @Nullable final Map<String, MegaDEncoderHandler> megaDEncoderHandlerMap = new HashMap<>();
-    private @Nullable final ArrayList<MegaDRs485Handler> megaDRs485HandlerMap = new ArrayList<>();
-    private final Map<String, String> portsvalues = new HashMap<>();
+    private @Nullable final List<MegaDRs485Handler> megaDRs485HandlerMap = new CopyOnWriteArrayList<>();
+    private final MegaDPortStateTable portStates = new MegaDPortStateTable();
+    private final Object portsSweepLock = new Object();
+    private final MegaD1WireScheduler oneWireScheduler = new MegaD1WireScheduler(scheduler);
+    private final MegaDRs485Bus rs485Bus = new MegaDRs485Bus();
+    private @Nullable CompletableFuture<MegaDPortStateTable> portsSweep;
     private @Nullable ScheduledFuture<?> refreshPollingJob;
     protected long lastRefresh = 0;
+    private long lastAllPortsFanOut = 0;
     int pingCount;
 
     @Nullable
@@ -62,8 +73,11 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     @Nullable
     MegaDEncoderHandler megaDEncoderHandler;
 
+    private volatile MegaDDeviceConfiguration config;
+
     public MegaDBridgeDeviceHandler(Bridge bridge) {
         super(bridge);
+        config = new MegaDDeviceConfiguration(bridge.getConfiguration());
     }
 
     @Override
@@ -73,12 +87,13 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     @SuppressWarnings("null")
     @Override
     public void initialize() {
+        config = new MegaDDeviceConfiguration(getThing().getConfiguration());
         bridgeIncomingHandler = getBridgeHandler();
         logger.debug("Thing Handler for {} started", getThing().getUID().getId());
 
         if (bridgeIncomingHandler != null) {
             registerMegaDeviceListener(bridgeIncomingHandler);
-            logger.debug("Device {} init", getThing().getConfiguration().get("hostname").toString());
+            logger.debug("Device {} init", config.hostname);
             getAllPortsStatus();
 
             if (refreshPollingJob == null || refreshPollingJob.isCancelled()) {
@@ -89,6 +104,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
                     }
                 }, 0, 1000, TimeUnit.MILLISECONDS);
             }
+            oneWireScheduler.start();
         } else {
             logger.warn("Can't register {} at bridge. BridgeHandler is null.", this.getThing().getUID());
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE,
@@ -99,7 +115,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     @SuppressWarnings("null")
     private void refresh() {
         try {
-            Socket sck = new Socket(getThing().getConfiguration().get("hostname").toString(), 80);
+            Socket sck = new Socket(config.hostname, 80);
             updateStatus(ThingStatus.ONLINE);
             sck.close();
         } catch (IOException e) {
@@ -112,18 +128,11 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
         if (megaDRs485HandlerMap != null && !megaDRs485HandlerMap.isEmpty()) {
             try {
                 for (MegaDRs485Handler handler : megaDRs485HandlerMap) {
-                    String address = handler.getThing().getConfiguration().get("address").toString();
-                    // logger.debug("address: {}", address);
-                    int interval = Integer.parseInt(handler.getThing().getConfiguration().get("refresh").toString());
+                    long interval = handler.getRefreshInterval();
                     if (interval != 0) {
-                        if (now >= (handler.getLastRefresh() + (interval * 1000L))) {
+                        if (now >= (handler.getLastRefresh() + interval)) {
                             handler.updateData();
                             handler.lastrefreshAdd(now);
-                            try {
-                                Thread.sleep(200);
-                            } catch (InterruptedException ignored) {
-                            }
-
                         }
                     }
                 }
@@ -173,7 +182,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     @SuppressWarnings("null")
     public void manageValues(String command) {
         logger.debug("command: {}", command);
-        logger.debug("host: {}", getThing().getConfiguration().get("hostname").toString());
+        logger.debug("host: {}", config.hostname);
         if (command != null) {
             String[] getCommands = command.split("[?&>=]");
             String[] prm = command.split("[&]");
@@ -190,53 +199,20 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
             assert portsHandlerMap != null;
             if (!portsHandlerMap.isEmpty()) {
                 if (command.contains("all=")) { // loop incoming
-                    logger.debug("Loop incoming from Megad: {} {}",
-                            getThing().getConfiguration().get("hostname").toString(), command);
+                    logger.debug("Loop incoming from Megad: {} {}", config.hostname, command);
 
                     if (getCommands.length == 4) {
-                        String[] parsedStatus = getCommands[3].split("[;]");
-                        for (int i = 0; parsedStatus.length > i; i++) {
-                            megaportsHandler = portsHandlerMap.get(String.valueOf(i));
-                            if (megaportsHandler != null) {
-                                String[] mode = parsedStatus[i].split("[/]");
-                                String[] commandsAdapt = { "", "", parsedStatus[i] };
-                                if (mode[0].contains("ON")) {
-                                    megaportsHandler.updateValues(commandsAdapt, OnOffType.ON);
-                                } else if (mode[0].contains("OFF")) {
-                                    megaportsHandler.updateValues(commandsAdapt, OnOffType.OFF);
-                                } else {
-                                    megaportsHandler.updateValues(commandsAdapt, null);
-                                }
-                            }
-                        }
+                        fanOutAllPorts(getCommands[3]);
                     } else {
-                        String[] parsedStatus = {};
                         try {
-                            parsedStatus = getCommands[2].split("[;]");
+                            fanOutAllPorts(getCommands[2]);
                         } catch (Exception ex) {
-                            parsedStatus = getCommands[1].split("[;]");
-                        }
-                        for (int i = 0; parsedStatus.length > i; i++) {
-                            megaportsHandler = portsHandlerMap.get(String.valueOf(i));
-                            String[] mode = parsedStatus[i].split("[/]");
-                            if (mode[0].equals("ON")) {
-                                if (megaportsHandler != null) {
-                                    megaportsHandler.updateValues(mode, OnOffType.ON);
-                                }
-                            } else if (mode[0].equals("OFF")) {
-                                if (megaportsHandler != null) {
-                                    megaportsHandler.updateValues(mode, OnOffType.OFF);
-                                }
-                            } else {
-                                if (megaportsHandler != null) {
-                                    String[] commands = { "", "", mode[0] };
-                                    megaportsHandler.updateValues(commands, null);
-                                }
-                            }
+                            fanOutAllPorts(getCommands[1]);
                         }
                     }
                 } else {
                     megaportsHandler = portsHandlerMap.get(getCommands[1]);
+                    updatePortState(command, getCommands[1], params);
                     if (command.contains("m=1")) { // press button
                         if (megaportsHandler != null) {
                             megaportsHandler.updateValues(getCommands, OnOffType.OFF);
@@ -263,9 +239,9 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
                         if ((getCommands[0].equals("st")) || (getCommands[0].equals("sms_phone"))) {
                             logger.debug("{}", portsHandlerMap.size());
 
-                            String request = "http://" + getThing().getConfiguration().get("hostname").toString() + "/"
-                                    + getThing().getConfiguration().get("password").toString() + "/?cmd=all";
+                            String request = config.baseUrl + "?cmd=all";
                             String updateRequest = MegaHttpHelpers.sendRequest(request);
+                            portStates.updateAll(updateRequest);
                             String[] getValues = updateRequest.split("[;]");
                             for (int i = 0; getValues.length > i; i++) {
                                 String[] val = { "", "", getValues[i] };
@@ -299,9 +275,8 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
             if (!extenderBridgeHandlerMap.isEmpty()) {
                 if (command.contains("ext")) {
                     extenderBridgeHandlerMap.forEach((k, v) -> {
-                        String intprm = v.getThing().getConfiguration().get("int").toString();
-                        if (intprm.equals(getCommands[1])) {
-                            v.updateValues(getCommands);
+                        if (v.getBusConfig().interrupt.equals(getCommands[1])) {
+                            v.updateValues(command);
                         }
                     });
                 }
@@ -314,17 +289,72 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
         }
     }
 
+    /**
+     * Applies snapshot of all ports from loop message. Only handlers of ports whose value changed are notified,
+     * all handlers are notified once per heartbeat period
+     */
+    private void fanOutAllPorts(String allPorts) {
+        int[] changed = portStates.updateAll(allPorts);
+        long now = System.currentTimeMillis();
+        long heartbeat = config.heartbeat;
+        if (heartbeat > 0 && now - lastAllPortsFanOut >= heartbeat) {
+            lastAllPortsFanOut = now;
+            for (int port = 0; port < MegaDPortStateTable.MAX_PORTS; port++) {
+                notifyPortHandler(port);
+            }
+        } else {
+            for (int port : changed) {
+                notifyPortHandler(port);
+            }
+        }
+    }
+
+    private void notifyPortHandler(int port) {
+        MegaDPortState state = portStates.get(port);
+        MegaDPortsHandler portsHandler = portsHandlerMap.get(String.valueOf(port));
+        if (state == null || portsHandler == null) {
+            return;
+        }
+        String[] commandsAdapt = { "", "", state.raw };
+        if (state.raw.contains("ON")) {
+            portsHandler.updateValues(commandsAdapt, OnOffType.ON);
+        } else if (state.raw.contains("OFF")) {
+            portsHandler.updateValues(commandsAdapt, OnOffType.OFF);
+        } else {
+            portsHandler.updateValues(commandsAdapt, null);
+        }
+    }
+
+    /**
+     * Applies incoming message of one port to the port state table
+     */
+    private void updatePortState(String command, String port, Map<String, String> params) {
+        if (!"pt".equals(command.split("[=]")[0])) {
+            return;
+        }
+        String value = params.get("v");
+        if (value != null) {
+            portStates.update(port, value);
+        } else if (command.contains("m=1")) {
+            portStates.updateSwitch(port, false);
+        } else if (!command.contains("click") && !command.contains("m=2")) {
+            portStates.updateSwitch(port, true);
+        }
+        String counter = params.get("cnt");
+        if (counter != null) {
+            try {
+                portStates.updateCounter(port, Long.parseLong(counter.trim()));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+    }
+
     // @SuppressWarnings("null")
     public void getAllPortsStatus() {
-        String request = "http://" + getThing().getConfiguration().get("hostname").toString() + "/"
-                + getThing().getConfiguration().get("password").toString() + "/?cmd=all";
+        String request = config.baseUrl + "?cmd=all";
         String updateRequest = MegaHttpHelpers.sendRequest(request);
-        String[] getValues = updateRequest.split("[;]");
-        for (int i = 0; getValues.length > i; i++) {
-            setPortsvalues(String.valueOf(i), getValues[i]);
-        }
-        logger.debug("All ports of device {} is {}", getThing().getConfiguration().get("hostname").toString(),
-                updateRequest);
+        portStates.updateAll(updateRequest);
+        logger.debug("All ports of device {} is {}", config.hostname, updateRequest);
     }
 
     @SuppressWarnings("null")
@@ -334,37 +364,62 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
             refreshPollingJob.cancel(true);
             refreshPollingJob = null;
         }
+        oneWireScheduler.stop();
         if (bridgeIncomingHandler != null) {
             bridgeIncomingHandler.unregisterMegaDeviceListener(this);
         }
+        portStates.clear();
         super.dispose();
     }
 
-    @SuppressWarnings({ "unused", "null" })
-    public String[] getPortsvalues(String port) {
-        String[] portvalue = { "", "", "", "", "" };
-        portvalue[0] = "";
-        portvalue[1] = "pt";
-        if (portsvalues.get(port) != null) {
-            portvalue[2] = portsvalues.get(port).toString();
-        } else {
-            portvalue[2] = null;
+    /**
+     * @return live state of controller ports, updated by sweeps, polls, incoming messages and commands
+     */
+    public MegaDPortStateTable getPortStates() {
+        return portStates;
+    }
+
+    /**
+     * Renews port state table by cmd=all. Callers coming while the sweep is running get the same sweep,
+     * so many REFRESH commands at once cause one request to the controller
+     */
+    public CompletableFuture<MegaDPortStateTable> sweepPortStates() {
+        synchronized (portsSweepLock) {
+            CompletableFuture<MegaDPortStateTable> sweep = portsSweep;
+            if (sweep == null || sweep.isDone()) {
+                sweep = CompletableFuture.supplyAsync(() -> {
+                    getAllPortsStatus();
+                    return portStates;
+                }, scheduler);
+                portsSweep = sweep;
+            }
+            return sweep;
         }
-        portvalue[3] = "";
-        portvalue[4] = "";
-        return portvalue;
     }
 
-    public void setPortsvalues(String key, String value) {
-        portsvalues.put(key, value);
+    /**
+     * @return period in milliseconds to re-publish unchanged polled values, 0 if disabled
+     */
+    public long getHeartbeat() {
+        return config.heartbeat;
+    }
+
+    /**
+     * @return transaction manager of rs485 port of the controller
+     */
+    public MegaDRs485Bus getRs485Bus() {
+        return rs485Bus;
+    }
+
+    public MegaDDeviceConfiguration getDeviceConfig() {
+        return config;
     }
 
     // STANDART PORTS------------------------------------------------
     @SuppressWarnings({ "unused", "null" })
     public void registerMegadPortsListener(MegaDPortsHandler megaportsHandlerD) {
-        String ip = megaportsHandlerD.getThing().getConfiguration().get("port").toString();
-        logger.debug("Register Device with ip {} and port {}", getThing().getConfiguration().get("hostname").toString(),
-                megaportsHandlerD.getThing().getConfiguration().get("port").toString());
+        String ip = megaportsHandlerD.getPortConfig().port;
+        logger.debug("Register Device with ip {} and port {}", config.hostname, megaportsHandlerD.getPortConfig().port);
         if (portsHandlerMap.get(ip) != null) {
             updateThingHandlerStatus(megaportsHandlerD, ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
                     "port already exists");
@@ -376,7 +431,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
 
     @SuppressWarnings("null")
     public void unregisterMegaDPortsListener(MegaDPortsHandler megaportsHandlerD) {
-        String ip = megaportsHandlerD.getThing().getConfiguration().get("port").toString();
+        String ip = megaportsHandlerD.getPortConfig().port;
         if (portsHandlerMap.get(ip) != null) {
             portsHandlerMap.remove(ip);
             updateThingHandlerStatus(megaportsHandlerD, ThingStatus.OFFLINE);
@@ -397,7 +452,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     @SuppressWarnings({ "unused", "null" })
     public void registerMegadItoCListener(MegaDItoCHandler megaDItoCHandler) {
         String ip = megaDItoCHandler.getThing().getConfiguration().get("port").toString();
-        logger.debug("Register Device with ip {} and port {}", getThing().getConfiguration().get("hostname").toString(),
+        logger.debug("Register Device with ip {} and port {}", config.hostname,
                 megaDItoCHandler.getThing().getConfiguration().get("port").toString());
         if (itoCHandlerMap.get(ip) != null) {
             updateThingHandlerStatus(megaDItoCHandler, ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
@@ -430,7 +485,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     // Extender
     @SuppressWarnings({ "unused", "null" })
     public void registerMegaExtenderPortListener(MegaDBridgeExtenderPortHandler megaDBridgeExtenderPortHandler) {
-        String extenderPort = megaDBridgeExtenderPortHandler.getThing().getConfiguration().get("port").toString();
+        String extenderPort = megaDBridgeExtenderPortHandler.getBusConfig().port;
         if (extenderBridgeHandlerMap.get(extenderPort) != null) {
             updateThingHandlerStatus(megaDBridgeExtenderPortHandler, ThingStatus.OFFLINE,
                     ThingStatusDetail.CONFIGURATION_ERROR, "Device already exist");
@@ -444,7 +499,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     @SuppressWarnings("null")
     /* Maybe error, see unregisterMegaExtenderPCA9685Listener */
     public void unregisterMegaDPortsListener(MegaDBridgeExtenderPortHandler megaDBridgeExtenderPortHandler) {
-        String ip = megaDBridgeExtenderPortHandler.getThing().getConfiguration().get("port").toString();
+        String ip = megaDBridgeExtenderPortHandler.getBusConfig().port;
         if (extenderBridgeHandlerMap.get(ip) != null) {
             extenderBridgeHandlerMap.remove(ip);
             updateThingHandlerStatus(megaDBridgeExtenderPortHandler, ThingStatus.OFFLINE);
@@ -464,7 +519,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     // PCA9685
     @SuppressWarnings({ "unused", "null" })
     public void registerMegaDBridgeExtenderPCA9685Listener(MegaDBridgeExtenderPCA9685Handler bridge) {
-        String port = bridge.getThing().getConfiguration().get("port").toString();
+        String port = bridge.getBusConfig().port;
         if (extenderPCA9685BridgeHandlerMap.get(port) != null) {
             updateThingHandlerStatus(bridge, ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
                     "Device already exist");
@@ -476,7 +531,7 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
 
     @SuppressWarnings("null")
     public void unregisterMegaDBridgeExtenderPCA9685Listener(MegaDBridgeExtenderPCA9685Handler bridge) {
-        String port = bridge.getThing().getConfiguration().get("port").toString();
+        String port = bridge.getBusConfig().port;
         if (extenderPCA9685BridgeHandlerMap.get(port) != null) {
             extenderPCA9685BridgeHandlerMap.remove(port);
             updateThingHandlerStatus(bridge, ThingStatus.OFFLINE);
@@ -497,22 +552,24 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     // 1WBRIDGE --------------------------------------------------------------------
     @SuppressWarnings({ "null", "unused" })
     public void registerMega1WireBusListener(MegaDBridge1WireBusHandler megaDBridge1WireBusHandler) {
-        String oneWirePort = megaDBridge1WireBusHandler.getThing().getConfiguration().get("port").toString();
+        String oneWirePort = megaDBridge1WireBusHandler.getBusConfig().port;
 
         if (oneWireBusBridgeHandlerMap.get(oneWirePort) != null) {
             updateThingHandlerStatus(megaDBridge1WireBusHandler, ThingStatus.OFFLINE,
                     ThingStatusDetail.CONFIGURATION_ERROR, "Device already exist");
         } else {
             oneWireBusBridgeHandlerMap.put(oneWirePort, megaDBridge1WireBusHandler);
+            oneWireScheduler.add(megaDBridge1WireBusHandler);
             updateThingHandlerStatus(megaDBridge1WireBusHandler, ThingStatus.ONLINE);
             // megaDBridgeDeviceHandler.getAllPortsStatus();
         }
     }
 
     public void unregisterMegad1WireBridgeListener(MegaDBridge1WireBusHandler megaDBridge1WireBusHandler) {
-        String ip = megaDBridge1WireBusHandler.getThing().getConfiguration().get("port").toString();
+        String ip = megaDBridge1WireBusHandler.getBusConfig().port;
         if (oneWireBusBridgeHandlerMap.get(ip) != null) {
             oneWireBusBridgeHandlerMap.remove(ip);
+            oneWireScheduler.remove(megaDBridge1WireBusHandler);
             updateThingHandlerStatus(megaDBridge1WireBusHandler, ThingStatus.OFFLINE);
         }
     }
@@ -545,8 +602,8 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
 
     public void unregisterMegaDEncoderListener(MegaDEncoderHandler megaDEncoderHandler) {
         String extenderPort = megaDEncoderHandler.getThing().getConfiguration().get("int").toString();
-        if (oneWireBusBridgeHandlerMap.get(extenderPort) != null) {
-            oneWireBusBridgeHandlerMap.remove(extenderPort);
+        if (megaDEncoderHandlerMap.get(extenderPort) != null) {
+            megaDEncoderHandlerMap.remove(extenderPort);
             updateThingHandlerStatus(megaDEncoderHandler, ThingStatus.OFFLINE);
         }
     }
@@ -562,12 +619,12 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
 
     // RS485
     public void registerMegaRs485Listener(MegaDRs485Handler megaDrs485Handler) {
-        String rs485Address = megaDrs485Handler.getThing().getConfiguration().get("address").toString();
+        String rs485Address = megaDrs485Handler.getRs485Config().address;
 
         if (megaDRs485HandlerMap != null && !megaDRs485HandlerMap.isEmpty()) {
             boolean isexist = false;
             for (MegaDRs485Handler handler : megaDRs485HandlerMap) {
-                if (rs485Address.equals(handler.getThing().getConfiguration().get("address").toString())) {
+                if (rs485Address.equals(handler.getRs485Config().address)) {
                     logger.debug("Device already exist");
                     isexist = true;
                 }
@@ -581,10 +638,9 @@ public class MegaDBridgeDeviceHandler extends BaseBridgeHandler {
     }
 
     public void unregisterMegadRs485Listener(MegaDRs485Handler megaDrs485Handler) {
-        String rs485Address = megaDrs485Handler.getThing().getConfiguration().get("address").toString();
+        String rs485Address = megaDrs485Handler.getRs485Config().address;
         if (megaDRs485HandlerMap != null) {
-            megaDRs485HandlerMap.removeIf(
-                    handler -> rs485Address.equals(handler.getThing().getConfiguration().get("address").toString()));
+            megaDRs485HandlerMap.removeIf(handler -> rs485Address.equals(handler.getRs485Config().address));
         }
     }
 }
@@ -19,6 +19,9 @@ import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.megad.MegaDBusConfiguration;
+import org.openhab.binding.megad.MegaDDeviceConfiguration;
+import org.openhab.binding.megad.internal.MegaDSnapshot;
 import org.openhab.binding.megad.internal.MegaHttpHelpers;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.ChannelUID;
@@ -44,15 +47,20 @@ public class MegaDBridgeExtenderPCA9685Handler extends BaseBridgeHandler {
     private Logger logger = LoggerFactory.getLogger(MegaDBridgeExtenderPCA9685Handler.class);
     @Nullable
     private Map<String, MegaDExtenderPCA9685Handler> mapThings = new HashMap<String, MegaDExtenderPCA9685Handler>();
-    private Map<String, String> portsvalues = new HashMap<>();
+    private final MegaDSnapshot portsvalues = new MegaDSnapshot(MegaDPCA9685FrameBuffer.OUTPUTS);
     private boolean startedState = false;
     private @Nullable ScheduledFuture<?> refreshPollingJob;
     protected long lastRefresh = 0;
     @Nullable
     MegaDExtenderPCA9685Handler thing;
 
+    private volatile MegaDBusConfiguration config;
+    private volatile MegaDPCA9685FrameBuffer frameBuffer;
+
     public MegaDBridgeExtenderPCA9685Handler(Bridge bridge) {
         super(bridge);
+        config = new MegaDBusConfiguration(bridge.getConfiguration());
+        frameBuffer = new MegaDPCA9685FrameBuffer(scheduler, this::sendFrame, config.frameRate);
     }
 
     @Override
@@ -62,12 +70,14 @@ public class MegaDBridgeExtenderPCA9685Handler extends BaseBridgeHandler {
     @SuppressWarnings({ "unused", "null" })
     @Override
     public void initialize() {
+        config = new MegaDBusConfiguration(getThing().getConfiguration());
+        frameBuffer.stop();
+        frameBuffer = new MegaDPCA9685FrameBuffer(scheduler, this::sendFrame, config.frameRate);
         bridgeDevice = getBridgeHandler();
         registerListenerBridge(bridgeDevice);
-        String refresh = getThing().getConfiguration().get("refresh").toString();
-        logger.debug("Thing {}, refresh interval is {} sec", getThing().getUID().toString(), refresh);
-        float msec = Float.parseFloat(refresh) + 1;
-        int pollingPeriod = (int) (msec * 1000);
+        portsvalues.setHeartbeat(this::getHeartbeat);
+        int pollingPeriod = config.refresh + 1000;
+        logger.debug("Thing {}, refresh interval is {} msec", getThing().getUID().toString(), pollingPeriod);
         if (refreshPollingJob == null || refreshPollingJob.isCancelled()) {
             refreshPollingJob = scheduler.scheduleWithFixedDelay(new Runnable() {
                 @Override
@@ -84,14 +94,13 @@ public class MegaDBridgeExtenderPCA9685Handler extends BaseBridgeHandler {
         if (interval != 0) {
             if (now >= (lastRefresh + interval)) {
                 logger.debug("Updating Megadevice thing {}...", getThing().getUID().toString());
-                String hostname = getHostPassword()[0];
-                String password = getHostPassword()[1];
-                String port = getThing().getConfiguration().get("port").toString();
-                String request = "http://" + hostname + "/" + password + "/?pt=" + port + "&cmd=get";
+                String request = bridgeDevice.getDeviceConfig().baseUrl + "?pt=" + config.port + "&cmd=get";
                 String updateRequest = MegaHttpHelpers.sendRequest(request);
-                String[] getValues = updateRequest.split("[;]");
-                for (int i = 0; getValues.length > i; i++) {
-                    setPortsvalues(String.valueOf(i), getValues[i]);
+                // outputs with changes to send have newer values than the poll
+                MegaDPCA9685FrameBuffer buffer = frameBuffer;
+                int[] changed = portsvalues.update(updateRequest, buffer::isBusy);
+                for (int i : changed) {
+                    buffer.setKnown(i, parseOutput(portsvalues.get(i)));
                     MegaDExtenderPCA9685Handler thing = mapThings.get(String.valueOf(i));
                     if (thing != null) {
                         thing.update();
@@ -112,6 +121,49 @@ public class MegaDBridgeExtenderPCA9685Handler extends BaseBridgeHandler {
         logger.warn("Required bridge not defined for device.");
     }
 
+    /**
+     * Changes output value through the frame buffer, changes of several outputs are sent together
+     *
+     * @param fadeTime time in milliseconds to fade to the value, 0 for instant change
+     */
+    public void writeOutput(int output, int value, long fadeTime) {
+        frameBuffer.set(output, value, fadeTime);
+    }
+
+    private void sendFrame(int[] outputs, int[] values, int count) {
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDevice;
+        if (deviceHandler == null) {
+            return;
+        }
+        StringBuilder request = new StringBuilder(deviceHandler.getDeviceConfig().baseUrl).append("?cmd=");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                request.append(';');
+            }
+            request.append(config.port).append('e').append(outputs[i]).append(':').append(values[i]);
+        }
+        logger.debug("PCA9685 frame: {}", request);
+        if (MegaHttpHelpers.sendRequest(request.toString()).isEmpty()) {
+            // values are unknown, next poll reports real values to the buffer and to the things
+            logger.debug("PCA9685 frame was not sent to port {}", config.port);
+            for (int i = 0; i < count; i++) {
+                portsvalues.invalidate(outputs[i]);
+            }
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            portsvalues.set(outputs[i], String.valueOf(values[i]));
+        }
+    }
+
+    private static int parseOutput(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     private void setStateStarted(boolean b) {
         startedState = b;
     }
@@ -150,18 +202,19 @@ public class MegaDBridgeExtenderPCA9685Handler extends BaseBridgeHandler {
 
     @SuppressWarnings({ "unused", "null" })
     public void registerListenerThing(MegaDExtenderPCA9685Handler thing) {
-        String extport = thing.getThing().getConfiguration().get("extport").toString();
+        String extport = thing.getExtenderConfig().extport;
         if (mapThings.get(extport) != null) {
             updateThingStatus(thing, ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, "port already exists");
         } else {
             mapThings.put(extport, thing);
+            portsvalues.invalidate(parseOutput(extport));
             updateThingStatus(thing, ThingStatus.ONLINE);
         }
     }
 
     @SuppressWarnings("null")
     public void unregisterListenerThing(@Nullable MegaDExtenderPCA9685Handler thing) {
-        String extport = thing.getThing().getConfiguration().get("extport").toString();
+        String extport = thing.getExtenderConfig().extport;
         if (mapThings.get(extport) != null) {
             mapThings.remove(extport);
             updateThingStatus(thing, ThingStatus.OFFLINE);
@@ -179,17 +232,21 @@ public class MegaDBridgeExtenderPCA9685Handler extends BaseBridgeHandler {
 
     @SuppressWarnings("null")
     public String[] getHostPassword() {
-        String[] result = new String[] { bridgeDevice.getThing().getConfiguration().get("hostname").toString(),
-                bridgeDevice.getThing().getConfiguration().get("password").toString() };
-        return result;
+        MegaDDeviceConfiguration deviceConfig = bridgeDevice.getDeviceConfig();
+        return new String[] { deviceConfig.hostname, deviceConfig.password };
     }
 
-    public String getPortsvalues(String port) {
-        return portsvalues.get(port).toString();
+    public MegaDBusConfiguration getBusConfig() {
+        return config;
+    }
+
+    public long getHeartbeat() {
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDevice;
+        return deviceHandler != null ? deviceHandler.getHeartbeat() : 0;
     }
 
-    public void setPortsvalues(String key, String value) {
-        portsvalues.put(key, value);
+    public String getPortsvalues(String port) {
+        return portsvalues.get(port);
     }
 
     @Override
@@ -209,6 +266,7 @@ public class MegaDBridgeExtenderPCA9685Handler extends BaseBridgeHandler {
             refreshPollingJob.cancel(true);
             refreshPollingJob = null;
         }
+        frameBuffer.stop();
         if (bridgeDevice != null) {
             bridgeDevice.unregisterMegaDBridgeExtenderPCA9685Listener(this);
         }
@@ -12,13 +12,16 @@
  */
 package org.openhab.binding.megad.handler;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.megad.MegaDBusConfiguration;
+import org.openhab.binding.megad.MegaDDeviceConfiguration;
+import org.openhab.binding.megad.internal.MegaDSnapshot;
 import org.openhab.binding.megad.internal.MegaHttpHelpers;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.ChannelUID;
@@ -42,16 +45,36 @@ public class MegaDBridgeExtenderPortHandler extends BaseBridgeHandler {
     @Nullable
     MegaDBridgeDeviceHandler bridgeDeviceHandler;
     private Logger logger = LoggerFactory.getLogger(MegaDBridgeExtenderPortHandler.class);
-    private Map<Integer, MegaDExtenderHandler> extenderHandlerMap = new HashMap<Integer, MegaDExtenderHandler>();
-    private Map<String, String> portsvalues = new HashMap<>();
+    /**
+     * Pins of MCP23017, MCP23008 uses first 8
+     */
+    private static final int MAX_PINS = 16;
+    /**
+     * Poll period multiplier when extender interrupts are received
+     */
+    private static final int INTERRUPT_POLL_STRETCH = 4;
+    /**
+     * Poll periods without interrupt after which INT line is considered broken and normal period is used again
+     */
+    private static final int INTERRUPT_TIMEOUT_PERIODS = 10;
+    private Map<Integer, MegaDExtenderHandler> extenderHandlerMap = new ConcurrentHashMap<>();
+    private final MegaDSnapshot portsvalues = new MegaDSnapshot(MAX_PINS);
+    private final long[] pinPushed = new long[MAX_PINS];
+    /**
+     * Time of the last interrupt message, 0 if none was received since initialization
+     */
+    private volatile long lastInterrupt = 0;
     private boolean startedState = false;
     private @Nullable ScheduledFuture<?> refreshPollingJob;
     protected long lastRefresh = 0;
     @Nullable
     MegaDExtenderHandler megaDExtenderHandler;
 
+    private volatile MegaDBusConfiguration config;
+
     public MegaDBridgeExtenderPortHandler(Bridge bridge) {
         super(bridge);
+        config = new MegaDBusConfiguration(bridge.getConfiguration());
     }
 
     @Override
@@ -61,16 +84,17 @@ public class MegaDBridgeExtenderPortHandler extends BaseBridgeHandler {
     @SuppressWarnings({ "unused", "null" })
     @Override
     public void initialize() {
+        config = new MegaDBusConfiguration(getThing().getConfiguration());
+        lastInterrupt = 0;
         bridgeDeviceHandler = getBridgeHandler();
         if (bridgeDeviceHandler != null) {
             registerMegaExtenderPortBridgeListener(bridgeDeviceHandler);
+            portsvalues.setHeartbeat(this::getHeartbeat);
         } else {
             logger.debug("Can't register {} at bridge. BridgeHandler is null.", this.getThing().getUID());
         }
-        String[] rr = { getThing().getConfiguration().get("refresh").toString() };// .split("[.]");
-        logger.debug("Thing {}, refresh interval is {} sec", getThing().getUID().toString(), rr[0]);
-        float msec = Float.parseFloat(rr[0]);
-        int pollingPeriod = (int) (msec * 1000);
+        int pollingPeriod = config.refresh;
+        logger.debug("Thing {}, refresh interval is {} msec", getThing().getUID().toString(), pollingPeriod);
         if (refreshPollingJob == null || refreshPollingJob.isCancelled()) {
             refreshPollingJob = scheduler.scheduleWithFixedDelay(new Runnable() {
                 @Override
@@ -85,18 +109,17 @@ public class MegaDBridgeExtenderPortHandler extends BaseBridgeHandler {
     public void refresh(int interval) {
         long now = System.currentTimeMillis();
         if (interval != 0) {
-            if (now >= (lastRefresh + interval)) {
-                String request = "http://"
-                        + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                        + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() + "/?pt="
-                        + getThing().getConfiguration().get("port").toString() + "&cmd=get";
+            boolean interruptsWorking = now - lastInterrupt < (long) interval * INTERRUPT_TIMEOUT_PERIODS;
+            long period = interruptsWorking ? (long) interval * INTERRUPT_POLL_STRETCH : interval;
+            if (now >= (lastRefresh + period)) {
+                String request = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?pt=" + config.port + "&cmd=get";
                 String updateRequest = MegaHttpHelpers.sendRequest(request);
-                String[] getValues = updateRequest.split("[;]");
-                for (int i = 0; getValues.length > i; i++) {
-                    setPortsvalues(String.valueOf(i), getValues[i]);
-                    megaDExtenderHandler = extenderHandlerMap.get(i);
-                    if (megaDExtenderHandler != null) {
-                        megaDExtenderHandler.update();
+                // pins pushed by interrupt while the request was running have newer values
+                int[] changed = portsvalues.update(updateRequest, i -> i < MAX_PINS && pinPushed[i] >= now);
+                for (int i : changed) {
+                    MegaDExtenderHandler extenderHandler = extenderHandlerMap.get(i);
+                    if (extenderHandler != null) {
+                        extenderHandler.update();
                     }
                 }
                 setStateStarted(true);
@@ -106,12 +129,53 @@ public class MegaDBridgeExtenderPortHandler extends BaseBridgeHandler {
         }
     }
 
-    @SuppressWarnings("null")
-    public void updateValues(String[] getCommands) {
-        String port = getCommands[2].substring(3);
-        String action = getCommands[3];
-        megaDExtenderHandler = extenderHandlerMap.get(Integer.parseInt(port));
-        megaDExtenderHandler.updateValues(action);
+    /**
+     * Applies interrupt message of the extender, like pt=22&ext0=1&ext1=0. Every extN pair is decoded
+     * in one pass, pushed pins are marked fresh and the periodic poll is stretched
+     */
+    public void updateValues(String command) {
+        long now = System.currentTimeMillis();
+        int length = command.length();
+        int index = command.indexOf("ext");
+        while (index >= 0) {
+            int pinStart = index + 3;
+            int pinEnd = pinStart;
+            int pin = 0;
+            while (pinEnd < length && Character.isDigit(command.charAt(pinEnd))) {
+                pin = pin * 10 + (command.charAt(pinEnd) - '0');
+                pinEnd++;
+            }
+            boolean atParameterStart = index == 0 || command.charAt(index - 1) == '&'
+                    || command.charAt(index - 1) == '?';
+            if (atParameterStart && pinEnd > pinStart && pinEnd < length && command.charAt(pinEnd) == '=') {
+                int valueEnd = command.indexOf('&', pinEnd);
+                if (valueEnd < 0) {
+                    valueEnd = length;
+                }
+                updatePin(pin, command.substring(pinEnd + 1, valueEnd), now);
+                index = command.indexOf("ext", valueEnd);
+            } else {
+                index = command.indexOf("ext", pinStart);
+            }
+        }
+    }
+
+    private void updatePin(int pin, String action, long now) {
+        if (pin < MAX_PINS) {
+            pinPushed[pin] = now;
+        }
+        lastInterrupt = now;
+        if ("1".equals(action)) {
+            portsvalues.set(pin, "ON");
+        } else if ("0".equals(action)) {
+            portsvalues.set(pin, "OFF");
+        }
+        MegaDExtenderHandler extenderHandler = extenderHandlerMap.get(pin);
+        if (extenderHandler != null) {
+            extenderHandler.updateValues(action);
+        } else {
+            logger.debug("Extender pin {} of port {} is not registered", pin, config.port);
+        }
     }
 
     private void setStateStarted(boolean b) {
@@ -150,19 +214,20 @@ public class MegaDBridgeExtenderPortHandler extends BaseBridgeHandler {
 
     @SuppressWarnings({ "unused", "null" })
     public void registerExtenderListener(MegaDExtenderHandler megaDExtenderHandler) {
-        String port = megaDExtenderHandler.getThing().getConfiguration().get("extport").toString();
+        String port = megaDExtenderHandler.getExtenderConfig().extport;
         if (extenderHandlerMap.get(Integer.parseInt(port)) != null) {
             updateThingHandlerStatus(megaDExtenderHandler, ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
                     "port already exists");
         } else {
             extenderHandlerMap.put(Integer.parseInt(port), megaDExtenderHandler);
+            portsvalues.invalidate(Integer.parseInt(port));
             updateThingHandlerStatus(megaDExtenderHandler, ThingStatus.ONLINE);
         }
     }
 
     @SuppressWarnings("null")
     public void unregisterExtenderListener(@Nullable MegaDExtenderHandler megaDExtenderHandler) {
-        String port = megaDExtenderHandler.getThing().getConfiguration().get("extport").toString();
+        String port = megaDExtenderHandler.getExtenderConfig().extport;
         if (extenderHandlerMap.get(Integer.parseInt(port)) != null) {
             extenderHandlerMap.remove(Integer.parseInt(port));
             updateThingHandlerStatus(megaDExtenderHandler, ThingStatus.OFFLINE);
@@ -180,17 +245,21 @@ public class MegaDBridgeExtenderPortHandler extends BaseBridgeHandler {
 
     @SuppressWarnings("null")
     public String[] getHostPassword() {
-        String[] result = new String[] { bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString(),
-                bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() };
-        return result;
+        MegaDDeviceConfiguration deviceConfig = bridgeDeviceHandler.getDeviceConfig();
+        return new String[] { deviceConfig.hostname, deviceConfig.password };
     }
 
-    public String getPortsvalues(String port) {
-        return portsvalues.get(port).toString();
+    public MegaDBusConfiguration getBusConfig() {
+        return config;
+    }
+
+    public long getHeartbeat() {
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDeviceHandler;
+        return deviceHandler != null ? deviceHandler.getHeartbeat() : 0;
     }
 
-    public void setPortsvalues(String key, String value) {
-        portsvalues.put(key, value);
+    public String getPortsvalues(String port) {
+        return portsvalues.get(port);
     }
 
     @Override
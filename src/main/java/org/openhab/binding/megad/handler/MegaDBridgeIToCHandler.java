@@ -12,8 +12,13 @@
  */
 package org.openhab.binding.megad.handler;
 
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.megad.MegaDDeviceConfiguration;
+import org.openhab.binding.megad.MegaDItoCBusConfiguration;
 import org.openhab.binding.megad.discovery.MegaDDiscoveryService;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.ChannelUID;
@@ -35,9 +40,15 @@ public class MegaDBridgeIToCHandler extends BaseBridgeHandler {
     private Logger logger = LoggerFactory.getLogger(MegaDBridgeIToCHandler.class);
     @Nullable
     MegaDBridgeDeviceHandler bridgeDeviceHandler;
+    private volatile @Nullable List<String> sensorTypes;
+    private volatile long sensorTypesTimestamp = 0;
+    private final MegaDItoCBusScheduler busScheduler = new MegaDItoCBusScheduler(this, scheduler);
+
+    private volatile MegaDItoCBusConfiguration config;
 
     public MegaDBridgeIToCHandler(Bridge bridge) {
         super(bridge);
+        config = new MegaDItoCBusConfiguration(bridge.getConfiguration());
     }
 
     @Override
@@ -46,20 +57,71 @@ public class MegaDBridgeIToCHandler extends BaseBridgeHandler {
 
     @Override
     public void initialize() {
+        config = new MegaDItoCBusConfiguration(getThing().getConfiguration());
         bridgeDeviceHandler = getBridgeHandler();
         logger.debug("Thing Handler for {} started", getThing().getUID().getId());
         MegaDDiscoveryService.i2cBusList.add(this);
+        busScheduler.start();
         updateStatus(ThingStatus.ONLINE);
     }
 
+    @Override
+    public void dispose() {
+        busScheduler.stop();
+        MegaDDiscoveryService.i2cBusList.remove(this);
+        super.dispose();
+    }
+
+    public void registerSensor(MegaDItoCSensorHandler sensorHandler) {
+        busScheduler.add(sensorHandler);
+    }
+
+    public void unregisterSensor(MegaDItoCSensorHandler sensorHandler) {
+        busScheduler.remove(sensorHandler);
+    }
+
+    public MegaDItoCBusConfiguration getItoCBusConfig() {
+        return config;
+    }
+
+    /**
+     * Shows bus load of the last statistics period in thing properties
+     */
+    void updateBusStatistics(int transactions, int errors, int utilization) {
+        updateProperties(Map.of("transactions", Integer.toString(transactions), "errors", Integer.toString(errors),
+                "utilization", utilization + "%"));
+    }
+
+    /**
+     * @param maxAge age of the scan in milliseconds
+     * @return types of sensors found by the last scan of the bus, null if the bus was not scanned
+     *         or the scan is older than maxAge
+     */
+    public @Nullable List<String> getSensorTypes(long maxAge) {
+        List<String> types = sensorTypes;
+        return types != null && System.currentTimeMillis() - sensorTypesTimestamp <= maxAge ? types : null;
+    }
+
+    public void setSensorTypes(List<String> sensorTypes) {
+        this.sensorTypes = List.copyOf(sensorTypes);
+        sensorTypesTimestamp = System.currentTimeMillis();
+    }
+
     /**
      * @return array where [0] - hostname and [1] password
      */
     @SuppressWarnings("null")
     public String[] getHostPassword() {
-        String[] result = new String[] { bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString(),
-                bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() };
-        return result;
+        MegaDDeviceConfiguration deviceConfig = bridgeDeviceHandler.getDeviceConfig();
+        return new String[] { deviceConfig.hostname, deviceConfig.password };
+    }
+
+    /**
+     * @return url of the bus port without command, like http://host/password/?pt=30
+     */
+    @SuppressWarnings("null")
+    public String getPortUrl() {
+        return bridgeDeviceHandler.getDeviceConfig().baseUrl + "?pt=" + config.port;
     }
 
     // -------------------------------------------------------------------
@@ -21,9 +21,10 @@ import java.net.URL;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.megad.MegaDBindingConstants;
+import org.openhab.binding.megad.MegaDExtenderConfiguration;
+import org.openhab.binding.megad.internal.MegaDStateCache;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.thing.Bridge;
-import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
@@ -31,6 +32,8 @@ import org.openhab.core.thing.ThingStatusDetail;
 import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.types.Command;
+import org.openhab.core.types.RefreshType;
+import org.openhab.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,25 +49,35 @@ public class MegaDExtenderHandler extends BaseThingHandler {
     @Nullable
     MegaDBridgeExtenderPortHandler extenderPortBridge;
     private Logger logger = LoggerFactory.getLogger(MegaDExtenderHandler.class);
+    private final MegaDStateCache stateCache = new MegaDStateCache();
+    private volatile boolean inLinked;
+    private volatile boolean outLinked;
+
+    private volatile MegaDExtenderConfiguration config;
 
     public MegaDExtenderHandler(Thing thing) {
         super(thing);
+        config = new MegaDExtenderConfiguration(thing.getConfiguration());
     }
 
     @SuppressWarnings("null")
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
-        if (channelUID.getId().equals(MegaDBindingConstants.CHANNEL_EXTENDER_OUT)) {
+        stateCache.invalidate(channelUID.getId());
+        if (command instanceof RefreshType) {
+            if (extenderPortBridge != null && extenderPortBridge.getStateStarted()) {
+                update();
+            }
+        } else if (channelUID.getId().equals(MegaDBindingConstants.CHANNEL_EXTENDER_OUT)) {
             int state = 0;
             if (command.toString().equals("ON")) {
                 state = 1;
             } else if (command.toString().equals("OFF")) {
                 state = 0;
             }
-            String result = "http://" + extenderPortBridge.getHostPassword()[0] + "/"
-                    + extenderPortBridge.getHostPassword()[1] + "/?cmd="
-                    + extenderPortBridge.getThing().getConfiguration().get("port").toString() + "e"
-                    + getThing().getConfiguration().get("extport").toString() + ":" + state;
+            String[] hostPassword = extenderPortBridge.getHostPassword();
+            String result = "http://" + hostPassword[0] + "/" + hostPassword[1] + "/?cmd="
+                    + extenderPortBridge.getBusConfig().port + "e" + config.extport + ":" + state;
             logger.debug("Extender switch: {}", result);
             sendCommand(result);
         }
@@ -73,13 +86,17 @@ public class MegaDExtenderHandler extends BaseThingHandler {
     @SuppressWarnings("null")
     @Override
     public void initialize() {
+        config = new MegaDExtenderConfiguration(getThing().getConfiguration());
         extenderPortBridge = getBridgeHandler();
+        rebuildLinkedChannels();
         if (extenderPortBridge != null) {
             registerExtenderListener(extenderPortBridge);
         } else {
             logger.debug("Can't register {} at bridge. BridgeHandler is null.", this.getThing().getUID());
         }
-        if (extenderPortBridge != null) {
+        MegaDBridgeExtenderPortHandler portBridge = extenderPortBridge;
+        if (portBridge != null) {
+            stateCache.setHeartbeat(portBridge::getHeartbeat);
             while (!extenderPortBridge.getStateStarted()) {
                 try {
                     Thread.sleep(1);
@@ -100,41 +117,68 @@ public class MegaDExtenderHandler extends BaseThingHandler {
     @SuppressWarnings("null")
     public void update() {
         try {
-            String portValue = extenderPortBridge
-                    .getPortsvalues(getThing().getConfiguration().get("extport").toString());
+            String portValue = extenderPortBridge.getPortsvalues(config.extport);
             // logger.debug("Extender port value is {}", extenderPortBridge.getPortsvalues(portValue));
-
-            for (Channel channel : getThing().getChannels()) {
-                if (isLinked(channel.getUID().getId())) {
-                    if ((channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_EXTENDER_IN))
-                            || (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_EXTENDER_OUT))) {
-                        if (portValue.contains("ON")) {
-                            updateState(channel.getUID().getId(), OnOffType.ON);
-                        } else if (portValue.contains("OFF")) {
-                            updateState(channel.getUID().getId(), OnOffType.OFF);
-                        }
-                    }
-                }
+            OnOffType state;
+            if (portValue.contains("ON")) {
+                state = OnOffType.ON;
+            } else if (portValue.contains("OFF")) {
+                state = OnOffType.OFF;
+            } else {
+                return;
+            }
+            if (inLinked) {
+                updateStateIfChanged(MegaDBindingConstants.CHANNEL_EXTENDER_IN, state);
+            }
+            if (outLinked) {
+                updateStateIfChanged(MegaDBindingConstants.CHANNEL_EXTENDER_OUT, state);
             }
         } catch (Exception e) {
             logger.error("Error updating port {}", e.getMessage());
         }
     }
 
+    public MegaDExtenderConfiguration getExtenderConfig() {
+        return config;
+    }
+
+    /**
+     * Publishes state pushed by interrupt, it goes through the cache so the next poll is compared with it
+     */
     public void updateValues(String action) {
-        for (Channel channel : getThing().getChannels()) {
-            if (isLinked(channel.getUID().getId())) {
-                if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_EXTENDER_IN)) {
-                    if ("1".equals(action)) {
-                        updateState(channel.getUID().getId(), OnOffType.ON);
-                    } else if ("0".equals(action)) {
-                        updateState(channel.getUID().getId(), OnOffType.OFF);
-                    }
-                }
+        if (inLinked) {
+            if ("1".equals(action)) {
+                updateStateIfChanged(MegaDBindingConstants.CHANNEL_EXTENDER_IN, OnOffType.ON);
+            } else if ("0".equals(action)) {
+                updateStateIfChanged(MegaDBindingConstants.CHANNEL_EXTENDER_IN, OnOffType.OFF);
             }
         }
     }
 
+    private void updateStateIfChanged(String channelId, State state) {
+        if (stateCache.isChanged(channelId, state)) {
+            updateState(channelId, state);
+        }
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        stateCache.invalidate(channelUID.getId());
+        super.channelLinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    private void rebuildLinkedChannels() {
+        inLinked = isLinked(MegaDBindingConstants.CHANNEL_EXTENDER_IN);
+        outLinked = isLinked(MegaDBindingConstants.CHANNEL_EXTENDER_OUT);
+    }
+
     @SuppressWarnings("null")
     @Override
     public void dispose() {
@@ -147,6 +191,7 @@ public class MegaDExtenderHandler extends BaseThingHandler {
         if (extenderPortBridge != null) {
             extenderPortBridge.unregisterExtenderListener(this);
         }
+        stateCache.clear();
         super.dispose();
     }
 
@@ -12,19 +12,15 @@
  */
 package org.openhab.binding.megad.handler;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.ProtocolException;
-import java.net.URL;
-
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.megad.MegaDBindingConstants;
-import org.openhab.core.library.types.DecimalType;
+import org.openhab.binding.megad.MegaDExtenderConfiguration;
+import org.openhab.binding.megad.internal.MegaDDimmerTable;
+import org.openhab.binding.megad.internal.MegaDStateCache;
+import org.openhab.binding.megad.internal.MegaDStates;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.thing.Bridge;
-import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
@@ -32,6 +28,7 @@ import org.openhab.core.thing.ThingStatusDetail;
 import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,59 +43,59 @@ import org.slf4j.LoggerFactory;
 public class MegaDExtenderPCA9685Handler extends BaseThingHandler {
     @Nullable
     MegaDBridgeExtenderPCA9685Handler bridge;
-    private int pwmMaxValue = 4095;
+    private static final int PWM_MAX_VALUE = 4095;
+    private static final MegaDDimmerTable DIMMER_TABLE = new MegaDDimmerTable(PWM_MAX_VALUE, 0);
     protected int dimmervalue = 150;
     private Logger logger = LoggerFactory.getLogger(MegaDExtenderPCA9685Handler.class);
+    private final MegaDStateCache stateCache = new MegaDStateCache();
+    private volatile boolean dimmerLinked = false;
+    private volatile boolean pwmLinked = false;
+
+    private volatile MegaDExtenderConfiguration config;
 
     public MegaDExtenderPCA9685Handler(Thing thing) {
         super(thing);
+        config = new MegaDExtenderConfiguration(thing.getConfiguration());
     }
 
     @SuppressWarnings("null")
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
         String strCommand = command.toString();
+        stateCache.invalidate(channelUID.getId());
         if (!"REFRESH".equals(strCommand)) {
-            String hostname = bridge.getHostPassword()[0];
-            String password = bridge.getHostPassword()[1];
-            String port = bridge.getThing().getConfiguration().get("port").toString();
-            String extport = getThing().getConfiguration().get("extport").toString();
-            String result = "http://" + hostname + "/" + password + "/?cmd=" + port + "e" + extport + ":";
+            int output;
+            try {
+                output = Integer.parseInt(config.extport.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("Illegal extender port: {}", config.extport);
+                return;
+            }
             String idChannel = channelUID.getId();
             switch (idChannel) {
                 case MegaDBindingConstants.CHANNEL_DIMMER:
                     switch (strCommand) {
                         case "OFF":
-                            result += "0";
                             logger.info("Dimmer set to OFF");
-                            sendCommand(result);
-                            updateState(idChannel, PercentType.valueOf("0"));
+                            bridge.writeOutput(output, 0, config.fadeTime);
+                            updateState(idChannel, PercentType.ZERO);
                             break;
                         case "ON":
-                            result += dimmervalue;
-                            logger.info("Dimmer restored to previous value: {}", result);
-                            sendCommand(result);
-                            int percent = 0;
-                            try {
-                                percent = Math.round(dimmervalue * 100 / pwmMaxValue);
-                            } catch (Exception e) {
-                            }
-                            updateState(idChannel, PercentType.valueOf(Integer.toString(percent)));
+                            logger.info("Dimmer restored to previous value: {}", dimmervalue);
+                            bridge.writeOutput(output, dimmervalue, config.fadeTime);
+                            updateState(idChannel, DIMMER_TABLE.toPercent(dimmervalue));
                             break;
                         default:
                             try {
                                 int uivalue = Integer.parseInt(strCommand.split("[.]")[0]);
-                                int resultInt = Math.round(uivalue * pwmMaxValue / 100);
-                                if (uivalue == 1) {
-                                    resultInt = uivalue;
-                                } else if (resultInt != 0) {
+                                int resultInt = DIMMER_TABLE.toRaw(uivalue);
+                                if (uivalue > 1 && resultInt != 0) {
                                     dimmervalue = resultInt;
                                 }
-                                result += resultInt;
-                                logger.info("Dimmer: {}", result);
-                                sendCommand(result);
+                                logger.info("Dimmer: {}", resultInt);
+                                bridge.writeOutput(output, resultInt, config.fadeTime);
                             } catch (Exception e) {
-                                logger.warn("Illegal dimmer value: {}", result);
+                                logger.warn("Illegal dimmer value: {}", strCommand);
                             }
                             break;
                     }
@@ -110,32 +107,36 @@ public class MegaDExtenderPCA9685Handler extends BaseThingHandler {
                         if (uivalue != 0) {
                             currentValue = uivalue;
                         }
-                        if (uivalue > pwmMaxValue) {
-                            currentValue = pwmMaxValue;
+                        if (uivalue > PWM_MAX_VALUE) {
+                            currentValue = PWM_MAX_VALUE;
                         }
-                        result += currentValue;
-                        logger.info("PWM: {}", result);
-                        sendCommand(result);
+                        logger.info("PWM: {}", currentValue);
+                        bridge.writeOutput(output, currentValue, config.fadeTime);
                     } catch (Exception e) {
-                        result += currentValue;
-                        logger.info("PWM restored to previous value: {}", result);
-                        sendCommand(result);
-                        updateState(idChannel, DecimalType.valueOf(Integer.toString(currentValue)));
+                        logger.info("PWM restored to previous value: {}", currentValue);
+                        bridge.writeOutput(output, currentValue, config.fadeTime);
+                        updateState(idChannel, MegaDStates.decimal(currentValue));
                     }
                     break;
                 default:
                     logger.warn("Channel {} for ExtenderPCA9685(handleCommand) not found", idChannel);
                     break;
             }
+        } else if (bridge != null && bridge.getStateStarted()) {
+            update();
         }
     }
 
     @SuppressWarnings("null")
     @Override
     public void initialize() {
+        config = new MegaDExtenderConfiguration(getThing().getConfiguration());
         bridge = getBridgeHandler();
         registerListenerThing(bridge);
-        if (bridge != null) {
+        rebuildLinkedChannels();
+        MegaDBridgeExtenderPCA9685Handler pcaBridge = bridge;
+        if (pcaBridge != null) {
+            stateCache.setHeartbeat(pcaBridge::getHeartbeat);
             while (!bridge.getStateStarted()) {
                 try {
                     logger.info("Waiting for a state started for Bridge");
@@ -156,58 +157,68 @@ public class MegaDExtenderPCA9685Handler extends BaseThingHandler {
         }
     }
 
+    public MegaDExtenderConfiguration getExtenderConfig() {
+        return config;
+    }
+
     public void updateValues(String action) {
-        for (Channel channel : getThing().getChannels()) {
-            String idChannel = channel.getUID().getId();
-            if (isLinked(idChannel)) {
-                logger.debug("updateValues of thing {}: {}", getThing().getUID().toString(), action);
-                switch (idChannel) {
-                    case MegaDBindingConstants.CHANNEL_DIMMER:
-                        try {
-                            if ("0".equals(action)) {
-                                logger.debug("dimmer value is 0, do not save dimmer value");
-                            } else {
-                                dimmervalue = Integer.parseInt(action);
-                            }
-                        } catch (Exception ignored) {
-                        }
-                        int percent = 0;
-                        try {
-                            percent = Math.round(dimmervalue * 100 / pwmMaxValue);
-                        } catch (Exception e) {
-                            logger.debug("Cannot convert to dimmer values string: '{}'", dimmervalue);
-                        }
-                        updateState(idChannel, PercentType.valueOf(Integer.toString(percent)));
-                        break;
-                    case MegaDBindingConstants.CHANNEL_PWM:
-                        int currentValue = 0;
-                        try {
-                            if ("0".equals(action)) {
-                                logger.debug("pwm value is 0, do not save pwm value");
-                            } else {
-                                currentValue = Integer.parseInt(action);
-                            }
-                        } catch (Exception ignored) {
-                        }
-                        try {
-                            updateState(idChannel, DecimalType.valueOf(Integer.toString(currentValue)));
-                        } catch (Exception ignored) {
-                        }
-                        break;
-                    default:
-                        logger.warn("Channel {} for ExtenderPCA9685(updateValues) not found", idChannel);
-                        break;
+        logger.debug("updateValues of thing {}: {}", getThing().getUID().toString(), action);
+        if (dimmerLinked) {
+            try {
+                if ("0".equals(action)) {
+                    logger.debug("dimmer value is 0, do not save dimmer value");
+                } else {
+                    dimmervalue = Integer.parseInt(action);
+                }
+            } catch (Exception ignored) {
+            }
+            updateState(MegaDBindingConstants.CHANNEL_DIMMER, DIMMER_TABLE.toPercent(dimmervalue));
+        }
+        if (pwmLinked) {
+            int currentValue = 0;
+            try {
+                if ("0".equals(action)) {
+                    logger.debug("pwm value is 0, do not save pwm value");
+                } else {
+                    currentValue = Integer.parseInt(action);
                 }
+            } catch (Exception ignored) {
             }
+            updateState(MegaDBindingConstants.CHANNEL_PWM, MegaDStates.decimal(currentValue));
         }
     }
 
+    private void updateStateIfChanged(String channelId, State state) {
+        if (stateCache.isChanged(channelId, state)) {
+            updateState(channelId, state);
+        }
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        stateCache.invalidate(channelUID.getId());
+        super.channelLinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    private void rebuildLinkedChannels() {
+        dimmerLinked = isLinked(MegaDBindingConstants.CHANNEL_DIMMER);
+        pwmLinked = isLinked(MegaDBindingConstants.CHANNEL_PWM);
+    }
+
     @SuppressWarnings("null")
     @Override
     public void dispose() {
         if (bridge != null) {
             bridge.unregisterListenerThing(this);
         }
+        stateCache.clear();
         super.dispose();
     }
 
@@ -233,44 +244,35 @@ public class MegaDExtenderPCA9685Handler extends BaseThingHandler {
 
     @SuppressWarnings({ "null" })
     protected void update() {
-        String extport = getThing().getConfiguration().get("extport").toString();
-        String portValue = bridge.getPortsvalues(extport);
-        for (Channel channel : getThing().getChannels()) {
-            String idChannel = channel.getUID().getId();
-            switch (idChannel) {
-                case MegaDBindingConstants.CHANNEL_DIMMER:
-                    if ("0".equals(portValue)) {
-                        logger.debug("dimmer value is 0, do not save dimmer value");
-                    } else {
-                        dimmervalue = Integer.parseInt(portValue);
-                    }
-                    int percent = 0;
-                    try {
-                        percent = Math.round(Integer.parseInt(portValue) * 100 / pwmMaxValue);
-                    } catch (Exception e) {
-                        logger.debug("Cannot convert to dimmer values string: '{}'", portValue);
-                    }
-                    updateState(idChannel, PercentType.valueOf(Integer.toString(percent)));
-                    break;
-                case MegaDBindingConstants.CHANNEL_PWM:
-                    int currentValue = 0;
-                    try {
-                        if ("0".equals(portValue)) {
-                            logger.debug("pwm value is 0, do not save pwm value");
-                        } else {
-                            currentValue = Integer.parseInt(portValue);
-                        }
-                        if (currentValue > pwmMaxValue) {
-                            currentValue = pwmMaxValue;
-                        }
-                        updateState(idChannel, DecimalType.valueOf(Integer.toString(currentValue)));
-                    } catch (Exception e) {
-                        logger.debug("Cannot update PWM value");
-                    }
-                    break;
-                default:
-                    logger.warn("Channel {} for ExtenderPCA9685(updateData) not found", idChannel);
-                    break;
+        String portValue = bridge.getPortsvalues(config.extport);
+        if ("0".equals(portValue)) {
+            logger.debug("dimmer value is 0, do not save dimmer value");
+        } else {
+            try {
+                dimmervalue = Integer.parseInt(portValue);
+            } catch (Exception ignored) {
+            }
+        }
+        if (dimmerLinked) {
+            try {
+                updateStateIfChanged(MegaDBindingConstants.CHANNEL_DIMMER,
+                        DIMMER_TABLE.toPercent(Integer.parseInt(portValue)));
+            } catch (NumberFormatException e) {
+                logger.debug("Cannot convert to dimmer values string: '{}'", portValue);
+            }
+        }
+        if (pwmLinked) {
+            int currentValue = 0;
+            try {
+                if (!"0".equals(portValue)) {
+                    currentValue = Integer.parseInt(portValue);
+                }
+                if (currentValue > PWM_MAX_VALUE) {
+                    currentValue = PWM_MAX_VALUE;
+                }
+                updateStateIfChanged(MegaDBindingConstants.CHANNEL_PWM, MegaDStates.decimal(currentValue));
+            } catch (Exception e) {
+                logger.debug("Cannot update PWM value");
             }
         }
     }
@@ -284,26 +286,4 @@ public class MegaDExtenderPCA9685Handler extends BaseThingHandler {
     public void updateStatus(ThingStatus status, ThingStatusDetail statusDetail, @Nullable String description) {
         super.updateStatus(status, statusDetail, description);
     }
-
-    @SuppressWarnings("null")
-    public void sendCommand(String result) {
-        try {
-            URL megaURL = new URL(result);
-            HttpURLConnection con = (HttpURLConnection) megaURL.openConnection();
-            con.setReadTimeout(1000);
-            con.setConnectTimeout(1000);
-            con.setRequestMethod("GET");
-            con.setRequestProperty("User-Agent", "Mozilla/5.0");
-            if (con.getResponseCode() == 200) {
-                logger.debug("OK");
-            }
-            con.disconnect();
-        } catch (MalformedURLException e) {
-            logger.error("{}", e.getLocalizedMessage());
-        } catch (ProtocolException e) {
-            logger.error("{}", e.getLocalizedMessage());
-        } catch (IOException e) {
-            logger.error("Connect to megadevice {} {} error: ", bridge.getHostPassword()[0], e.getLocalizedMessage());
-        }
-    }
 }
@@ -24,7 +24,6 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.megad.MegaDBindingConstants;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.thing.Bridge;
-import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
@@ -44,6 +43,7 @@ public class MegaDGroupHandler extends BaseThingHandler {
     private final Logger logger = LoggerFactory.getLogger(MegaDGroupHandler.class);
     @Nullable
     MegaDBridgeDeviceHandler bridgeDeviceHandler;
+    private volatile @Nullable OnOffType lastState;
 
     public MegaDGroupHandler(Thing thing) {
         super(thing);
@@ -58,16 +58,17 @@ public class MegaDGroupHandler extends BaseThingHandler {
                 state = 1;
             }
             if (channelUID.getId().equals(MegaDBindingConstants.CHANNEL_GROUP)) {
-                result = "http://" + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                        + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() + "/?cmd=g"
+                result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?cmd=g"
                         + getThing().getConfiguration().get("groupnumber").toString() + ":" + state;
-                sendCommand(result);
+                if (sendCommand(result)) {
+                    lastState = OnOffType.from(state == 1);
+                }
             }
         } else {
-            for (Channel channel : getThing().getChannels()) {
-                if (isLinked(channel.getUID().getId())) {
-                    updateState(channel.getUID().getId(), OnOffType.OFF);
-                }
+            // controller does not report group state, only the last accepted command is known
+            OnOffType groupState = lastState;
+            if (groupState != null) {
+                updateState(channelUID.getId(), groupState);
             }
         }
     }
@@ -78,8 +79,11 @@ public class MegaDGroupHandler extends BaseThingHandler {
         updateStatus(ThingStatus.ONLINE);
     }
 
+    /**
+     * @return true if the controller accepted the command
+     */
     @SuppressWarnings("null")
-    public void sendCommand(String Result) {
+    public boolean sendCommand(String Result) {
         HttpURLConnection con;
 
         URL megaURL;
@@ -93,17 +97,19 @@ public class MegaDGroupHandler extends BaseThingHandler {
 
             // add request header
             con.setRequestProperty("User-Agent", "Mozilla/5.0");
-            if (con.getResponseCode() == 200) {
+            boolean accepted = con.getResponseCode() == 200;
+            if (accepted) {
                 logger.debug("OK");
             }
             con.disconnect();
+            return accepted;
         } catch (MalformedURLException | ProtocolException e) {
             logger.error("{}", e.getLocalizedMessage());
         } catch (IOException e) {
-            logger.error("Connect to megadevice {}  error: {} ",
-                    bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString(),
+            logger.error("Connect to megadevice {}  error: {} ", bridgeDeviceHandler.getDeviceConfig().hostname,
                     e.getLocalizedMessage());
         }
+        return false;
     }
 
     // ----------------------------------------------------------
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.handler;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.megad.MegaDItoCSensorConfiguration;
+import org.openhab.binding.megad.internal.MegaHttpHelpers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link MegaDItoCBusScheduler} serializes all transactions of one I2C bus.
+ * Sensors are read in order of their deadlines, one transaction at a time, and transactions
+ * with a sensor keep the minimal gap configured for its type. Sensor handlers only get results
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+class MegaDItoCBusScheduler {
+    private static final long STATISTICS_PERIOD = 60000;
+
+    private final Logger logger = LoggerFactory.getLogger(MegaDItoCBusScheduler.class);
+    private final MegaDBridgeIToCHandler bus;
+    private final ScheduledExecutorService scheduler;
+    /**
+     * Time of the next read of every sensor
+     */
+    private final Map<MegaDItoCSensorHandler, Long> deadlines = new LinkedHashMap<>();
+    private final Map<String, Integer> typeGaps = new HashMap<>();
+    private @Nullable ScheduledFuture<?> job;
+    private boolean running = false;
+    private boolean inTransaction = false;
+
+    private @Nullable MegaDItoCSensorHandler current;
+    private List<MegaDItoCFetchPlan.Request> currentRequests = List.of();
+    private int currentIndex = 0;
+    private long lastTransactionEnd = 0;
+
+    private long statisticsStart = System.currentTimeMillis();
+    private int transactions = 0;
+    private int errors = 0;
+    private long busyTime = 0;
+
+    MegaDItoCBusScheduler(MegaDBridgeIToCHandler bus, ScheduledExecutorService scheduler) {
+        this.bus = bus;
+        this.scheduler = scheduler;
+    }
+
+    synchronized void add(MegaDItoCSensorHandler sensor) {
+        MegaDItoCSensorConfiguration config = sensor.getSensorConfig();
+        if (config.refresh == 0) {
+            return;
+        }
+        if (config.gap != MegaDItoCSensorConfiguration.BUS_GAP) {
+            typeGaps.put(config.sensorType, config.gap);
+        }
+        deadlines.put(sensor, System.currentTimeMillis());
+        wakeUp();
+    }
+
+    synchronized void remove(MegaDItoCSensorHandler sensor) {
+        deadlines.remove(sensor);
+        if (current == sensor) {
+            current = null;
+        }
+    }
+
+    synchronized void start() {
+        running = true;
+        statisticsStart = System.currentTimeMillis();
+        wakeUp();
+    }
+
+    synchronized void stop() {
+        running = false;
+        current = null;
+        ScheduledFuture<?> pending = job;
+        if (pending != null) {
+            pending.cancel(true);
+            job = null;
+        }
+    }
+
+    /**
+     * Reevaluates the sweep at once unless a transaction is running, the transaction schedules the next step itself
+     */
+    private void wakeUp() {
+        if (!running || inTransaction) {
+            return;
+        }
+        schedule(0);
+    }
+
+    private void schedule(long delay) {
+        ScheduledFuture<?> pending = job;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        job = scheduler.schedule(this::step, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    private void step() {
+        MegaDItoCSensorHandler sensor;
+        MegaDItoCFetchPlan.Request request;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (current == null || currentIndex >= currentRequests.size()) {
+                current = null;
+                MegaDItoCSensorHandler next = null;
+                long deadline = Long.MAX_VALUE;
+                for (Map.Entry<MegaDItoCSensorHandler, Long> entry : deadlines.entrySet()) {
+                    if (entry.getValue() < deadline) {
+                        deadline = entry.getValue();
+                        next = entry.getKey();
+                    }
+                }
+                if (next == null) {
+                    job = null;
+                    return;
+                }
+                if (deadline > now) {
+                    schedule(deadline - now);
+                    return;
+                }
+                deadlines.put(next, now + next.getSensorConfig().refresh);
+                current = next;
+                currentRequests = next.getFetchPlan().getRequests();
+                currentIndex = 0;
+                schedule(0);
+                return;
+            }
+            MegaDItoCSensorHandler currentSensor = current;
+            long wait = lastTransactionEnd + gap(currentSensor) - now;
+            if (wait > 0) {
+                schedule(wait);
+                return;
+            }
+            sensor = currentSensor;
+            request = currentRequests.get(currentIndex++);
+            inTransaction = true;
+        }
+        long begin = System.currentTimeMillis();
+        boolean failed = true;
+        try {
+            String answer = MegaHttpHelpers.sendRequest(request.url);
+            failed = answer.isEmpty() || "NA".equals(answer);
+            sensor.publishResult(request, answer);
+        } catch (RuntimeException e) {
+            logger.warn("I2C sensor {} failed: {}", sensor.getThing().getUID(), e.getMessage());
+        } finally {
+            // the bus must go on with next transaction whatever happened to this one
+            finishTransaction(begin, failed);
+        }
+    }
+
+    private synchronized void finishTransaction(long begin, boolean failed) {
+        long end = System.currentTimeMillis();
+        inTransaction = false;
+        lastTransactionEnd = end;
+        transactions++;
+        busyTime += end - begin;
+        if (failed) {
+            errors++;
+        }
+        if (running) {
+            schedule(0);
+        }
+        if (end - statisticsStart >= STATISTICS_PERIOD) {
+            reportStatistics(end);
+        }
+    }
+
+    private int gap(MegaDItoCSensorHandler sensor) {
+        return typeGaps.getOrDefault(sensor.getSensorConfig().sensorType, bus.getItoCBusConfig().gap);
+    }
+
+    private void reportStatistics(long now) {
+        int utilization = (int) (busyTime * 100 / Math.max(1, now - statisticsStart));
+        logger.debug("I2C bus {}: {} transactions, {} errors, utilization {}%", bus.getThing().getUID(),
+                transactions, errors, utilization);
+        bus.updateBusStatistics(transactions, errors, utilization);
+        statisticsStart = now;
+        transactions = 0;
+        errors = 0;
+        busyTime = 0;
+    }
+}
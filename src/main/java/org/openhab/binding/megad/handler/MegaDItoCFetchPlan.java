@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link MegaDItoCFetchPlan} is list of requests to read linked channels of one I2C sensor.
+ * Channels that map to the same request share it, so each distinct request is sent once per cycle
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+final class MegaDItoCFetchPlan {
+    static final MegaDItoCFetchPlan EMPTY = new MegaDItoCFetchPlan(Collections.emptyList());
+
+    /**
+     * Channel that gets value of a request
+     */
+    static final class Target {
+        final String channelId;
+        final String label;
+        /**
+         * Value is published as string instead of number
+         */
+        final boolean raw;
+
+        Target(String channelId, String label, boolean raw) {
+            this.channelId = channelId;
+            this.label = label;
+            this.raw = raw;
+        }
+    }
+
+    static final class Request {
+        final String url;
+        final List<Target> targets;
+
+        Request(String url, List<Target> targets) {
+            this.url = url;
+            this.targets = targets;
+        }
+    }
+
+    static final class Builder {
+        private final Map<String, List<Target>> requests = new LinkedHashMap<>();
+
+        Builder add(String url, String channelId, String label, boolean raw) {
+            requests.computeIfAbsent(url, key -> new ArrayList<>()).add(new Target(channelId, label, raw));
+            return this;
+        }
+
+        MegaDItoCFetchPlan build() {
+            List<Request> result = new ArrayList<>(requests.size());
+            for (Map.Entry<String, List<Target>> entry : requests.entrySet()) {
+                result.add(new Request(entry.getKey(), List.copyOf(entry.getValue())));
+            }
+            return new MegaDItoCFetchPlan(List.copyOf(result));
+        }
+    }
+
+    private final List<Request> requests;
+
+    private MegaDItoCFetchPlan(List<Request> requests) {
+        this.requests = requests;
+    }
+
+    List<Request> getRequests() {
+        return requests;
+    }
+
+    boolean isEmpty() {
+        return requests.isEmpty();
+    }
+}
@@ -18,6 +18,9 @@ import java.util.concurrent.TimeUnit;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.megad.MegaDBindingConstants;
+import org.openhab.binding.megad.MegaDPortConfiguration;
+import org.openhab.binding.megad.internal.MegaDItoCValues;
+import org.openhab.binding.megad.internal.MegaDValueParser;
 import org.openhab.binding.megad.internal.MegaHttpHelpers;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.thing.Bridge;
@@ -48,9 +51,11 @@ public class MegaDItoCHandler extends BaseThingHandler {
     MegaDBridgeDeviceHandler bridgeDeviceHandler;
     boolean startup = true;
     protected long lastRefresh = 0;
+    private volatile MegaDPortConfiguration config;
 
     public MegaDItoCHandler(Thing thing) {
         super(thing);
+        config = new MegaDPortConfiguration(thing.getConfiguration());
     }
 
     @Override
@@ -60,6 +65,7 @@ public class MegaDItoCHandler extends BaseThingHandler {
     @SuppressWarnings("null")
     @Override
     public void initialize() {
+        config = new MegaDPortConfiguration(getThing().getConfiguration());
         bridgeDeviceHandler = getBridgeHandler();
         // logger.debug("Thing Handler for {} started", getThing().getUID().getId());
         if (bridgeDeviceHandler != null) {
@@ -68,10 +74,8 @@ public class MegaDItoCHandler extends BaseThingHandler {
             logger.debug("Can't register {} at bridge. BridgeHandler is null.", this.getThing().getUID());
         }
 
-        String[] rr = { getThing().getConfiguration().get("refresh").toString() };// .split("[.]");
-        logger.debug("Thing {}, refresh interval is {} sec", getThing().getUID().toString(), rr[0]);
-        float msec = Float.parseFloat(rr[0]);
-        int pollingPeriod = (int) (msec * 1000);
+        int pollingPeriod = config.refresh;
+        logger.debug("Thing {}, refresh interval is {} msec", getThing().getUID().toString(), pollingPeriod);
         if (refreshPollingJob == null || refreshPollingJob.isCancelled()) {
             refreshPollingJob = scheduler.scheduleWithFixedDelay(new Runnable() {
                 @Override
@@ -141,76 +145,49 @@ public class MegaDItoCHandler extends BaseThingHandler {
     protected void updateData() {
         logger.debug("Updating i2c things...");
 
-        String result = "http://" + getBridgeHandler().getThing().getConfiguration().get("hostname").toString() + "/"
-                + getBridgeHandler().getThing().getConfiguration().get("password").toString() + "/?pt="
-                + getThing().getConfiguration().get("port").toString() + "&cmd=get";
-        String[] updateRequest = MegaHttpHelpers.sendRequest(result).split("[:/]");
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDeviceHandler;
+        if (deviceHandler == null) {
+            return;
+        }
+        String result = deviceHandler.getDeviceConfig().baseUrl + "?pt=" + config.port + "&cmd=get";
+        String updateRequest = MegaHttpHelpers.sendRequest(result);
+        MegaDItoCValues values = MegaDValueParser.parseItoCValues(updateRequest);
 
         for (Channel channel : getThing().getChannels()) {
-            if (isLinked(channel.getUID().getId())) {
-                if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_I2C_TEMP)) {
-                    for (int i = 0; i < updateRequest.length; i++) {
-                        if (updateRequest.length == 1) {
-                            try {
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest[0]));
-                            } catch (Exception ex) {
-                                logger.debug("Value {} is incorrect for channel {}", updateRequest[0],
-                                        MegaDBindingConstants.CHANNEL_I2C_TEMP);
-                            }
-                        } else if (updateRequest[i].equals("temp")) {
-                            try {
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest[i + 1]));
-                            } catch (Exception ex) {
-                                logger.debug("Value {} is incorrect for channel {}", updateRequest[i + 1],
-                                        MegaDBindingConstants.CHANNEL_I2C_TEMP);
-                            }
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_I2C_HUM)) {
-                    for (int i = 0; i < updateRequest.length; i++) {
-                        if (updateRequest[i].equals("hum")) {
-                            try {
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest[i + 1]));
-                            } catch (Exception ex) {
-                                logger.debug("Value {} is incorrect for channel {}", updateRequest[i + 1],
-                                        MegaDBindingConstants.CHANNEL_I2C_HUM);
-                            }
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_I2C_PRESSURE)) {
-                    for (int i = 0; i < updateRequest.length; i++) {
-                        if (updateRequest[i].equals("press")) {
-                            try {
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest[i + 1]));
-                            } catch (Exception ex) {
-                                logger.debug("Value {} is incorrect for channel {}", updateRequest[i + 1],
-                                        MegaDBindingConstants.CHANNEL_I2C_PRESSURE);
-                            }
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_I2C_GAS)) {
-                    for (int i = 0; i < updateRequest.length; i++) {
-                        if (updateRequest[i].equals("gas")) {
-                            try {
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest[i + 1]));
-                            } catch (Exception ex) {
-                                logger.debug("Value {} is incorrect for channel {}", updateRequest[i + 1],
-                                        MegaDBindingConstants.CHANNEL_I2C_GAS);
-                            }
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_I2C_OTHER)) {
-                    try {
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest[0]));
-                    } catch (Exception ex) {
-                        logger.debug("Value {} is incorrect for channel {}", updateRequest[0],
-                                MegaDBindingConstants.CHANNEL_I2C_OTHER);
-                    }
+            String channelId = channel.getUID().getId();
+            if (isLinked(channelId)) {
+                switch (channelId) {
+                    case MegaDBindingConstants.CHANNEL_I2C_TEMP:
+                        updateValue(channelId, values, values.temp, updateRequest);
+                        break;
+                    case MegaDBindingConstants.CHANNEL_I2C_HUM:
+                        updateValue(channelId, values, values.hum, updateRequest);
+                        break;
+                    case MegaDBindingConstants.CHANNEL_I2C_PRESSURE:
+                        updateValue(channelId, values, values.press, updateRequest);
+                        break;
+                    case MegaDBindingConstants.CHANNEL_I2C_GAS:
+                        updateValue(channelId, values, values.gas, updateRequest);
+                        break;
+                    case MegaDBindingConstants.CHANNEL_I2C_OTHER:
+                        updateValue(channelId, values, values.first, updateRequest);
+                        break;
+                    default:
+                        break;
                 }
             }
         }
     }
 
+    private void updateValue(String channelId, MegaDItoCValues values, long span, String updateRequest) {
+        DecimalType state = values.toState(span);
+        if (state != null) {
+            updateState(channelId, state);
+        } else {
+            logger.debug("Value {} is incorrect for channel {}", updateRequest, channelId);
+        }
+    }
+
     @Override
     public void updateStatus(ThingStatus status) {
         super.updateStatus(status);
@@ -13,12 +13,11 @@
 package org.openhab.binding.megad.handler;
 
 import java.util.Objects;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.megad.MegaDBindingConstants;
+import org.openhab.binding.megad.MegaDItoCSensorConfiguration;
 import org.openhab.binding.megad.internal.MegaHttpHelpers;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.StringType;
@@ -44,8 +43,9 @@ public class MegaDItoCSensorHandler extends BaseThingHandler {
     private final Logger logger = LoggerFactory.getLogger(MegaDItoCSensorHandler.class);
     @Nullable
     MegaDBridgeIToCHandler bridgeDeviceHandler;
-    private @Nullable ScheduledFuture<?> refreshPollingJob;
-    protected long lastRefresh = 0;
+    private volatile MegaDItoCFetchPlan fetchPlan = MegaDItoCFetchPlan.EMPTY;
+
+    private volatile MegaDItoCSensorConfiguration config;
 
     /**
      * Creates a new instance of this class for the {@link Thing}.
@@ -54,179 +54,112 @@ public class MegaDItoCSensorHandler extends BaseThingHandler {
      */
     public MegaDItoCSensorHandler(Thing thing) {
         super(thing);
+        config = new MegaDItoCSensorConfiguration(thing.getConfiguration());
     }
 
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
     }
 
-    @SuppressWarnings("null")
     @Override
     public void initialize() {
+        config = new MegaDItoCSensorConfiguration(getThing().getConfiguration());
         bridgeDeviceHandler = getBridgeHandler();
         logger.debug("Thing Handler for {} started", getThing().getUID().getId());
-
-        String[] rr = { getThing().getConfiguration().get("refresh").toString() };// .split("[.]");
-        logger.debug("Thing {}, refresh interval is {} sec", getThing().getUID().toString(), rr[0]);
-        float msec = Float.parseFloat(rr[0]);
-        int pollingPeriod = (int) (msec * 1000);
-        if (refreshPollingJob == null || refreshPollingJob.isCancelled()) {
-            refreshPollingJob = scheduler.scheduleWithFixedDelay(new Runnable() {
-                @Override
-                public void run() {
-                    refresh(pollingPeriod);
-                }
-            }, 0, 100, TimeUnit.MILLISECONDS);
+        logger.debug("Thing {}, refresh interval is {} msec", getThing().getUID().toString(), config.refresh);
+        rebuildFetchPlan();
+        MegaDBridgeIToCHandler bridgeHandler = bridgeDeviceHandler;
+        if (bridgeHandler != null) {
+            bridgeHandler.registerSensor(this);
         }
         updateStatus(ThingStatus.ONLINE);
     }
 
-    public void refresh(int interval) {
-        long now = System.currentTimeMillis();
-        if (interval != 0) {
-            if (now >= (lastRefresh + interval)) {
-                updateData();
-                lastRefresh = now;
-            }
-        }
+    public MegaDItoCSensorConfiguration getSensorConfig() {
+        return config;
     }
 
-    @SuppressWarnings("null")
-    protected void updateData() {
-        logger.debug("Updating Megadevice thing {}...", getThing().getUID().toString());
-        for (Channel channel : getThing().getChannels()) {
-            if (isLinked(channel.getUID().getId())) {
-                if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_PAR0)) {
-                    assert bridgeDeviceHandler != null;
-                    String result = "http://" + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[0] + "/"
-                            + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[1] + "/?pt="
-                            + bridgeDeviceHandler.getThing().getConfiguration().get("port").toString() + "&scl="
-                            + bridgeDeviceHandler.getThing().getConfiguration().get("scl").toString() + "&i2c_dev="
-                            + getThing().getConfiguration().get("sensortype").toString();
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException ignored) {
-                    }
-                    String updateRequest = MegaHttpHelpers.sendRequest(result);
-
-                    if ("NA".equals(updateRequest)) {
-                        logger.debug("Value {} is incorrect for channel {}", updateRequest,
-                                MegaDBindingConstants.CHANNEL_PAR0);
-                    } else {
-                        try {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest));
-                        } catch (Exception ex) {
-                            logger.debug("Value {} is incorrect for channel {}", updateRequest,
-                                    MegaDBindingConstants.CHANNEL_PAR0);
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_PAR1)) {
-                    assert bridgeDeviceHandler != null;
-                    String result = "http://" + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[0] + "/"
-                            + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[1] + "/?pt="
-                            + bridgeDeviceHandler.getThing().getConfiguration().get("port").toString() + "&scl="
-                            + bridgeDeviceHandler.getThing().getConfiguration().get("scl").toString() + "&i2c_dev="
-                            + getThing().getConfiguration().get("sensortype").toString() + "&i2c_par=1";
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException ignored) {
-                    }
-                    String updateRequest = MegaHttpHelpers.sendRequest(result);
+    MegaDItoCFetchPlan getFetchPlan() {
+        return fetchPlan;
+    }
 
-                    if ("NA".equals(updateRequest)) {
-                        logger.debug("Value {} is incorrect for channel {}", updateRequest,
-                                MegaDBindingConstants.CHANNEL_PAR0);
-                    } else {
-                        try {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest));
-                        } catch (Exception ex) {
-                            logger.debug("Value {} is incorrect for channel {}", updateRequest,
-                                    MegaDBindingConstants.CHANNEL_PAR1);
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_PAR2)) {
-                    assert bridgeDeviceHandler != null;
-                    String result = "http://" + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[0] + "/"
-                            + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[1] + "/?pt="
-                            + bridgeDeviceHandler.getThing().getConfiguration().get("port").toString() + "&scl="
-                            + bridgeDeviceHandler.getThing().getConfiguration().get("scl").toString() + "&i2c_dev="
-                            + getThing().getConfiguration().get("sensortype").toString() + "&i2c_par=2";
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException ignored) {
-                    }
-                    String updateRequest = MegaHttpHelpers.sendRequest(result);
+    /**
+     * Publishes answer of a request of the fetch plan, called by the bus scheduler
+     */
+    void publishResult(MegaDItoCFetchPlan.Request request, String updateRequest) {
+        for (MegaDItoCFetchPlan.Target target : request.targets) {
+            publish(target, updateRequest);
+        }
+    }
 
-                    if ("NA".equals(updateRequest)) {
-                        logger.debug("Value {} is incorrect for channel {}", updateRequest,
-                                MegaDBindingConstants.CHANNEL_PAR2);
-                    } else {
-                        try {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest));
-                        } catch (Exception ex) {
-                            logger.debug("Value {} is incorrect for channel {}", updateRequest,
-                                    MegaDBindingConstants.CHANNEL_PAR2);
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_I2CRAW)) {
-                    assert bridgeDeviceHandler != null;
-                    String result = "";
-                    if (getThing().getConfiguration().get("rawparam") != null) {
-                        result = "http://" + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[0] + "/"
-                                + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[1] + "/?pt="
-                                + bridgeDeviceHandler.getThing().getConfiguration().get("port").toString() + "&scl="
-                                + bridgeDeviceHandler.getThing().getConfiguration().get("scl").toString() + "&i2c_dev="
-                                + getThing().getConfiguration().get("sensortype").toString()
-                                + getThing().getConfiguration().get("rawparam").toString();
-                    } else {
-                        result = "http://" + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[0] + "/"
-                                + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[1] + "/?pt="
-                                + bridgeDeviceHandler.getThing().getConfiguration().get("port").toString() + "&scl="
-                                + bridgeDeviceHandler.getThing().getConfiguration().get("scl").toString() + "&i2c_dev="
-                                + getThing().getConfiguration().get("sensortype").toString();
-                    }
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException ignored) {
-                    }
-                    String updateRequest = MegaHttpHelpers.sendRequest(result);
+    private void publish(MegaDItoCFetchPlan.Target target, String updateRequest) {
+        if (target.raw) {
+            updateState(target.channelId, StringType.valueOf(updateRequest));
+        } else if ("NA".equals(updateRequest)) {
+            logger.debug("Value {} is incorrect for channel {}", updateRequest, target.label);
+        } else {
+            try {
+                updateState(target.channelId, DecimalType.valueOf(updateRequest));
+            } catch (Exception ex) {
+                logger.debug("Value {} is incorrect for channel {}", updateRequest, target.label);
+            }
+        }
+    }
 
-                    try {
-                        updateState(channel.getUID().getId(), StringType.valueOf(updateRequest));
-                    } catch (Exception ex) {
-                        logger.debug("Value {} is incorrect for channel {}", updateRequest,
-                                MegaDBindingConstants.CHANNEL_I2CRAW);
-                    }
-                }
-                if (!channel.getConfiguration().getProperties().isEmpty()) {
-                    logger.debug("Channel {}... dynamically created", channel.getLabel());
-                    logger.debug("Channel {}... parameter is {} ", channel.getLabel(),
-                            channel.getConfiguration().get("i2cparameter"));
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        super.channelLinked(channelUID);
+        rebuildFetchPlan();
+    }
 
-                    String result = "http://" + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[0] + "/"
-                            + Objects.requireNonNull(getBridgeHandler()).getHostPassword()[1] + "/?pt="
-                            + bridgeDeviceHandler.getThing().getConfiguration().get("port").toString() + "&scl="
-                            + bridgeDeviceHandler.getThing().getConfiguration().get("scl").toString() + "&i2c_dev="
-                            + getThing().getConfiguration().get("sensortype").toString() + "&"
-                            + channel.getConfiguration().get("i2cparameter");
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException ignored) {
-                    }
-                    String updateRequest = MegaHttpHelpers.sendRequest(result);
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        rebuildFetchPlan();
+    }
 
-                    if ("NA".equals(updateRequest)) {
-                        logger.debug("Value {} is incorrect for channel {}", updateRequest, channel.getLabel());
-                    } else {
-                        try {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest));
-                        } catch (Exception ex) {
-                            logger.debug("Value {} is incorrect for channel {}", updateRequest, channel.getLabel());
-                        }
-                    }
-                }
+    /**
+     * Builds requests for linked channels, channels with the same request share it
+     */
+    private void rebuildFetchPlan() {
+        MegaDBridgeIToCHandler bridgeHandler = bridgeDeviceHandler;
+        if (bridgeHandler == null) {
+            fetchPlan = MegaDItoCFetchPlan.EMPTY;
+            return;
+        }
+        String baseUrl = bridgeHandler.getPortUrl() + "&scl=" + bridgeHandler.getItoCBusConfig().scl + "&i2c_dev="
+                + config.sensorType;
+        MegaDItoCFetchPlan.Builder builder = new MegaDItoCFetchPlan.Builder();
+        for (Channel channel : getThing().getChannels()) {
+            String channelId = channel.getUID().getId();
+            if (!isLinked(channelId)) {
+                continue;
+            }
+            switch (channelId) {
+                case MegaDBindingConstants.CHANNEL_PAR0:
+                    builder.add(baseUrl, channelId, channelId, false);
+                    break;
+                case MegaDBindingConstants.CHANNEL_PAR1:
+                    builder.add(baseUrl + "&i2c_par=1", channelId, channelId, false);
+                    break;
+                case MegaDBindingConstants.CHANNEL_PAR2:
+                    builder.add(baseUrl + "&i2c_par=2", channelId, channelId, false);
+                    break;
+                case MegaDBindingConstants.CHANNEL_I2CRAW:
+                    builder.add(baseUrl + config.rawParam, channelId, channelId, true);
+                    break;
+                default:
+                    break;
+            }
+            if (!channel.getConfiguration().getProperties().isEmpty()) {
+                logger.debug("Channel {}... dynamically created, parameter is {}", channel.getLabel(),
+                        channel.getConfiguration().get("i2cparameter"));
+                builder.add(baseUrl + "&" + channel.getConfiguration().get("i2cparameter"), channelId,
+                        String.valueOf(channel.getLabel()), false);
             }
         }
+        fetchPlan = builder.build();
+        logger.debug("Thing {} reads {} requests per cycle", getThing().getUID(), fetchPlan.getRequests().size());
     }
 
     // @SuppressWarnings("null")
@@ -246,12 +179,11 @@ public class MegaDItoCSensorHandler extends BaseThingHandler {
         }
     }
 
-    @SuppressWarnings("null")
     @Override
     public void dispose() {
-        if (refreshPollingJob != null && !refreshPollingJob.isCancelled()) {
-            refreshPollingJob.cancel(true);
-            refreshPollingJob = null;
+        MegaDBridgeIToCHandler bridgeHandler = bridgeDeviceHandler;
+        if (bridgeHandler != null) {
+            bridgeHandler.unregisterSensor(this);
         }
         super.dispose();
     }
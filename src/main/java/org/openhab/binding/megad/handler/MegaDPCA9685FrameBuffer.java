@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.handler;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link MegaDPCA9685FrameBuffer} collects changes of all outputs of one PCA9685 extender and sends them
+ * as frames, one request per frame with all changed outputs. Fades are interpolated per frame, so several outputs
+ * fading together (RGB, scenes) cost one request per frame
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+class MegaDPCA9685FrameBuffer {
+    static final int OUTPUTS = 16;
+
+    /**
+     * Sends changed outputs of a frame to the extender
+     */
+    interface FrameSender {
+        void send(int[] outputs, int[] values, int count);
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final FrameSender sender;
+    private final long framePeriod;
+
+    private final int[] values = new int[OUTPUTS];
+    private final int[] fadeFrom = new int[OUTPUTS];
+    private final int[] fadeTo = new int[OUTPUTS];
+    private final long[] fadeStart = new long[OUTPUTS];
+    private final long[] fadeTime = new long[OUTPUTS];
+    /**
+     * Bit masks of outputs waiting to be sent, outputs being sent and outputs fading
+     */
+    private int dirty = 0;
+    private int sending = 0;
+    private int fading = 0;
+    private @Nullable ScheduledFuture<?> job;
+    private boolean running = true;
+
+    MegaDPCA9685FrameBuffer(ScheduledExecutorService scheduler, FrameSender sender, int frameRate) {
+        this.scheduler = scheduler;
+        this.sender = sender;
+        this.framePeriod = 1000 / Math.max(1, frameRate);
+    }
+
+    /**
+     * Sets output value, with positive fade time the value changes from the current one during that time
+     */
+    synchronized void set(int output, int value, long fade) {
+        if (output < 0 || output >= OUTPUTS) {
+            return;
+        }
+        int bit = 1 << output;
+        if (fade > 0 && values[output] != value) {
+            fadeFrom[output] = values[output];
+            fadeTo[output] = value;
+            fadeStart[output] = System.currentTimeMillis();
+            fadeTime[output] = fade;
+            fading |= bit;
+        } else {
+            fading &= ~bit;
+            values[output] = value;
+            dirty |= bit;
+        }
+        startFrames();
+    }
+
+    /**
+     * Stores value read from the extender, ignored while output has changes to send
+     *
+     * @return false if the output has changes to send
+     */
+    synchronized boolean setKnown(int output, int value) {
+        if (output < 0 || output >= OUTPUTS) {
+            return true;
+        }
+        if (isBusy(output)) {
+            return false;
+        }
+        values[output] = value;
+        return true;
+    }
+
+    synchronized boolean isBusy(int output) {
+        int bit = 1 << output;
+        return ((dirty | sending | fading) & bit) != 0;
+    }
+
+    synchronized void stop() {
+        running = false;
+        ScheduledFuture<?> pending = job;
+        if (pending != null) {
+            pending.cancel(true);
+            job = null;
+        }
+    }
+
+    /**
+     * First frame is sent after one frame period, so commands that come together are sent together
+     */
+    private void startFrames() {
+        if (running && job == null) {
+            job = scheduler.schedule(this::frame, framePeriod, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void frame() {
+        int[] outputs = new int[OUTPUTS];
+        int[] frameValues = new int[OUTPUTS];
+        int count = 0;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (int output = 0; output < OUTPUTS; output++) {
+                int bit = 1 << output;
+                if ((fading & bit) != 0) {
+                    long elapsed = now - fadeStart[output];
+                    int value;
+                    if (elapsed >= fadeTime[output]) {
+                        value = fadeTo[output];
+                        fading &= ~bit;
+                    } else {
+                        value = fadeFrom[output]
+                                + (int) ((fadeTo[output] - fadeFrom[output]) * elapsed / fadeTime[output]);
+                    }
+                    if (value != values[output]) {
+                        values[output] = value;
+                        dirty |= bit;
+                    }
+                }
+                if ((dirty & bit) != 0) {
+                    outputs[count] = output;
+                    frameValues[count] = values[output];
+                    count++;
+                }
+            }
+            sending = dirty;
+            dirty = 0;
+        }
+        if (count > 0) {
+            sender.send(outputs, frameValues, count);
+        }
+        synchronized (this) {
+            sending = 0;
+            if (running && (fading | dirty) != 0) {
+                job = scheduler.schedule(this::frame, framePeriod, TimeUnit.MILLISECONDS);
+            } else {
+                job = null;
+            }
+        }
+    }
+}
@@ -17,12 +17,21 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ProtocolException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.megad.MegaDBindingConstants;
+import org.openhab.binding.megad.MegaDPortConfiguration;
+import org.openhab.binding.megad.internal.MegaDDimmerTable;
+import org.openhab.binding.megad.internal.MegaDPortState;
+import org.openhab.binding.megad.internal.MegaDStateCache;
+import org.openhab.binding.megad.internal.MegaDStates;
 import org.openhab.binding.megad.internal.MegaHttpHelpers;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
@@ -38,6 +47,8 @@ import org.openhab.core.thing.ThingStatusDetail;
 import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.types.Command;
+import org.openhab.core.types.RefreshType;
+import org.openhab.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,9 +69,16 @@ public class MegaDPortsHandler extends BaseThingHandler {
     boolean startup = true;
     protected int dimmervalue = 150;
     int smooth;
+    private final MegaDStateCache stateCache = new MegaDStateCache();
+    private volatile LinkedChannel[] linkedChannels = new LinkedChannel[0];
+
+    private volatile MegaDPortConfiguration config;
+    private volatile MegaDDimmerTable dimmerTable;
 
     public MegaDPortsHandler(Thing thing) {
         super(thing);
+        config = new MegaDPortConfiguration(thing.getConfiguration());
+        dimmerTable = new MegaDDimmerTable(255, config.minPwm);
     }
 
     @SuppressWarnings("null")
@@ -68,6 +86,11 @@ public class MegaDPortsHandler extends BaseThingHandler {
     public void handleCommand(ChannelUID channelUID, Command command) {
         int state = 0;
         String result = "";
+        stateCache.invalidate(channelUID.getId());
+        if (command instanceof RefreshType) {
+            refreshChannel(channelUID.getId());
+            return;
+        }
         if (channelUID.getId().equals(MegaDBindingConstants.CHANNEL_OUT)) {
             if (!command.toString().equals("REFRESH")) {
                 if (command.toString().equals("ON")) {
@@ -76,11 +99,11 @@ public class MegaDPortsHandler extends BaseThingHandler {
                     state = 0;
                 }
                 assert bridgeDeviceHandler != null;
-                result = "http://" + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                        + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() + "/?cmd="
-                        + getThing().getConfiguration().get("port").toString() + ":" + state;
+                result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?cmd=" + config.port + ":" + state;
                 logger.debug("Switch: {}", result);
-                sendCommand(result);
+                if (sendCommand(result)) {
+                    bridgeDeviceHandler.getPortStates().updateSwitch(config.port, state == 1);
+                }
             }
         } else if (channelUID.getId().equals(MegaDBindingConstants.CHANNEL_DS2413)) {
             if (command.toString().equals("ON")) {
@@ -88,10 +111,8 @@ public class MegaDPortsHandler extends BaseThingHandler {
             } else if (command.toString().equals("OFF")) {
                 state = 0;
             }
-            result = "http://" + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                    + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString() + "/?cmd="
-                    + getThing().getConfiguration().get("port").toString()
-                    + getThing().getConfiguration().get("ds2413_ch") + ":" + state;
+            result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?cmd=" + config.port + config.ds2413Channel + ":"
+                    + state;
             logger.info("Switch: {}", result);
             sendCommand(result);
 
@@ -99,22 +120,9 @@ public class MegaDPortsHandler extends BaseThingHandler {
             if (!command.toString().equals("REFRESH")) {
                 try {
                     int uivalue = Integer.parseInt(command.toString().split("[.]")[0]);
-                    int resultInt = 0;
-                    if (uivalue != 0) {
-                        int minval = Integer.parseInt(getThing().getConfiguration().get("min_pwm").toString());
-                        double getDiff = (255.0 - minval) / 100.0;
-                        int corrVal = (int) Math.round(uivalue * getDiff);
-                        resultInt = corrVal + minval;
-
-                        if (uivalue == 1) {
-                            if (minval != 0) {
-                                resultInt = minval;
-                            } else {
-                                resultInt = uivalue;
-                            }
-                        } else if (resultInt != 0) {
-                            dimmervalue = resultInt;
-                        }
+                    int resultInt = dimmerTable.toRaw(uivalue);
+                    if (uivalue > 1 && resultInt != 0) {
+                        dimmervalue = resultInt;
                     }
                     if (isLinked(getThing().getChannel(MegaDBindingConstants.CHANNEL_SMOOTH).getUID().getId())) {
                         logger.debug("Smooth linked");
@@ -122,35 +130,29 @@ public class MegaDPortsHandler extends BaseThingHandler {
                         logger.debug("Smooth unlinked");
                     }
 
-                    result = "http://" + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString()
-                            + "/" + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString()
-                            + "/?cmd=" + getThing().getConfiguration().get("port").toString() + ":" + resultInt;
+                    result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?cmd=" + config.port + ":" + resultInt;
                     logger.info("Dimmer: {}", result);
-                    sendCommand(result);
+                    if (sendCommand(result)) {
+                        acknowledgeValue(resultInt);
+                    }
                 } catch (Exception e) {
                     if (command.toString().equals("OFF")) {
                         assert bridgeDeviceHandler != null;
-                        result = "http://"
-                                + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                                + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString()
-                                + "/?cmd=" + getThing().getConfiguration().get("port").toString() + ":0";
+                        result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?cmd=" + config.port + ":0";
                         logger.info("Dimmer set to OFF");
-                        sendCommand(result);
-                        updateState(channelUID.getId(), PercentType.valueOf("0"));
+                        if (sendCommand(result)) {
+                            acknowledgeValue(0);
+                        }
+                        updateState(channelUID.getId(), PercentType.ZERO);
                     } else if (command.toString().equals("ON")) {
                         assert bridgeDeviceHandler != null;
-                        result = "http://"
-                                + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                                + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString()
-                                + "/?cmd=" + getThing().getConfiguration().get("port").toString() + ":" + dimmervalue;
+                        result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?cmd=" + config.port + ":"
+                                + dimmervalue;
                         logger.info("Dimmer restored to previous value: {}", result);
-                        sendCommand(result);
-                        int percent = 0;
-                        try {
-                            percent = (int) Math.round(dimmervalue / 2.55);
-                        } catch (Exception ex) {
+                        if (sendCommand(result)) {
+                            acknowledgeValue(dimmervalue);
                         }
-                        updateState(channelUID.getId(), PercentType.valueOf(Integer.toString(percent)));
+                        updateState(channelUID.getId(), dimmerTable.toPercent(dimmervalue));
                     } else {
                         logger.debug("Illegal dimmer value: {}", result);
                     }
@@ -164,37 +166,100 @@ public class MegaDPortsHandler extends BaseThingHandler {
                         dimmervalue = uivalue;
                     }
                     assert bridgeDeviceHandler != null;
-                    result = "http://" + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString()
-                            + "/" + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString()
-                            + "/?cmd=" + getThing().getConfiguration().get("port").toString() + ":" + uivalue;
+                    result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?cmd=" + config.port + ":" + uivalue;
                     logger.info("PWM: {}", result);
-                    sendCommand(result);
+                    if (sendCommand(result)) {
+                        acknowledgeValue(uivalue);
+                    }
                 } catch (Exception e) {
                     assert bridgeDeviceHandler != null;
-                    result = "http://" + bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString()
-                            + "/" + bridgeDeviceHandler.getThing().getConfiguration().get("password").toString()
-                            + "/?cmd=" + getThing().getConfiguration().get("port").toString() + ":" + dimmervalue;
+                    result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?cmd=" + config.port + ":" + dimmervalue;
                     logger.info("PWM restored to previous value: {}", result);
-                    sendCommand(result);
-                    updateState(channelUID.getId(), DecimalType.valueOf(Integer.toString(dimmervalue)));
+                    if (sendCommand(result)) {
+                        acknowledgeValue(dimmervalue);
+                    }
+                    updateState(channelUID.getId(), MegaDStates.decimal(dimmervalue));
                 }
             }
         }
     }
 
+    /**
+     * Answers REFRESH from port state table of the controller. If the state is older than allowed,
+     * the table is renewed by a sweep, shared with all REFRESH commands waiting for this controller
+     */
+    private void refreshChannel(String channelId) {
+        MegaDBridgeDeviceHandler bridge = bridgeDeviceHandler;
+        PortChannel kind = PortChannel.of(channelId);
+        if (bridge == null || !kind.fromPortState) {
+            logger.debug("Channel {} will be refreshed by next update", channelId);
+            return;
+        }
+        MegaDPortState portState = bridge.getPortStates().get(config.port);
+        if (portState != null && portState.getAge() <= bridge.getDeviceConfig().refreshMaxAge) {
+            publishPortState(channelId, kind, portState);
+        } else {
+            bridge.sweepPortStates().thenAccept(table -> {
+                MegaDPortState swept = table.get(config.port);
+                if (swept != null) {
+                    publishPortState(channelId, kind, swept);
+                }
+            });
+        }
+    }
+
+    private void publishPortState(String channelId, PortChannel kind, MegaDPortState portState) {
+        switch (kind) {
+            case IN:
+            case OUT:
+                if (portState.onOff != MegaDPortState.Switch.UNDEF) {
+                    updateStateIfChanged(channelId, OnOffType.from(portState.onOff == MegaDPortState.Switch.ON));
+                }
+                break;
+            case CONTACT:
+                if (portState.onOff == MegaDPortState.Switch.ON) {
+                    updateStateIfChanged(channelId, OpenClosedType.CLOSED);
+                } else if (portState.onOff == MegaDPortState.Switch.OFF) {
+                    updateStateIfChanged(channelId, OpenClosedType.OPEN);
+                }
+                break;
+            case INCOUNT:
+                if (portState.counter != MegaDPortState.NO_VALUE) {
+                    updateStateIfChanged(channelId, MegaDStates.decimal(portState.counter));
+                }
+                break;
+            case DIMMER:
+                if (portState.value != MegaDPortState.NO_VALUE) {
+                    updateStateIfChanged(channelId, dimmerTable.toPercent(portState.value));
+                }
+                break;
+            case PWM:
+            case ADC:
+                if (portState.value != MegaDPortState.NO_VALUE) {
+                    updateStateIfChanged(channelId, MegaDStates.decimal(portState.value));
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
     @SuppressWarnings("null")
     @Override
     public void initialize() {
+        config = new MegaDPortConfiguration(getThing().getConfiguration());
+        dimmerTable = new MegaDDimmerTable(255, config.minPwm);
         bridgeDeviceHandler = getBridgeHandler();
-        if (bridgeDeviceHandler != null) {
-            registerMegadPortsListener(bridgeDeviceHandler);
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDeviceHandler;
+        if (deviceHandler != null) {
+            registerMegadPortsListener(deviceHandler);
+            stateCache.setHeartbeat(deviceHandler::getHeartbeat);
         } else {
             logger.debug("Can't register {} at bridge. BridgeHandler is null.", this.getThing().getUID());
         }
-        String[] rr = { getThing().getConfiguration().get("refresh").toString() };// .split("[.]");
-        logger.debug("Thing {}, refresh interval is {} sec", getThing().getUID().toString(), rr[0]);
-        float msec = Float.parseFloat(rr[0]);
-        int pollingPeriod = (int) (msec * 1000);
+        rebuildLinkedChannels();
+        int pollingPeriod = config.refresh;
+        logger.debug("Thing {}, refresh interval is {} msec", getThing().getUID().toString(), pollingPeriod);
         if (refreshPollingJob == null || refreshPollingJob.isCancelled()) {
             refreshPollingJob = scheduler.scheduleWithFixedDelay(new Runnable() {
                 @Override
@@ -211,32 +276,29 @@ public class MegaDPortsHandler extends BaseThingHandler {
         if (startup) {
             int counter = 0;
             if (bridgeDeviceHandler != null) {
-                while ((bridgeDeviceHandler
-                        .getPortsvalues(getThing().getConfiguration().get("port").toString())[2] == null)
-                        && (counter != 300)) {
-                    String[] portStatus = bridgeDeviceHandler
-                            .getPortsvalues(getThing().getConfiguration().get("port").toString());
+                MegaDPortState portState = bridgeDeviceHandler.getPortStates().get(config.port);
+                while (portState == null && counter != 300) {
                     try {
                         Thread.sleep(100);
                     } catch (InterruptedException e) {
                         logger.error("{}", e.getMessage());
                     }
                     logger.debug("waiting for value");
-                    logger.debug("Port status of {} at startup is {}", getThing().getUID().toString(), portStatus);
+                    portState = bridgeDeviceHandler.getPortStates().get(config.port);
                     counter++;
                 }
-                String[] portStatus = bridgeDeviceHandler
-                        .getPortsvalues(getThing().getConfiguration().get("port").toString());
-                logger.debug("Port status of {} at startup is {}", getThing().getUID().toString(), portStatus);
-                assert portStatus[2] != null;
-                try {
-                    if (portStatus[2].contains("ON")) {
-                        updateValues(portStatus, OnOffType.ON);
-                    } else {
-                        updateValues(portStatus, OnOffType.OFF);
+                if (portState != null) {
+                    logger.debug("Port status of {} at startup is {}", getThing().getUID().toString(), portState.raw);
+                    String[] portStatus = { "", "pt", portState.raw, "", "" };
+                    try {
+                        if (portState.raw.contains("ON")) {
+                            updateValues(portStatus, OnOffType.ON);
+                        } else {
+                            updateValues(portStatus, OnOffType.OFF);
+                        }
+                    } catch (Exception e) {
+                        logger.debug("cannot set value for thing {}", getThing().getUID().toString());
                     }
-                } catch (Exception e) {
-                    logger.debug("cannot set value for thing {}", getThing().getUID().toString());
                 }
             }
 
@@ -279,120 +341,99 @@ public class MegaDPortsHandler extends BaseThingHandler {
     @SuppressWarnings({ "null" })
     protected void updateData() {
         logger.debug("Updating Megadevice thing {}...", getThing().getUID().toString());
-        String result = "http://" + getBridgeHandler().getThing().getConfiguration().get("hostname").toString() + "/"
-                + getBridgeHandler().getThing().getConfiguration().get("password").toString() + "/?pt="
-                + getThing().getConfiguration().get("port").toString() + "&cmd=get";
+        String result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?pt=" + config.port + "&cmd=get";
         String updateRequest = MegaHttpHelpers.sendRequest(result);
+        if (!updateRequest.isEmpty()) {
+            bridgeDeviceHandler.getPortStates().update(config.port, updateRequest);
+        }
 
-        for (Channel channel : getThing().getChannels()) {
-            if (isLinked(channel.getUID().getId())) {
-                if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_ST)) {
+        for (LinkedChannel channel : linkedChannels) {
+            switch (channel.kind) {
+                case ST:
                     return;
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_IN)) {
+                case IN:
+                case OUT:
                     if (updateRequest.contains("ON")) {
-                        updateState(channel.getUID().getId(), OnOffType.ON);
+                        updateStateIfChanged(channel.id, OnOffType.ON);
                     } else if (updateRequest.contains("OFF")) {
-                        updateState(channel.getUID().getId(), OnOffType.OFF);
+                        updateStateIfChanged(channel.id, OnOffType.OFF);
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_INCOUNT)) {
+                    break;
+                case INCOUNT:
                     String[] value = updateRequest.split("[/]");
-                    for (int i = 0; i < value.length; i++) {
-
-                        logger.debug("{} - {}", i, value[i]);
-                    }
                     try {
                         if (value.length == 2) {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value[1]));
+                            updateStateIfChanged(channel.id, DecimalType.valueOf(value[1]));
                         } else if (value.length == 3) {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value[2]));
+                            updateStateIfChanged(channel.id, DecimalType.valueOf(value[2]));
                         }
                     } catch (Exception ex) {
                         logger.debug("this is not inputs count!");
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_OUT)) {
+                    break;
+                case CONTACT:
                     if (updateRequest.contains("ON")) {
-                        updateState(channel.getUID().getId(), OnOffType.ON);
+                        updateStateIfChanged(channel.id, OpenClosedType.CLOSED);
                     } else if (updateRequest.contains("OFF")) {
-                        updateState(channel.getUID().getId(), OnOffType.OFF);
+                        updateStateIfChanged(channel.id, OpenClosedType.OPEN);
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_CONTACT)) {
-                    if (updateRequest.contains("ON")) {
-                        updateState(channel.getUID().getId(), OpenClosedType.CLOSED);
-                    } else if (updateRequest.contains("OFF")) {
-                        updateState(channel.getUID().getId(), OpenClosedType.OPEN);
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_DIMMER)) {
+                    break;
+                case DIMMER:
                     if ("0".equals(updateRequest)) {
                         logger.debug("dimmer value is 0, do not save dimmer value");
-                        updateState(channel.getUID().getId(), PercentType.valueOf(Integer.toString(0)));
+                        updateStateIfChanged(channel.id, PercentType.ZERO);
                         return;
-                    } else {
-                        try {
-                            dimmervalue = Integer.parseInt(updateRequest);
-                        } catch (Exception ignored) {
-                        }
                     }
-                    int percent = 0;
                     try {
-                        int minval = Integer.parseInt(getThing().getConfiguration().get("min_pwm").toString());
-                        if (minval != 0) {
-                            int realval = (Integer.parseInt(updateRequest) - minval);// * 0.01;
-                            double divVal = (255 - minval) * 0.01;
-                            percent = (int) Math.round(realval / divVal);
-                        } else {
-                            percent = (int) Math.round(Integer.parseInt(updateRequest) / 2.55);
-                        }
-                    } catch (Exception ex) {
+                        dimmervalue = Integer.parseInt(updateRequest);
+                        updateStateIfChanged(channel.id, dimmerTable.toPercent(dimmervalue));
+                    } catch (NumberFormatException e) {
                         logger.debug("Cannot convert to dimmer values string: '{}'", updateRequest);
                     }
-                    updateState(channel.getUID().getId(), PercentType.valueOf(Integer.toString(percent)));
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_PWM)) {
+                    break;
+                case PWM:
                     try {
-                        updateState(channel.getUID().getId(),
-                                PercentType.valueOf(Integer.toString(Integer.parseInt(updateRequest))));
-                    } catch (Exception e) {
+                        updateStateIfChanged(channel.id, MegaDStates.decimal(Integer.parseInt(updateRequest)));
+                    } catch (NumberFormatException e) {
                         logger.debug("Cannot update PWM value");
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_TGET)) {
+                    break;
+                case TGET:
                     try {
-                        String tempresult = "   http://"
-                                + getBridgeHandler().getThing().getConfiguration().get("hostname").toString() + "/"
-                                + getBridgeHandler().getThing().getConfiguration().get("password").toString()
-                                + "/?tget=1 ";
-                        updateState(channel.getUID().getId(),
-                                DecimalType.valueOf(MegaHttpHelpers.sendRequest(tempresult)));
+                        String tempresult = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?tget=1 ";
+                        updateStateIfChanged(channel.id, DecimalType.valueOf(MegaHttpHelpers.sendRequest(tempresult)));
                     } catch (Exception ex) {
-                        logger.debug("Cannot update TGET value at channel: '{}'", channel.getUID().getId());
+                        logger.debug("Cannot update TGET value at channel: '{}'", channel.id);
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_ADC)) {
+                    break;
+                case ADC:
                     try {
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest));
+                        updateStateIfChanged(channel.id, DecimalType.valueOf(updateRequest));
                     } catch (Exception ex) {
-                        logger.debug("Cannot update ADC value at channel: '{}'", channel.getUID().getId());
+                        logger.debug("Cannot update ADC value at channel: '{}'", channel.id);
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_ONEWIRE)) {
-                    String[] responseParse = updateRequest.split("[:]");
-                    if (responseParse.length > 1) {
-                        logger.debug("{}", responseParse[1]);
-                        if (!("NA".equals(updateRequest))) {
-                            try {
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(responseParse[1]));
-                            } catch (Exception ex) {
-                                logger.debug("Cannot update One wire temperature at channel: '{}'",
-                                        channel.getUID().getId());
-                            }
-                        }
-                    } else {
-                        if (!("NA".equals(updateRequest))) {
-                            try {
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(updateRequest));
-                            } catch (Exception ex) {
-                                logger.debug("Cannot update One wire temperature at channel: '{}'",
-                                        channel.getUID().getId());
+                    break;
+                case ONEWIRE:
+                    if (!("NA".equals(updateRequest))) {
+                        int separator = updateRequest.indexOf(':');
+                        try {
+                            if (separator >= 0) {
+                                int end = updateRequest.indexOf(':', separator + 1);
+                                if (end < 0) {
+                                    end = updateRequest.length();
+                                }
+                                updateStateIfChanged(channel.id,
+                                        DecimalType.valueOf(updateRequest.substring(separator + 1, end)));
+                            } else {
+                                updateStateIfChanged(channel.id, DecimalType.valueOf(updateRequest));
                             }
+                        } catch (Exception ex) {
+                            logger.debug("Cannot update One wire temperature at channel: '{}'", channel.id);
                         }
                     }
-                }
+                    break;
+                default:
+                    break;
             }
         }
     }
@@ -409,56 +450,51 @@ public class MegaDPortsHandler extends BaseThingHandler {
 
     public void updateValues(String[] getCommands, @Nullable OnOffType OnOff) {
         logger.debug("updateValues of thing {}: {},{}", getThing().getUID().toString(), getCommands, OnOff);
-        // logger.debug("getThing() -> {}" ng().getUID().getId());
-        logger.debug("thing {}, active Channels is -> {}", getThing().getUID().toString(),
-                getActiveChannelListAsString());
-        int counter = 0;
-        while ((getActiveChannelListAsString() == null) && (counter != 10)) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                logger.error("{}", e.getMessage());
-            }
-            counter++;
-            logger.warn("thing {} has no active channels ", getThing().getUID().toString());
+        LinkedChannel[] channels = linkedChannels;
+        if (channels.length == 0) {
+            logger.debug("thing {} has no active channels ", getThing().getUID().toString());
+            return;
         }
 
-        for (Channel channel : getThing().getChannels()) {
-            if (isLinked(channel.getUID().getId())) {
-                if ((channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_IN))
-                        || (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_OUT))) {
+        for (LinkedChannel channel : channels) {
+            switch (channel.kind) {
+                case IN:
+                case OUT:
                     if (OnOff != null) {
-                        updateState(channel.getUID().getId(), OnOff);
-                        if (Boolean.parseBoolean(this.getThing().getConfiguration().get("correction").toString())) {
-                            String result = "http://"
-                                    + getBridgeHandler().getThing().getConfiguration().get("hostname").toString() + "/"
-                                    + getBridgeHandler().getThing().getConfiguration().get("password").toString()
-                                    + "/?pt=" + getThing().getConfiguration().get("port").toString() + "&cmd=get";
+                        updatePushedState(channel.id, OnOff);
+                        if (config.correction) {
+                            String result = bridgeDeviceHandler.getDeviceConfig().baseUrl + "?pt=" + config.port
+                                    + "&cmd=get";
                             try {
                                 String updateRequest = MegaHttpHelpers.sendRequest(result);
-                                updateState(channel.getUID().getId(), OnOffType.valueOf(updateRequest));
+                                if (!updateRequest.isEmpty()) {
+                                    bridgeDeviceHandler.getPortStates().update(config.port, updateRequest);
+                                }
+                                updatePushedState(channel.id, OnOffType.valueOf(updateRequest));
                             } catch (Exception ex) {
                                 logger.debug("connect error");
                             }
                         } else {
-                            updateState(channel.getUID().getId(), OnOff);
+                            updatePushedState(channel.id, OnOff);
                         }
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_M2)) {
+                    break;
+                case M2:
                     try {
                         if (getCommands[3].equals("2") && getCommands[2].equals("m")) {
-                            updateState(channel.getUID().getId(), OnOffType.ON);
+                            updateState(channel.id, OnOffType.ON);
                         } else if (OnOff == OnOffType.OFF) {
-                            updateState(channel.getUID().getId(), OnOffType.OFF);
+                            updateState(channel.id, OnOffType.OFF);
                         }
                     } catch (Exception e) {
                         logger.debug(" Not m2 signal {}", e.getLocalizedMessage());
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_CLICK)) {
+                    break;
+                case CLICK:
                     try {
                         if (getCommands[2].equals("click")) {
                             try {
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[3]));
+                                updateState(channel.id, MegaDStates.decimal(Integer.parseInt(getCommands[3])));
                             } catch (Exception ex) {
                                 logger.debug(" Cannot update click {}", ex.getLocalizedMessage());
                             }
@@ -466,114 +502,142 @@ public class MegaDPortsHandler extends BaseThingHandler {
                     } catch (Exception ex) {
                         logger.debug(" Cannot update click {}", ex.getLocalizedMessage());
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_DIMMER)) {
+                    break;
+                case DIMMER:
                     if (!getCommands[0].equals("st")) {
                         try {
                             if (getCommands[2].equals("0")) {
                                 logger.debug("dimmer value is 0, do not save dimmer value");
-                                updateState(channel.getUID().getId(), PercentType.valueOf(Integer.toString(0)));
+                                updatePushedState(channel.id, PercentType.ZERO);
                                 return;
                             } else {
                                 dimmervalue = Integer.parseInt(getCommands[2]);
                             }
                         } catch (Exception ignored) {
                         }
-
-                        int percent = 0;
-                        try {
-                            int minval = Integer.parseInt(getThing().getConfiguration().get("min_pwm").toString());
-                            if (minval != 0) {
-                                if (minval == dimmervalue) {
-                                    percent = 1;
-                                } else {
-                                    int realval = (dimmervalue - minval);// * 0.01;
-                                    double divVal = (255 - minval) * 0.01;
-                                    percent = (int) Math.round(realval / divVal);
-                                }
-                            } else {
-                                percent = (int) Math.round(dimmervalue / 2.55);
-                            }
-                        } catch (Exception ex) {
-                            logger.debug("Cannot convert to dimmer values. Error: '{}'", ex.toString());
-                        }
-                        updateState(channel.getUID().getId(), PercentType.valueOf(Integer.toString(percent)));
+                        updatePushedState(channel.id, dimmerTable.toPercent(dimmervalue));
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_PWM)) {
+                    break;
+                case PWM:
                     if (!getCommands[0].equals("st")) {
                         try {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[2]));
+                            updatePushedState(channel.id, MegaDStates.decimal(Integer.parseInt(getCommands[2])));
                         } catch (Exception ignored) {
                         }
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_IB)) {
-                    try {
-                        updateState(channel.getUID().getId(), StringType.valueOf(getCommands[3]));
-                    } catch (Exception ignored) {
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_WIEGAND)) {
+                    break;
+                case IB:
+                case WIEGAND:
                     try {
-                        updateState(channel.getUID().getId(), StringType.valueOf(getCommands[3]));
+                        updateState(channel.id, StringType.valueOf(getCommands[3]));
                     } catch (Exception ignored) {
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_AT)) {
+                    break;
+                case AT:
                     try {
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[2]));
+                        updatePushedState(channel.id, DecimalType.valueOf(getCommands[2]));
                     } catch (Exception ignored) {
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_ADC)) {
+                    break;
+                case ADC:
                     try {
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[3]));
+                        updatePushedState(channel.id, DecimalType.valueOf(getCommands[3]));
                     } catch (Exception ex) {
                         try {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[2]));
+                            updatePushedState(channel.id, DecimalType.valueOf(getCommands[2]));
                         } catch (Exception ignored) {
                         }
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_INCOUNT)) {
+                    break;
+                case INCOUNT:
                     try {
                         if (getCommands[2].equals("cnt")) {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[3]));
+                            updatePushedState(channel.id, DecimalType.valueOf(getCommands[3]));
                         } else if (getCommands[4].equals("cnt")) {
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[5]));
+                            updatePushedState(channel.id, DecimalType.valueOf(getCommands[5]));
                         } else if (getCommands[2].contains("/")) {
                             String[] cnt = getCommands[2].split("/");
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(cnt[1]));
+                            updatePushedState(channel.id, DecimalType.valueOf(cnt[1]));
                         }
                     } catch (Exception ex) {
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_ONEWIRE)) {
+                    break;
+                case ONEWIRE:
                     logger.debug("Does not accept incoming values");
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_SMS_PHONE)) {
+                    break;
+                case SMS_PHONE:
                     try {
-                        updateState(channel.getUID().getId(), StringType.valueOf(getCommands[1]));
+                        updateState(channel.id, StringType.valueOf(getCommands[1]));
                     } catch (Exception ex) {
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_SMS_TEXT)) {
+                    break;
+                case SMS_TEXT:
                     try {
-                        updateState(channel.getUID().getId(), StringType.valueOf(getCommands[3]));
+                        updateState(channel.id, StringType.valueOf(getCommands[3]));
                     } catch (Exception ex) {
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_CONTACT)) {
-                    if (OnOff != null) {
-                        if (OnOff.name().equals("ON")) {
-                            updateState(channel.getUID().getId(), OpenClosedType.CLOSED);
-                        } else if (OnOff.name().equals("OFF")) {
-                            updateState(channel.getUID().getId(), OpenClosedType.OPEN);
-                        }
+                    break;
+                case CONTACT:
+                    if (OnOff == OnOffType.ON) {
+                        updatePushedState(channel.id, OpenClosedType.CLOSED);
+                    } else if (OnOff == OnOffType.OFF) {
+                        updatePushedState(channel.id, OpenClosedType.OPEN);
                     }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_ST)) {
+                    break;
+                case ST:
                     try {
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[1]));
+                        updateState(channel.id, DecimalType.valueOf(getCommands[1]));
                     } catch (Exception ex) {
                     }
-                } else {
+                    break;
+                default:
                     try {
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(getCommands[4]));
+                        updateState(channel.id, DecimalType.valueOf(getCommands[4]));
                     } catch (Exception ex) {
                     }
-                }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Publishes state of port event even if it is unchanged, a repeated press or contact report is an update too
+     */
+    private void updatePushedState(String channelId, State state) {
+        stateCache.record(channelId, state);
+        updateState(channelId, state);
+    }
+
+    private void updateStateIfChanged(String channelId, State state) {
+        if (stateCache.isChanged(channelId, state)) {
+            updateState(channelId, state);
+        }
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        stateCache.invalidate(channelUID.getId());
+        super.channelLinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    private void rebuildLinkedChannels() {
+        List<LinkedChannel> channels = new ArrayList<>();
+        for (Channel channel : getThing().getChannels()) {
+            String id = channel.getUID().getId();
+            if (isLinked(id)) {
+                channels.add(new LinkedChannel(id, PortChannel.of(id)));
             }
         }
+        linkedChannels = channels.toArray(new LinkedChannel[0]);
+        logger.debug("thing {}, active Channels is -> {}", getThing().getUID().toString(),
+                getActiveChannelListAsString());
     }
 
     @SuppressWarnings("null")
@@ -586,11 +650,20 @@ public class MegaDPortsHandler extends BaseThingHandler {
         if (bridgeDeviceHandler != null) {
             bridgeDeviceHandler.unregisterMegaDPortsListener(this);
         }
+        stateCache.clear();
         super.dispose();
     }
 
     @SuppressWarnings("null")
-    public void sendCommand(String Result) {
+    private void acknowledgeValue(int value) {
+        bridgeDeviceHandler.getPortStates().update(config.port, Integer.toString(value));
+    }
+
+    /**
+     * @return true if the controller accepted the command
+     */
+    @SuppressWarnings("null")
+    public boolean sendCommand(String Result) {
         HttpURLConnection con;
 
         URL megaURL;
@@ -604,37 +677,93 @@ public class MegaDPortsHandler extends BaseThingHandler {
 
             // add request header
             con.setRequestProperty("User-Agent", "Mozilla/5.0");
-            if (con.getResponseCode() == 200) {
+            boolean accepted = con.getResponseCode() == 200;
+            if (accepted) {
                 logger.debug("OK");
             }
             con.disconnect();
+            return accepted;
         } catch (MalformedURLException e) {
             logger.error("{}", e.getLocalizedMessage());
         } catch (ProtocolException e) {
             logger.error("{}", e.getLocalizedMessage());
         } catch (IOException e) {
-            logger.error("Connect to megadevice {}  error: {} ",
-                    bridgeDeviceHandler.getThing().getConfiguration().get("hostname").toString(),
+            logger.error("Connect to megadevice {}  error: {} ", bridgeDeviceHandler.getDeviceConfig().hostname,
                     e.getLocalizedMessage());
         }
+        return false;
+    }
+
+    public MegaDPortConfiguration getPortConfig() {
+        return config;
     }
 
     public @Nullable String getActiveChannelListAsString() {
-        String channelList = "";
-        for (Channel channel : getThing().getChannels()) {
-            // logger.debug("Channel ID {}", channel.getUID().getId());
-            if (isLinked(channel.getUID().getId())) {
-                if (channelList.length() > 0) {
-                    channelList = channelList + "," + channel.getUID().getId();
-                } else {
-                    channelList = channel.getUID().getId();
-                }
+        LinkedChannel[] channels = linkedChannels;
+        if (channels.length == 0) {
+            return null;
+        }
+        StringBuilder channelList = new StringBuilder(channels[0].id);
+        for (int i = 1; i < channels.length; i++) {
+            channelList.append(',').append(channels[i].id);
+        }
+        return channelList.toString();
+    }
+
+    /**
+     * Kinds of standard port channels, used to dispatch incoming and polled values without string comparison
+     */
+    private enum PortChannel {
+        IN(MegaDBindingConstants.CHANNEL_IN, true),
+        OUT(MegaDBindingConstants.CHANNEL_OUT, true),
+        INCOUNT(MegaDBindingConstants.CHANNEL_INCOUNT, true),
+        M2(MegaDBindingConstants.CHANNEL_M2, false),
+        CLICK(MegaDBindingConstants.CHANNEL_CLICK, false),
+        DIMMER(MegaDBindingConstants.CHANNEL_DIMMER, true),
+        PWM(MegaDBindingConstants.CHANNEL_PWM, true),
+        IB(MegaDBindingConstants.CHANNEL_IB, false),
+        WIEGAND(MegaDBindingConstants.CHANNEL_WIEGAND, false),
+        AT(MegaDBindingConstants.CHANNEL_AT, false),
+        ADC(MegaDBindingConstants.CHANNEL_ADC, true),
+        ONEWIRE(MegaDBindingConstants.CHANNEL_ONEWIRE, false),
+        SMS_PHONE(MegaDBindingConstants.CHANNEL_SMS_PHONE, false),
+        SMS_TEXT(MegaDBindingConstants.CHANNEL_SMS_TEXT, false),
+        CONTACT(MegaDBindingConstants.CHANNEL_CONTACT, true),
+        ST(MegaDBindingConstants.CHANNEL_ST, false),
+        TGET(MegaDBindingConstants.CHANNEL_TGET, false),
+        OTHER("", false);
+
+        private static final Map<String, PortChannel> BY_ID = new HashMap<>();
+        static {
+            for (PortChannel kind : values()) {
+                BY_ID.put(kind.id, kind);
             }
         }
-        if ("".equals(channelList)) {
-            return null;
-        } else {
-            return channelList;
+
+        private final String id;
+        /**
+         * Channel value can be taken from port state, reported by cmd=all
+         */
+        private final boolean fromPortState;
+
+        PortChannel(String id, boolean fromPortState) {
+            this.id = id;
+            this.fromPortState = fromPortState;
+        }
+
+        static PortChannel of(String id) {
+            PortChannel kind = BY_ID.get(id);
+            return kind != null ? kind : OTHER;
+        }
+    }
+
+    private static class LinkedChannel {
+        final String id;
+        final PortChannel kind;
+
+        LinkedChannel(String id, PortChannel kind) {
+            this.id = id;
+            this.kind = kind;
         }
     }
 }
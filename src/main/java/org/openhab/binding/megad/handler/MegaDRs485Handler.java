@@ -12,29 +12,36 @@
  */
 package org.openhab.binding.megad.handler;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ScheduledFuture;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
-import org.openhab.binding.megad.MegaDBindingConstants;
+import org.openhab.binding.megad.MegaDRs485Configuration;
+import org.openhab.binding.megad.internal.MegaDMeterQuantity;
+import org.openhab.binding.megad.internal.MegaDModbusProfile;
+import org.openhab.binding.megad.internal.MegaDModbusProfileMeter;
 import org.openhab.binding.megad.internal.MegaDRS485Interface;
 import org.openhab.binding.megad.internal.MegaDSdm120;
+import org.openhab.binding.megad.internal.MegaDStateCache;
 import org.openhab.binding.megad.internal.MegaDWBMAP6S;
 import org.openhab.binding.megad.internal.MegadDD238;
 import org.openhab.binding.megad.internal.MegadMideaProtocol;
 import org.openhab.binding.megad.internal.ModbusPowermeterInterface;
-import org.openhab.core.library.types.DecimalType;
-import org.openhab.core.library.types.StringType;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
+import org.openhab.core.thing.ThingStatusDetail;
 import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.thing.binding.builder.ThingBuilder;
 import org.openhab.core.types.Command;
+import org.openhab.core.types.RefreshType;
+import org.openhab.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,64 +64,88 @@ public class MegaDRs485Handler extends BaseThingHandler {
     @Nullable
     ModbusPowermeterInterface modbus;
     int powerLines;
+    private final MegaDStateCache stateCache = new MegaDStateCache();
+    private volatile LinkedChannel[] linkedChannels = new LinkedChannel[0];
+
+    private volatile MegaDRs485Configuration config;
 
     public MegaDRs485Handler(Thing thing) {
         super(thing);
+        config = new MegaDRs485Configuration(thing.getConfiguration());
 
         bridgeDeviceHandler = null;
     }
 
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
-        if (getBridgeHandler() != null) {
-            if (rsi != null) {
-                rsi.setValuesToRS485(getBridgeHandler(), channelUID.getId(), command.toString().split(" ")[0]);
-            }
+        String channelId = channelUID.getId();
+        stateCache.invalidate(channelId);
+        MegaDRS485Interface device = rsi;
+        if (device == null) {
+            return;
+        }
+        if (!(command instanceof RefreshType)) {
+            device.setValuesToRS485(getBridgeHandler(), channelId, command.toString().split(" ")[0]);
         }
-        try {
-            Thread.sleep(200);
-        } catch (InterruptedException ignored) {
+        State state = device.getState(channelId);
+        if (state != null) {
+            updateStateIfChanged(channelId, state);
         }
-        updateData();
     }
 
     @Override
     public void initialize() {
+        config = new MegaDRs485Configuration(getThing().getConfiguration());
+        // profile is checked before the handler takes its rs485 address at the bridge
+        MegaDModbusProfile profile = null;
+        if ("modbus-profile".equals(config.type)) {
+            try {
+                profile = MegaDModbusProfile.load(config.profile);
+            } catch (IllegalArgumentException e) {
+                bridgeDeviceHandler = null;
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, e.getMessage());
+                return;
+            }
+        }
         bridgeDeviceHandler = getBridgeHandler();
         logger.debug("Thing Handler for {} started", getThing().getUID().getId());
 
-        if (bridgeDeviceHandler != null) {
-            registerMegaRs485Listener(bridgeDeviceHandler);
+        MegaDBridgeDeviceHandler deviceHandler = bridgeDeviceHandler;
+        if (deviceHandler != null) {
+            registerMegaRs485Listener(deviceHandler);
+            stateCache.setHeartbeat(deviceHandler::getHeartbeat);
         } else {
             logger.debug("Can't register {} at bridge. BridgeHandler is null.", this.getThing().getUID());
         }
 
-        String address = "";
-        if (getThing().getConfiguration().get("address").toString().length() == 1) {
-            address = "0" + getThing().getConfiguration().get("address").toString();
-        } else {
-            address = getThing().getConfiguration().get("address").toString();
-        }
+        String address = config.address;
 
-        if (getThing().getConfiguration().get("type").toString().equals("midea")) {
+        if ("midea".equals(config.type)) {
             rsi = new MegadMideaProtocol(address);
             ThingBuilder thingBuilder = editThing();
             thingBuilder.withChannels(rsi.getChannelsList(getThing()));
             updateThing(thingBuilder.build());
         }
-        if (getThing().getConfiguration().get("type").toString().equals("dds238")) {
+        if ("dds238".equals(config.type)) {
             modbus = new MegadDD238(getBridgeHandler(), address);
             ThingBuilder thingBuilder = editThing();
             thingBuilder.withChannels(modbus.getChannelsList(getThing()));
             updateThing(thingBuilder.build());
         }
-        if (getThing().getConfiguration().get("type").toString().equals("sdm120")) {
+        if ("sdm120".equals(config.type)) {
             modbus = new MegaDSdm120(getBridgeHandler(), address);
             ThingBuilder thingBuilder = editThing();
             thingBuilder.withChannels(modbus.getChannelsList(getThing()));
             updateThing(thingBuilder.build());
         }
-        if (getThing().getConfiguration().get("type").toString().equals("wbmap6s")) {
+        if (profile != null) {
+            MegaDModbusProfileMeter meter = new MegaDModbusProfileMeter(getBridgeHandler(), address, profile);
+            modbus = meter;
+            ThingBuilder thingBuilder = editThing();
+            thingBuilder.withChannels(meter.getChannelsList(getThing()));
+            updateThing(thingBuilder.build());
+        }
+        if ("wbmap6s".equals(config.type)) {
             powerLines = 6;
             modbus = new MegaDWBMAP6S(getBridgeHandler(), address);
             ThingBuilder thingBuilder = editThing();
@@ -122,6 +153,8 @@ public class MegaDRs485Handler extends BaseThingHandler {
             updateThing(thingBuilder.build());
         }
 
+        rebuildLinkedChannels();
+
         // String[] rr = { getThing().getConfiguration().get("refresh").toString() };// .split("[.]");
         // logger.debug("Thing {}, refresh interval is {} sec", getThing().getUID().toString(), rr[0]);
         // float msec = Float.parseFloat(rr[0]);
@@ -149,315 +182,31 @@ public class MegaDRs485Handler extends BaseThingHandler {
     // }
 
     protected void updateData() {
-        String[] values = {};
-        if (getThing().getConfiguration().get("type").equals("dds238")) {
-            if (modbus != null) {
-                modbus.updateValues();
-            }
+        ModbusPowermeterInterface meter = modbus;
+        if (meter != null) {
+            meter.updateValues();
         }
         logger.debug("Updating Megadevice thing {}...", getThing().getUID().toString());
-        for (Channel channel : getThing().getChannels()) {
-            if (isLinked(channel.getUID().getId())) {
-                String grp = channel.getUID().getGroupId();
-                if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_CURRENT)) {
-                    @Nullable
-                    String value = null;
-                    try {
-                        if (modbus != null) {
-                            value = modbus.getCurrent(Integer.parseInt(channel.getUID().getGroupId().substring(4)));
-                            logger.debug("Current is {} A at line {}", value, channel.getUID().getId());
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                        }
-                    } catch (Exception ignored) {
-                    }
-                }
-                if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_VOLTAGE)) {
-                    @Nullable
-                    String value = null;
-                    try {
-                        if (modbus != null) {
-                            value = modbus.getVoltage();
-                            logger.debug("Voltage is : {}", value);
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                        }
-                    } catch (Exception ignored) {
-                    }
-                } else if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_ACTIVEPOWER)) {
-                    @Nullable
-                    String value = null;
-                    try {
-                        if (modbus != null) {
-                            value = modbus.getActivePower(Integer.parseInt(channel.getUID().getGroupId().substring(4)));
-                            logger.debug("Active power is : {}", value);
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                        }
-                    } catch (Exception ignored) {
-                    }
-                } else if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_APPARENTPOWER)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getApparentPower(Integer.parseInt(channel.getUID().getGroupId().substring(4)));
-                        logger.debug("Apparent power is : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_REACTIVEPOWER)) {
-                    @Nullable
-                    String value = null;
-                    try {
-                        if (modbus != null) {
-                            value = modbus
-                                    .getReactivePower(Integer.parseInt(channel.getUID().getGroupId().substring(4)));
-                            logger.debug("Reactive power is : {}", value);
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                        }
-                    } catch (Exception ignored) {
-                    }
-                } else if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_POWERFACTOR)) {
-                    @Nullable
-                    String value = null;
-                    try {
-                        if (modbus != null) {
-                            value = modbus.getPowerFactor(Integer.parseInt(channel.getUID().getGroupId().substring(4)));
-                            logger.debug("Power factor is : {}", value);
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                        }
-                    } catch (Exception ignored) {
-                    }
-                } else if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_PHASEANGLE)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getPhaseAngle(Integer.parseInt(channel.getUID().getGroupId().substring(4)));
-                        logger.debug("Phase angle is : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_FREQUENCY)) {
-                    @Nullable
-                    String value = null;
-                    try {
-                        if (modbus != null) {
-                            value = modbus.getFrequency();
-                            logger.debug("Frequency is : {}", value);
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                        }
-                    } catch (Exception ignored) {
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_IMPORTACTNRG)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getImportActiveEnergy();
-                        logger.debug("Import active energy: {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_EXPORTACTNRG)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getExportActiveEnergy();
-                        logger.debug("Export active energy : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_IMPORTREACTNRG)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getImportReactiveEnergy();
-                        logger.debug("Import reactive energy : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_EXPORTREACTNRG)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getExportReactiveEnergy();
-                        logger.debug("Export reactive energy : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_TOTALSYSPWRDMD)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getTotalSystemPowerDemand();
-                        logger.debug("Total system power demand : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MAXTOTALSYSPWRDMD)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getMaxTotalSystemPowerDemand();
-                        logger.debug("Max total system power demand : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_IMPORTSYSPWRDMD)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getImportSystemPowerDemand();
-                        logger.debug("Import system power demand : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MAXIMPORTSYSPWRDMD)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getMaxImportSystemPowerDemand();
-                        logger.debug("Max import system power demand : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_EXPORTSYSPWRDMD)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getExportSystemPowerDemand();
-                        logger.debug("Export system power demand : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MAXEXPORTSYSPWRDMD)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getMaxExportSystemPowerDemand();
-                        logger.debug("Max export system power demand : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_CURRENTDMD)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getCurrentDemand();
-                        logger.debug("Current demand : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MAXCURRENTDMD)) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getMaxCurrentDemand();
-                        logger.debug("Max current demand : {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_TOTALACTNRG)) {
-                    @Nullable
-                    String value = null;
-                    try {
-                        if (modbus != null) {
-                            value = modbus.getTotalActiveEnergy();
-                            logger.debug("Total active energy: {}", value);
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                        }
-                    } catch (Exception ignored) {
-                    }
-                } else if (channel.getUID().getId()
-                        .equals(channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_ACTIVEENERGY)) {
-                    @Nullable
-                    String value = null;
-                    try {
-                        if (modbus != null) {
-                            value = modbus
-                                    .getActiveEnergy(Integer.parseInt(channel.getUID().getGroupId().substring(4)));
-                            logger.debug("Total active energy: {}", value);
-                            updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                        }
-                    } catch (Exception ignored) {
-                    }
-                } else if ((channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_TOTALREACTNRG))
-                        || (channel.getUID().getId().equals(
-                                channel.getUID().getGroupId() + "#" + MegaDBindingConstants.CHANNEL_REACTIVEENERGY))) {
-                    @Nullable
-                    String value = null;
-                    if (modbus != null) {
-                        value = modbus.getTotalReactiveActiveEnergy(
-                                Integer.parseInt(channel.getUID().getGroupId().substring(4)));
-                        logger.debug("Total reactive energy: {}", value);
-                        updateState(channel.getUID().getId(), DecimalType.valueOf(value));
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MIDEAOPERMODE)) {
-                    if (rsi != null) {
-                        String[] answer = rsi.getValueFromRS485(getBridgeHandler());
-                        if (answer.length == 32) {
-                            String mode = "";
-                            switch (answer[8]) {
-                                case "00":
-                                    mode = "OFF";
-                                    break;
-                                case "98":
-                                    mode = "AUTO";
-                                    break;
-                                case "88":
-                                    mode = "COOL";
-                                    break;
-                                case "82":
-                                    mode = "DRY";
-                                    break;
-                                case "84":
-                                    mode = "HEAT";
-                                    break;
-                                case "81":
-                                    mode = "FAN";
-                                    break;
-                            }
-                            logger.debug("Midea mode is : {}", mode);
-                            updateState(channel.getUID().getId(), StringType.valueOf(mode));
-                        } else {
-                            logger.debug("Answer != 32 bytes <{}>", (Object) answer);
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MIDEAFANMODE)) {
-                    if (rsi != null) {
-                        String[] answer = rsi.getValueFromRS485(getBridgeHandler());
-                        if (answer.length == 32) {
-                            String mode = "";
-                            switch (answer[9]) {
-                                case "00":
-                                    mode = "OFF";
-                                    break;
-                                case "84":
-                                    mode = "AUTO";
-                                    break;
-                                case "01":
-                                    mode = "HIGH";
-                                    break;
-                                case "02":
-                                    mode = "MEDIUM";
-                                    break;
-                                case "04":
-                                    mode = "LOW";
-                                    break;
-                            }
-                            logger.debug("Midea fan mode is : {}", mode);
-                            updateState(channel.getUID().getId(), StringType.valueOf(mode));
-                        } else {
-                            logger.debug("Answer != 32 bytes <{}>", (Object) answer);
-                        }
-                    }
-                } else if (channel.getUID().getId().equals(MegaDBindingConstants.CHANNEL_MIDEATEMP)) {
-                    if (rsi != null) {
-                        String[] answer = rsi.getValueFromRS485(getBridgeHandler());
-                        if (answer.length == 32) {
-                            try {
-                                int n = (int) Long.parseLong(answer[10], 16);
-                                logger.debug("Midea temperature is : {}, hex {}", n, answer[10]);
-                                updateState(channel.getUID().getId(), DecimalType.valueOf(String.valueOf(n)));
-                            } catch (Exception ignored) {
-                            }
-                        } else {
-                            logger.debug("Answer != 32 bytes <{}>", (Object) answer);
-                        }
-                    }
+        MegaDRS485Interface device = rsi;
+        LinkedChannel[] channels = linkedChannels;
+        if (device != null) {
+            device.updateValues(getBridgeHandler());
+            for (LinkedChannel channel : channels) {
+                State state = device.getState(channel.id);
+                if (state != null) {
+                    updateStateIfChanged(channel.id, state);
                 }
             }
+            return;
+        }
+        if (meter == null) {
+            return;
+        }
+        for (LinkedChannel channel : channels) {
+            MegaDMeterQuantity quantity = channel.quantity;
+            if (quantity != null && meter.isValid(quantity, channel.line)) {
+                updateStateIfChanged(channel.id, quantity.toState(meter.getValue(quantity, channel.line)));
+            }
         }
     }
 
@@ -482,6 +231,47 @@ public class MegaDRs485Handler extends BaseThingHandler {
         }
     }
 
+    private void updateStateIfChanged(String channelId, State state) {
+        if (stateCache.isChanged(channelId, state)) {
+            updateState(channelId, state);
+        }
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        stateCache.invalidate(channelUID.getId());
+        super.channelLinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        rebuildLinkedChannels();
+    }
+
+    /**
+     * Resolves linked channels once per link change, so polling does not look up channels and quantities
+     */
+    private void rebuildLinkedChannels() {
+        List<LinkedChannel> channels = new ArrayList<>();
+        List<String> linked = new ArrayList<>();
+        for (Channel channel : getThing().getChannels()) {
+            ChannelUID channelUID = channel.getUID();
+            if (isLinked(channelUID)) {
+                channels.add(new LinkedChannel(channelUID.getId(),
+                        MegaDMeterQuantity.fromChannel(channelUID.getIdWithoutGroup()),
+                        MegaDMeterQuantity.lineOf(channelUID.getGroupId())));
+                linked.add(channelUID.getId());
+            }
+        }
+        linkedChannels = channels.toArray(new LinkedChannel[0]);
+        ModbusPowermeterInterface meter = modbus;
+        if (meter != null) {
+            meter.setLinkedChannels(linked);
+        }
+    }
+
     @Override
     public void dispose() {
         if (refreshPollingJob != null && !refreshPollingJob.isCancelled()) {
@@ -491,6 +281,7 @@ public class MegaDRs485Handler extends BaseThingHandler {
         if (bridgeDeviceHandler != null) {
             bridgeDeviceHandler.unregisterMegadRs485Listener(this);
         }
+        stateCache.clear();
         super.dispose();
     }
 
@@ -507,4 +298,30 @@ public class MegaDRs485Handler extends BaseThingHandler {
     public long getLastRefresh() {
         return this.lastRefresh;
     }
+
+    /**
+     * @return polling period in milliseconds, 0 if polling is disabled
+     */
+    public long getRefreshInterval() {
+        return config.refresh;
+    }
+
+    public MegaDRs485Configuration getRs485Config() {
+        return config;
+    }
+
+    private static class LinkedChannel {
+        final String id;
+        /**
+         * Quantity of meter channel, null for other channels
+         */
+        final @Nullable MegaDMeterQuantity quantity;
+        final int line;
+
+        LinkedChannel(String id, @Nullable MegaDMeterQuantity quantity, int line) {
+            this.id = id;
+            this.quantity = quantity;
+            this.line = line;
+        }
+    }
 }
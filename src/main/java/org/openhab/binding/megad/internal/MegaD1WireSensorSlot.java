@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.math.BigDecimal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+
+/**
+ * The {@link MegaD1WireSensorSlot} keeps the latest values of one 1-wire sensor of a bus.
+ * Temperature is kept in hundredths of degree, DS2413 outputs as switch codes.
+ * Slot is written by the bus and read by the sensor handler that got it at registration
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaD1WireSensorSlot {
+    /**
+     * Value of {@link #getTemperature()} if sensor did not report temperature
+     */
+    public static final int NO_TEMPERATURE = Integer.MIN_VALUE;
+    public static final int SWITCH_UNDEF = 0;
+    public static final int SWITCH_ON = 1;
+    public static final int SWITCH_OFF = 2;
+
+    private final long rom;
+    private final String address;
+    private volatile int temperature = NO_TEMPERATURE;
+    private volatile int switchA = SWITCH_UNDEF;
+    private volatile int switchB = SWITCH_UNDEF;
+    private volatile long timestamp = 0;
+
+    MegaD1WireSensorSlot(long rom, String address) {
+        this.rom = rom;
+        this.address = address;
+    }
+
+    public long getRom() {
+        return rom;
+    }
+
+    /**
+     * @return address of the sensor as the controller reports it
+     */
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * @return temperature in hundredths of degree, {@link #NO_TEMPERATURE} if it was not reported
+     */
+    public int getTemperature() {
+        return temperature;
+    }
+
+    public @Nullable DecimalType getTemperatureState() {
+        int value = temperature;
+        return value == NO_TEMPERATURE ? null : new DecimalType(BigDecimal.valueOf(value, 2));
+    }
+
+    public @Nullable OnOffType getSwitchState(int index) {
+        int value = index == 0 ? switchA : switchB;
+        switch (value) {
+            case SWITCH_ON:
+                return OnOffType.ON;
+            case SWITCH_OFF:
+                return OnOffType.OFF;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return time of the last update in milliseconds, 0 if the sensor was not reported yet
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    void updateTemperature(int value, long time) {
+        temperature = value;
+        timestamp = time;
+    }
+
+    void updateSwitches(int a, int b, long time) {
+        switchA = a;
+        switchB = b;
+        timestamp = time;
+    }
+}
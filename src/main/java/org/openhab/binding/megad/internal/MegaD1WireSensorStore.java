@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link MegaD1WireSensorStore} keeps values of all sensors of one 1-wire bus keyed by 64-bit ROM code.
+ * Answer of cmd=list (address:value pairs separated by ';') is parsed in one pass without creating strings,
+ * values are written to {@link MegaD1WireSensorSlot} objects that live as long as the store
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaD1WireSensorStore {
+    /**
+     * Key of empty cell, ROM code 0 is not valid
+     */
+    private static final long EMPTY = 0;
+    private static final int ROM_DIGITS = 16;
+
+    private long[] keys = new long[64];
+    private @Nullable MegaD1WireSensorSlot[] slots = new MegaD1WireSensorSlot[64];
+    private int size = 0;
+
+    /**
+     * @return slot of sensor with the given address, created if the sensor was not seen yet.
+     *         Null if address is not a ROM code
+     */
+    public synchronized @Nullable MegaD1WireSensorSlot slot(String address) {
+        long rom = parseRom(address, 0, address.length());
+        return rom == EMPTY ? null : slot(rom, address, 0, address.length());
+    }
+
+    public synchronized @Nullable MegaD1WireSensorSlot get(long rom) {
+        int index = indexOf(rom);
+        return keys[index] == rom ? slots[index] : null;
+    }
+
+    /**
+     * @return slots of all sensors seen at the bus or registered
+     */
+    public synchronized MegaD1WireSensorSlot[] slots() {
+        MegaD1WireSensorSlot[] result = new MegaD1WireSensorSlot[size];
+        int count = 0;
+        for (MegaD1WireSensorSlot slot : slots) {
+            if (slot != null) {
+                result[count++] = slot;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses answer of cmd=list and stores values
+     *
+     * @return number of sensors updated
+     */
+    public synchronized int update(String list) {
+        long now = System.currentTimeMillis();
+        int updated = 0;
+        int length = list.length();
+        int start = 0;
+        while (start < length) {
+            int end = list.indexOf(';', start);
+            if (end < 0) {
+                end = length;
+            }
+            int colon = list.indexOf(':', start);
+            if (colon > start && colon < end) {
+                long rom = parseRom(list, start, colon);
+                if (rom != EMPTY && updateSlot(slot(rom, list, start, colon), list, colon + 1, end, now)) {
+                    updated++;
+                }
+            }
+            start = end + 1;
+        }
+        return updated;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(slots, null);
+        size = 0;
+    }
+
+    /**
+     * @return slot of the ROM code, new slot takes address from the given part of the source string
+     */
+    private MegaD1WireSensorSlot slot(long rom, String source, int start, int end) {
+        int index = indexOf(rom);
+        MegaD1WireSensorSlot slot = slots[index];
+        if (keys[index] == rom && slot != null) {
+            return slot;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            index = indexOf(rom);
+        }
+        slot = new MegaD1WireSensorSlot(rom, source.substring(start, end).trim());
+        keys[index] = rom;
+        slots[index] = slot;
+        size++;
+        return slot;
+    }
+
+    private int indexOf(long rom) {
+        int mask = keys.length - 1;
+        int index = (int) (rom ^ (rom >>> 32)) * 0x9E3779B9 & mask;
+        while (keys[index] != EMPTY && keys[index] != rom) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        MegaD1WireSensorSlot[] oldSlots = slots;
+        keys = new long[oldKeys.length * 2];
+        slots = new MegaD1WireSensorSlot[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                slots[index] = oldSlots[i];
+            }
+        }
+    }
+
+    private static boolean updateSlot(MegaD1WireSensorSlot slot, String list, int start, int end, long now) {
+        if (start >= end) {
+            return false;
+        }
+        char first = list.charAt(start);
+        if (first == 'O') {
+            int separator = list.indexOf('/', start);
+            if (separator < 0 || separator > end) {
+                separator = end;
+            }
+            slot.updateSwitches(parseSwitch(list, start, separator),
+                    separator < end ? parseSwitch(list, separator + 1, end) : MegaD1WireSensorSlot.SWITCH_UNDEF, now);
+            return true;
+        }
+        long temperature = MegaDValueParser.parseHundredths(list, start, end);
+        if (temperature == MegaDValueParser.NO_VALUE || temperature < Integer.MIN_VALUE + 1
+                || temperature > Integer.MAX_VALUE) {
+            return false;
+        }
+        slot.updateTemperature((int) temperature, now);
+        return true;
+    }
+
+    private static int parseSwitch(String list, int start, int end) {
+        if (list.startsWith("ON", start) && end - start == 2) {
+            return MegaD1WireSensorSlot.SWITCH_ON;
+        } else if (list.startsWith("OFF", start) && end - start == 3) {
+            return MegaD1WireSensorSlot.SWITCH_OFF;
+        }
+        return MegaD1WireSensorSlot.SWITCH_UNDEF;
+    }
+
+    private static long parseRom(String address, int start, int end) {
+        while (start < end && Character.isWhitespace(address.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(address.charAt(end - 1))) {
+            end--;
+        }
+        if (end <= start || end - start > ROM_DIGITS) {
+            return EMPTY;
+        }
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(address.charAt(i), 16);
+            if (digit < 0) {
+                return EMPTY;
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+}
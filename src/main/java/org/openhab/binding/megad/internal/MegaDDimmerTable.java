@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.library.types.PercentType;
+
+/**
+ * The {@link MegaDDimmerTable} class converts raw pwm level of a port to dimmer percent and back.
+ * Both directions are precomputed for the given range, so conversions are array lookups.
+ * If minimal level is set, 1% means minimal level and 1..100% are spread over minimal..maximal level
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDDimmerTable {
+    private final int maxRaw;
+    private final PercentType[] rawToPercent;
+    private final int[] percentToRaw = new int[101];
+
+    /**
+     * @param maxRaw maximal pwm level, e.g. 255 for MegaD ports or 4095 for PCA9685
+     * @param minRaw minimal pwm level the lamp is still on, 0 if not used
+     */
+    public MegaDDimmerTable(int maxRaw, int minRaw) {
+        this.maxRaw = maxRaw;
+        int min = Math.max(0, Math.min(minRaw, maxRaw - 1));
+        rawToPercent = new PercentType[maxRaw + 1];
+        for (int raw = 0; raw <= maxRaw; raw++) {
+            int percent;
+            if (min == 0) {
+                percent = (int) Math.round(raw * 100.0 / maxRaw);
+            } else if (raw == min) {
+                percent = 1;
+            } else {
+                percent = (int) Math.round((raw - min) * 100.0 / (maxRaw - min));
+            }
+            rawToPercent[raw] = MegaDStates.percent(percent);
+        }
+        for (int percent = 1; percent <= 100; percent++) {
+            if (percent == 1) {
+                percentToRaw[percent] = min != 0 ? min : 1;
+            } else {
+                percentToRaw[percent] = (int) Math.round(percent * (maxRaw - min) / 100.0) + min;
+            }
+        }
+    }
+
+    public PercentType toPercent(int raw) {
+        return rawToPercent[Math.max(0, Math.min(maxRaw, raw))];
+    }
+
+    public int toRaw(int percent) {
+        return percentToRaw[Math.max(0, Math.min(100, percent))];
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.math.BigDecimal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DecimalType;
+
+/**
+ * The {@link MegaDItoCValues} class holds spans of values of standalone I2C sensor in its answer,
+ * {@link MegaDValueParser#NO_VALUE} if the sensor did not report the value. States keep the reported precision
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDItoCValues {
+    public long temp = MegaDValueParser.NO_VALUE;
+    public long hum = MegaDValueParser.NO_VALUE;
+    public long press = MegaDValueParser.NO_VALUE;
+    public long gas = MegaDValueParser.NO_VALUE;
+    /**
+     * First value of the answer whatever its key is
+     */
+    public long first = MegaDValueParser.NO_VALUE;
+
+    private final String answer;
+
+    MegaDItoCValues(String answer) {
+        this.answer = answer;
+    }
+
+    public @Nullable DecimalType toState(long span) {
+        if (span == MegaDValueParser.NO_VALUE) {
+            return null;
+        }
+        String number = answer.substring(MegaDValueParser.spanStart(span), MegaDValueParser.spanEnd(span));
+        try {
+            return new DecimalType(new BigDecimal(number));
+        } catch (NumberFormatException e) {
+            // syntax is checked by the parser, only exponent out of range gets here
+            return null;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.measure.Unit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.megad.MegaDBindingConstants;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.unit.Units;
+import org.openhab.core.types.State;
+
+/**
+ * The {@link MegaDMeterQuantity} is quantity measured by {@link ModbusPowermeterInterface}, one per channel id
+ * without group. Unit is set for channels with dimension, values of other channels are published as numbers
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public enum MegaDMeterQuantity {
+    VOLTAGE(MegaDBindingConstants.CHANNEL_VOLTAGE, Units.VOLT),
+    CURRENT(MegaDBindingConstants.CHANNEL_CURRENT, Units.AMPERE),
+    ACTIVE_POWER(MegaDBindingConstants.CHANNEL_ACTIVEPOWER, Units.WATT),
+    APPARENT_POWER(MegaDBindingConstants.CHANNEL_APPARENTPOWER, null),
+    REACTIVE_POWER(MegaDBindingConstants.CHANNEL_REACTIVEPOWER, null),
+    POWER_FACTOR(MegaDBindingConstants.CHANNEL_POWERFACTOR, null),
+    PHASE_ANGLE(MegaDBindingConstants.CHANNEL_PHASEANGLE, null),
+    FREQUENCY(MegaDBindingConstants.CHANNEL_FREQUENCY, Units.HERTZ),
+    IMPORT_ACTIVE_ENERGY(MegaDBindingConstants.CHANNEL_IMPORTACTNRG, Units.KILOWATT_HOUR),
+    EXPORT_ACTIVE_ENERGY(MegaDBindingConstants.CHANNEL_EXPORTACTNRG, null),
+    IMPORT_REACTIVE_ENERGY(MegaDBindingConstants.CHANNEL_IMPORTREACTNRG, null),
+    EXPORT_REACTIVE_ENERGY(MegaDBindingConstants.CHANNEL_EXPORTREACTNRG, null),
+    TOTAL_SYSTEM_POWER_DEMAND(MegaDBindingConstants.CHANNEL_TOTALSYSPWRDMD, null),
+    MAX_TOTAL_SYSTEM_POWER_DEMAND(MegaDBindingConstants.CHANNEL_MAXTOTALSYSPWRDMD, null),
+    IMPORT_SYSTEM_POWER_DEMAND(MegaDBindingConstants.CHANNEL_IMPORTSYSPWRDMD, null),
+    MAX_IMPORT_SYSTEM_POWER_DEMAND(MegaDBindingConstants.CHANNEL_MAXIMPORTSYSPWRDMD, null),
+    EXPORT_SYSTEM_POWER_DEMAND(MegaDBindingConstants.CHANNEL_EXPORTSYSPWRDMD, null),
+    MAX_EXPORT_SYSTEM_POWER_DEMAND(MegaDBindingConstants.CHANNEL_MAXEXPORTSYSPWRDMD, null),
+    CURRENT_DEMAND(MegaDBindingConstants.CHANNEL_CURRENTDMD, null),
+    MAX_CURRENT_DEMAND(MegaDBindingConstants.CHANNEL_MAXCURRENTDMD, null),
+    TOTAL_ACTIVE_ENERGY(MegaDBindingConstants.CHANNEL_TOTALACTNRG, null),
+    TOTAL_REACTIVE_ENERGY(MegaDBindingConstants.CHANNEL_TOTALREACTNRG, null),
+    ACTIVE_ENERGY(MegaDBindingConstants.CHANNEL_ACTIVEENERGY, null),
+    REACTIVE_ENERGY(MegaDBindingConstants.CHANNEL_REACTIVEENERGY, null);
+
+    /**
+     * Line of channels of common group
+     */
+    public static final int COMMON = 0;
+    private static final String LINE_GROUP = "line";
+    private static final Map<String, MegaDMeterQuantity> BY_CHANNEL = new HashMap<>();
+
+    static {
+        for (MegaDMeterQuantity quantity : values()) {
+            BY_CHANNEL.put(quantity.channel, quantity);
+        }
+    }
+
+    public final String channel;
+    private final @Nullable Unit<?> unit;
+
+    MegaDMeterQuantity(String channel, @Nullable Unit<?> unit) {
+        this.channel = channel;
+        this.unit = unit;
+    }
+
+    /**
+     * @return quantity of the channel id without group, or null if it is not a meter channel
+     */
+    public static @Nullable MegaDMeterQuantity fromChannel(String channel) {
+        return BY_CHANNEL.get(channel);
+    }
+
+    /**
+     * @return line number of lineN group, or {@link #COMMON} for other groups
+     */
+    public static int lineOf(@Nullable String groupId) {
+        if (groupId == null || !groupId.startsWith(LINE_GROUP)) {
+            return COMMON;
+        }
+        try {
+            return Integer.parseInt(groupId.substring(LINE_GROUP.length()));
+        } catch (NumberFormatException e) {
+            return COMMON;
+        }
+    }
+
+    /**
+     * @return channel id with group of the line
+     */
+    public String channelId(int line) {
+        return (line == COMMON ? "cmn" : LINE_GROUP + line) + "#" + channel;
+    }
+
+    /**
+     * @return state of the value in unit of the quantity
+     */
+    public State toState(double value) {
+        Unit<?> unit = this.unit;
+        return unit == null ? new DecimalType(value) : new QuantityType<>(value, unit);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link MegaDMideaCodec} is responsible for binary frames of Midea air conditioners protocol.
+ * Frame starts with 0xAA and ends with checksum and 0x55, checksum completes sum of bytes
+ * between start byte and checksum to zero
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDMideaCodec {
+    public static final int REQUEST_LENGTH = 16;
+    public static final int STATUS_LENGTH = 32;
+    public static final int STATUS_MODE = 8;
+    public static final int STATUS_FAN = 9;
+    public static final int STATUS_TEMPERATURE = 10;
+    public static final int STATUS_TIMER_START = 17;
+    public static final int STATUS_TIMER_STOP = 18;
+    public static final int STATUS_MODE_FLAGS = 20;
+
+    private static final int FRAME_START = 0xAA;
+    private static final int FRAME_END = 0x55;
+    private static final int COMMAND_QUERY = 0xC0;
+    private static final int COMMAND_SET = 0xC3;
+    private static final int MASTER = 0x80;
+
+    private MegaDMideaCodec() {
+    }
+
+    /**
+     * Writes status query frame to the buffer
+     *
+     * @return length of the frame
+     */
+    public static int encodeQuery(byte[] buf, int address) {
+        header(buf, COMMAND_QUERY, address);
+        for (int i = 6; i < 13; i++) {
+            buf[i] = 0;
+        }
+        buf[13] = 0x3F;
+        return finish(buf, REQUEST_LENGTH);
+    }
+
+    /**
+     * Writes set frame to the buffer, timers and flags are copied from the status
+     *
+     * @return length of the frame
+     */
+    public static int encodeSet(byte[] buf, int address, int mode, int fan, int temperature,
+            MegaDMideaStatus status) {
+        header(buf, COMMAND_SET, address);
+        buf[6] = (byte) mode;
+        buf[7] = (byte) fan;
+        buf[8] = (byte) temperature;
+        buf[9] = (byte) status.modeFlags;
+        buf[10] = (byte) status.timerStart;
+        buf[11] = (byte) status.timerStop;
+        buf[12] = 0x00;
+        buf[13] = 0x3C;
+        return finish(buf, REQUEST_LENGTH);
+    }
+
+    /**
+     * @return true if buffer contains complete status frame with valid checksum
+     */
+    public static boolean checkStatus(byte[] buf, int length) {
+        if (length != STATUS_LENGTH || (buf[0] & 0xFF) != FRAME_START || (buf[STATUS_LENGTH - 1] & 0xFF) != FRAME_END) {
+            return false;
+        }
+        return (buf[STATUS_LENGTH - 2] & 0xFF) == checksum(buf, STATUS_LENGTH);
+    }
+
+    private static void header(byte[] buf, int command, int address) {
+        buf[0] = (byte) FRAME_START;
+        buf[1] = (byte) command;
+        buf[2] = (byte) address;
+        buf[3] = 0x00;
+        buf[4] = (byte) MASTER;
+        buf[5] = 0x00;
+    }
+
+    private static int finish(byte[] buf, int length) {
+        buf[length - 2] = (byte) checksum(buf, length);
+        buf[length - 1] = (byte) FRAME_END;
+        return length;
+    }
+
+    private static int checksum(byte[] buf, int length) {
+        return -MegaDRs485Codec.sum(buf, 1, length - 3) & 0xFF;
+    }
+}
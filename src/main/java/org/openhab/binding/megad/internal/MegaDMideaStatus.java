@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link MegaDMideaStatus} is decoded status frame of Midea air conditioner.
+ * All channels of the unit are served from one status, fields not changed by a command are copied to it
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDMideaStatus {
+    public static final int UNKNOWN = -1;
+
+    private static final String[] MODE_NAMES = { "OFF", "AUTO", "COOL", "DRY", "HEAT", "FAN" };
+    private static final int[] MODE_CODES = { 0x00, 0x98, 0x88, 0x82, 0x84, 0x81 };
+    private static final String[] FAN_NAMES = { "OFF", "AUTO", "HIGH", "MEDIUM", "LOW" };
+    private static final int[] FAN_CODES = { 0x00, 0x84, 0x01, 0x02, 0x04 };
+
+    public final int mode;
+    public final int fan;
+    public final int temperature;
+    public final int modeFlags;
+    public final int timerStart;
+    public final int timerStop;
+    /**
+     * Time of the poll in milliseconds
+     */
+    public final long timestamp;
+
+    public MegaDMideaStatus(int mode, int fan, int temperature, int modeFlags, int timerStart, int timerStop,
+            long timestamp) {
+        this.mode = mode;
+        this.fan = fan;
+        this.temperature = temperature;
+        this.modeFlags = modeFlags;
+        this.timerStart = timerStart;
+        this.timerStop = timerStop;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Decodes status frame checked by {@link MegaDMideaCodec#checkStatus(byte[], int)}
+     */
+    public static MegaDMideaStatus decode(byte[] frame, long timestamp) {
+        return new MegaDMideaStatus(frame[MegaDMideaCodec.STATUS_MODE] & 0xFF,
+                frame[MegaDMideaCodec.STATUS_FAN] & 0xFF, frame[MegaDMideaCodec.STATUS_TEMPERATURE] & 0xFF,
+                frame[MegaDMideaCodec.STATUS_MODE_FLAGS] & 0xFF, frame[MegaDMideaCodec.STATUS_TIMER_START] & 0xFF,
+                frame[MegaDMideaCodec.STATUS_TIMER_STOP] & 0xFF, timestamp);
+    }
+
+    /**
+     * @return mode name, empty if mode code is unknown
+     */
+    public String getModeName() {
+        return name(MODE_CODES, MODE_NAMES, mode);
+    }
+
+    /**
+     * @return fan mode name, empty if fan code is unknown
+     */
+    public String getFanName() {
+        return name(FAN_CODES, FAN_NAMES, fan);
+    }
+
+    /**
+     * @return mode code of the name, or {@link #UNKNOWN}
+     */
+    public static int modeCode(String name) {
+        return code(MODE_NAMES, MODE_CODES, name);
+    }
+
+    /**
+     * @return fan code of the name, or {@link #UNKNOWN}
+     */
+    public static int fanCode(String name) {
+        return code(FAN_NAMES, FAN_CODES, name);
+    }
+
+    private static String name(int[] codes, String[] names, int code) {
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i] == code) {
+                return names[i];
+            }
+        }
+        return "";
+    }
+
+    private static int code(String[] names, int[] codes, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return codes[i];
+            }
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link MegaDModbusProfile} is register map of modbus device loaded from bundle resource modbus/NAME.profile.
+ * Each line of the profile binds channel to register: {@code channel register type [scale]}, header lines
+ * {@code key = value} set function code, address radix and block limits
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDModbusProfile {
+    private static final Map<String, MegaDModbusProfile> PROFILES = new ConcurrentHashMap<>();
+
+    public enum Type {
+        INT16(1),
+        UINT16(1),
+        INT32(2),
+        UINT32(2),
+        FLOAT32(2),
+        INT32_SWAPPED(2),
+        UINT32_SWAPPED(2),
+        FLOAT32_SWAPPED(2),
+        INT64_SWAPPED(4);
+
+        public final int registers;
+
+        Type(int registers) {
+            this.registers = registers;
+        }
+
+        /**
+         * Decodes value of this type from big-endian registers
+         */
+        public double decode(byte[] buf, int offset) {
+            switch (this) {
+                case INT16:
+                    return MegaDRs485Codec.int16(buf, offset);
+                case UINT16:
+                    return MegaDRs485Codec.uint16(buf, offset);
+                case INT32:
+                    return MegaDRs485Codec.int32(buf, offset);
+                case UINT32:
+                    return MegaDRs485Codec.uint32(buf, offset);
+                case FLOAT32:
+                    return MegaDRs485Codec.float32(buf, offset);
+                case INT32_SWAPPED:
+                    return MegaDRs485Codec.int32Swapped(buf, offset);
+                case UINT32_SWAPPED:
+                    return MegaDRs485Codec.int32Swapped(buf, offset) & 0xFFFFFFFFL;
+                case FLOAT32_SWAPPED:
+                    return MegaDRs485Codec.float32Swapped(buf, offset);
+                case INT64_SWAPPED:
+                default:
+                    return MegaDRs485Codec.int64Swapped(buf, offset);
+            }
+        }
+    }
+
+    public static final class Entry {
+        /**
+         * Channel id with group, e.g. line1#current
+         */
+        public final String channelId;
+        public final int register;
+        public final Type type;
+        public final double scale;
+
+        Entry(String channelId, int register, Type type, double scale) {
+            this.channelId = channelId;
+            this.register = register;
+            this.type = type;
+            this.scale = scale;
+        }
+    }
+
+    private final String name;
+    private final int function;
+    private final int addressRadix;
+    private final int maxRegisters;
+    private final int maxGap;
+    private final List<Entry> entries;
+
+    private MegaDModbusProfile(String name, int function, int addressRadix, int maxRegisters, int maxGap,
+            List<Entry> entries) {
+        this.name = name;
+        this.function = function;
+        this.addressRadix = addressRadix;
+        this.maxRegisters = maxRegisters;
+        this.maxGap = maxGap;
+        this.entries = entries;
+    }
+
+    /**
+     * @return profile parsed from bundle resource, profiles are parsed once
+     * @throws IllegalArgumentException if profile does not exist or has errors
+     */
+    public static MegaDModbusProfile load(String name) {
+        if (!name.matches("[a-z0-9_-]+")) {
+            throw new IllegalArgumentException("Illegal modbus profile name: " + name);
+        }
+        MegaDModbusProfile profile = PROFILES.get(name);
+        if (profile == null) {
+            profile = parse(name, MegaDModbusProfile.class.getResourceAsStream("/modbus/" + name + ".profile"));
+            PROFILES.put(name, profile);
+        }
+        return profile;
+    }
+
+    static MegaDModbusProfile parse(String name, @Nullable InputStream stream) {
+        if (stream == null) {
+            throw new IllegalArgumentException("Modbus profile not found: " + name);
+        }
+        int function = 0x04;
+        int addressRadix = 16;
+        int maxRegisters = 40;
+        int maxGap = 8;
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                // '#' is part of channel id, so comment starts with '#' at line start or after blank
+                line = line.trim();
+                int comment = line.startsWith("#") ? 0 : line.indexOf(" #");
+                line = (comment < 0 ? line : line.substring(0, comment)).trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    int equals = line.indexOf('=');
+                    if (equals > 0) {
+                        String key = line.substring(0, equals).trim();
+                        int value = Integer.decode(line.substring(equals + 1).trim());
+                        switch (key) {
+                            case "function":
+                                function = value;
+                                break;
+                            case "address-radix":
+                                addressRadix = value;
+                                break;
+                            case "max-registers":
+                                maxRegisters = value;
+                                break;
+                            case "max-gap":
+                                maxGap = value;
+                                break;
+                            default:
+                                throw new IllegalArgumentException("unknown key " + key);
+                        }
+                        continue;
+                    }
+                    String[] fields = line.split("\\s+");
+                    if (fields.length < 3 || fields.length > 4) {
+                        throw new IllegalArgumentException("expected: channel register type [scale]");
+                    }
+                    Type type = Type.valueOf(fields[2].toUpperCase().replace('-', '_'));
+                    double scale = fields.length == 4 ? Double.parseDouble(fields[3]) : 1;
+                    entries.add(new Entry(fields[0], Integer.decode(fields[1]), type, scale));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(
+                            "Modbus profile " + name + " line " + number + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read modbus profile " + name + ": " + e.getMessage());
+        }
+        return new MegaDModbusProfile(name, function, addressRadix, maxRegisters, maxGap, List.copyOf(entries));
+    }
+
+    /**
+     * @return read plan of registers of linked channels
+     */
+    public MegaDModbusReadPlan compile(List<Entry> linkedEntries) {
+        MegaDModbusReadPlan.Builder builder = new MegaDModbusReadPlan.Builder();
+        for (Entry entry : linkedEntries) {
+            builder.add(entry.register, entry.type.registers);
+        }
+        return builder.build(maxRegisters, maxGap);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getFunction() {
+        return function;
+    }
+
+    public int getAddressRadix() {
+        return addressRadix;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public @Nullable Entry getEntry(String channelId) {
+        for (Entry entry : entries) {
+            if (entry.channelId.equals(channelId)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
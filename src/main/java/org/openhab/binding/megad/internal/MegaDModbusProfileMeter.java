@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.binding.megad.handler.MegaDBridgeDeviceHandler;
+import org.openhab.core.thing.Channel;
+import org.openhab.core.thing.Thing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link MegaDModbusProfileMeter} is responsible for modbus meter described by {@link MegaDModbusProfile}.
+ * Registers of linked channels are read in blocks of compiled plan once per cycle
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDModbusProfileMeter implements ModbusPowermeterInterface {
+    private final Logger logger = LoggerFactory.getLogger(MegaDModbusProfileMeter.class);
+    private final MegaDBridgeDeviceHandler bridgeHandler;
+    private final MegaDModbusProfile profile;
+    private final int slave;
+    private final byte[] frame = new byte[MegaDRs485Codec.MAX_FRAME];
+
+    /**
+     * Compiled plan: linked entries, data of blocks and decoded values, replaced as a whole on link changes
+     */
+    private static final class Compiled {
+        final MegaDModbusReadPlan plan;
+        final byte[][] blocks;
+        final MegaDModbusProfile.Entry[] entries;
+        final int[] entryBlock;
+        final int[] entryOffset;
+        final double[] values;
+        final Map<String, Integer> index = new HashMap<>();
+
+        Compiled(MegaDModbusProfile profile, List<MegaDModbusProfile.Entry> linked) {
+            plan = profile.compile(linked);
+            List<MegaDModbusReadPlan.Block> planBlocks = plan.getBlocks();
+            blocks = new byte[planBlocks.size()][];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = new byte[planBlocks.get(i).count * 2];
+            }
+            entries = linked.toArray(new MegaDModbusProfile.Entry[0]);
+            entryBlock = new int[entries.length];
+            entryOffset = new int[entries.length];
+            values = new double[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                MegaDModbusProfile.Entry entry = entries[i];
+                MegaDModbusReadPlan.Block block = plan.find(entry.register, entry.type.registers);
+                entryBlock[i] = block == null ? -1 : planBlocks.indexOf(block);
+                entryOffset[i] = block == null ? 0 : (entry.register - block.start) * 2;
+                values[i] = Double.NaN;
+                index.put(entry.channelId, i);
+            }
+        }
+    }
+
+    private volatile Compiled compiled;
+
+    public MegaDModbusProfileMeter(MegaDBridgeDeviceHandler bridgeHandler, String address,
+            MegaDModbusProfile profile) {
+        this.bridgeHandler = bridgeHandler;
+        this.profile = profile;
+        this.slave = MegaDRs485Codec.parseAddress(address, profile.getAddressRadix());
+        if (slave == MegaDRs485Codec.ERROR) {
+            logger.warn("Illegal rs485 address: {}", address);
+        }
+        compiled = new Compiled(profile, List.of());
+    }
+
+    @Override
+    public void setLinkedChannels(Collection<String> channelIds) {
+        List<MegaDModbusProfile.Entry> linked = new ArrayList<>();
+        for (String channelId : channelIds) {
+            MegaDModbusProfile.Entry entry = profile.getEntry(channelId);
+            if (entry != null) {
+                linked.add(entry);
+            }
+        }
+        compiled = new Compiled(profile, linked);
+        logger.debug("{} {} read in {} blocks", profile.getName(), slave, compiled.plan.getBlocks().size());
+    }
+
+    @Override
+    public synchronized void updateValues() {
+        Compiled current = compiled;
+        List<MegaDModbusReadPlan.Block> planBlocks = current.plan.getBlocks();
+        boolean[] read = new boolean[planBlocks.size()];
+        for (int i = 0; i < read.length; i++) {
+            read[i] = readBlock(planBlocks.get(i), current.blocks[i]);
+        }
+        for (int i = 0; i < current.entries.length; i++) {
+            int block = current.entryBlock[i];
+            if (block >= 0 && read[block]) {
+                MegaDModbusProfile.Entry entry = current.entries[i];
+                current.values[i] = entry.type.decode(current.blocks[block], current.entryOffset[i]) * entry.scale;
+            } else {
+                current.values[i] = Double.NaN;
+            }
+        }
+    }
+
+    private boolean readBlock(MegaDModbusReadPlan.Block block, byte[] data) {
+        int function = profile.getFunction();
+        int length = MegaDRs485Codec.encodeReadRequest(frame, slave, function, block.start, block.count);
+        length = bridgeHandler.getRs485Bus().exchange(MegaDRs485Bus.PRIORITY_POLL,
+                bridgeHandler.getDeviceConfig().baseUrl, slave, frame, length, true, frame,
+                MegaDRs485Codec.readReplyLength(block.count), 100);
+        int bytes = MegaDRs485Codec.checkReadReply(frame, length, slave, function, block.count);
+        if (bytes == MegaDRs485Codec.ERROR) {
+            logger.debug("{} bad answer for registers {}, {} bytes", profile.getName(), block.start, length);
+            return false;
+        }
+        System.arraycopy(frame, MegaDRs485Codec.DATA_OFFSET, data, 0, bytes);
+        return true;
+    }
+
+    /**
+     * @return value of the channel from last cycle, NaN if it is not linked or was not read
+     */
+    public double getValue(String channelId) {
+        Compiled current = compiled;
+        Integer i = current.index.get(channelId);
+        return i == null ? Double.NaN : current.values[i];
+    }
+
+    @Override
+    public boolean isValid(MegaDMeterQuantity quantity, int line) {
+        return !Double.isNaN(getValue(quantity.channelId(line)));
+    }
+
+    @Override
+    public double getValue(MegaDMeterQuantity quantity, int line) {
+        return getValue(quantity.channelId(line));
+    }
+
+    @Override
+    public List<Channel> getChannelsList(Thing thing) {
+        List<Channel> channelList = new ArrayList<>();
+        for (MegaDModbusProfile.Entry entry : profile.getEntries()) {
+            Channel channel = thing.getChannel(entry.channelId);
+            if (channel != null) {
+                channelList.add(channel);
+            } else {
+                logger.warn("Channel {} of profile {} not found", entry.channelId, profile.getName());
+            }
+        }
+        return channelList;
+    }
+}
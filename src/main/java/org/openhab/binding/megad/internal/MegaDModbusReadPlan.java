@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link MegaDModbusReadPlan} is list of modbus block reads covering requested registers.
+ * Registers close to each other are merged to one block as long as block fits to the frame,
+ * so values of many channels are read in one transaction
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDModbusReadPlan {
+    public static final MegaDModbusReadPlan EMPTY = new MegaDModbusReadPlan(Collections.emptyList());
+
+    /**
+     * Contiguous registers read by one request
+     */
+    public static final class Block {
+        public final int start;
+        public final int count;
+
+        Block(int start, int count) {
+            this.start = start;
+            this.count = count;
+        }
+
+        public boolean contains(int register, int registers) {
+            return register >= start && register + registers <= start + count;
+        }
+    }
+
+    public static final class Builder {
+        private final TreeMap<Integer, Integer> ranges = new TreeMap<>();
+
+        /**
+         * @param register first register of a value
+         * @param registers number of registers of the value
+         */
+        public Builder add(int register, int registers) {
+            ranges.merge(register, registers, Math::max);
+            return this;
+        }
+
+        /**
+         * @param maxRegisters maximum number of registers in one block, limited by frame size
+         * @param maxGap maximum number of not requested registers read to join two values in one block
+         */
+        public MegaDModbusReadPlan build(int maxRegisters, int maxGap) {
+            if (ranges.isEmpty()) {
+                return EMPTY;
+            }
+            List<Block> blocks = new ArrayList<>();
+            int start = -1;
+            int end = -1;
+            for (Map.Entry<Integer, Integer> range : ranges.entrySet()) {
+                int rangeStart = range.getKey();
+                int rangeEnd = rangeStart + range.getValue();
+                if (start >= 0 && rangeStart - end <= maxGap && Math.max(end, rangeEnd) - start <= maxRegisters) {
+                    end = Math.max(end, rangeEnd);
+                } else {
+                    if (start >= 0) {
+                        blocks.add(new Block(start, end - start));
+                    }
+                    start = rangeStart;
+                    end = rangeEnd;
+                }
+            }
+            blocks.add(new Block(start, end - start));
+            return new MegaDModbusReadPlan(List.copyOf(blocks));
+        }
+    }
+
+    private final List<Block> blocks;
+
+    private MegaDModbusReadPlan(List<Block> blocks) {
+        this.blocks = blocks;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    public @Nullable Block find(int register, int registers) {
+        for (Block block : blocks) {
+            if (block.contains(register, registers)) {
+                return block;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link MegaDPortState} class is immutable snapshot of one MegaD port as the controller reported it
+ * in cmd=all, cmd=get or incoming message. Raw value is kept, common parts of it are decoded
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDPortState {
+    /**
+     * Value of {@link #value} and {@link #counter} if raw value does not contain it
+     */
+    public static final int NO_VALUE = -1;
+
+    public enum Switch {
+        ON,
+        OFF,
+        UNDEF
+    }
+
+    public final String raw;
+    public final Switch onOff;
+    /**
+     * Numeric value of pwm, dimmer or adc port, {@link #NO_VALUE} otherwise
+     */
+    public final int value;
+    /**
+     * Inputs counter of ON/12 like values, {@link #NO_VALUE} otherwise
+     */
+    public final long counter;
+    public final long timestamp;
+    /**
+     * Sequence number of the update in the table, newer updates have greater numbers
+     */
+    public final long version;
+
+    MegaDPortState(String raw, long timestamp, long version) {
+        this.raw = raw;
+        this.timestamp = timestamp;
+        this.version = version;
+        if (raw.startsWith("ON")) {
+            onOff = Switch.ON;
+        } else if (raw.startsWith("OFF")) {
+            onOff = Switch.OFF;
+        } else {
+            onOff = Switch.UNDEF;
+        }
+        int separator = raw.indexOf('/');
+        if (onOff != Switch.UNDEF && separator > 0) {
+            counter = parseNumber(raw, separator + 1, raw.length());
+            value = NO_VALUE;
+        } else {
+            counter = NO_VALUE;
+            value = (int) parseNumber(raw, 0, raw.length());
+        }
+    }
+
+    /**
+     * @return age of the snapshot in milliseconds
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - timestamp;
+    }
+
+    private static long parseNumber(String raw, int start, int end) {
+        if (start >= end || end - start > 18) {
+            return NO_VALUE;
+        }
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_VALUE;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+}
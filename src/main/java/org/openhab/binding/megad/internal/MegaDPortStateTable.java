@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link MegaDPortStateTable} keeps the latest known state of every port of one controller.
+ * It is filled by cmd=all sweeps, polls, incoming messages and acknowledged commands.
+ * Readers get immutable {@link MegaDPortState} snapshots without locking
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDPortStateTable {
+    public static final int MAX_PORTS = 64;
+
+    private final AtomicReferenceArray<@Nullable MegaDPortState> states = new AtomicReferenceArray<>(MAX_PORTS);
+    private final AtomicLong version = new AtomicLong();
+
+    public @Nullable MegaDPortState get(int port) {
+        if (port < 0 || port >= MAX_PORTS) {
+            return null;
+        }
+        return states.get(port);
+    }
+
+    public @Nullable MegaDPortState get(String port) {
+        return get(parsePort(port));
+    }
+
+    /**
+     * Stores raw value of a port as reported by the controller
+     */
+    public void update(int port, String raw) {
+        if (port >= 0 && port < MAX_PORTS) {
+            states.set(port, new MegaDPortState(raw, System.currentTimeMillis(), version.incrementAndGet()));
+        }
+    }
+
+    public void update(String port, String raw) {
+        update(parsePort(port), raw);
+    }
+
+    /**
+     * Stores answer of cmd=all, values of ports are separated by ';'.
+     * Unchanged ports keep their raw value and get a new timestamp
+     *
+     * @return ports whose raw value changed
+     */
+    public int[] updateAll(String allPorts) {
+        if (allPorts.isEmpty()) {
+            return new int[0];
+        }
+        int[] changed = new int[MAX_PORTS];
+        int count = 0;
+        int port = 0;
+        int start = 0;
+        while (start < allPorts.length() && port < MAX_PORTS) {
+            int end = allPorts.indexOf(';', start);
+            if (end < 0) {
+                end = allPorts.length();
+            }
+            MegaDPortState previous = states.get(port);
+            if (previous != null && MegaDSnapshot.sameElement(allPorts, start, end, previous.raw)) {
+                update(port, previous.raw);
+            } else {
+                update(port, allPorts.substring(start, end));
+                changed[count++] = port;
+            }
+            port++;
+            start = end + 1;
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    /**
+     * Changes on/off part of the port state, inputs counter is kept
+     */
+    public void updateSwitch(String port, boolean on) {
+        int index = parsePort(port);
+        MegaDPortState previous = get(index);
+        String raw = on ? "ON" : "OFF";
+        if (previous != null && previous.counter != MegaDPortState.NO_VALUE) {
+            raw += "/" + previous.counter;
+        }
+        update(index, raw);
+    }
+
+    /**
+     * Changes inputs counter of the port state, on/off part is kept
+     */
+    public void updateCounter(String port, long counter) {
+        int index = parsePort(port);
+        MegaDPortState previous = get(index);
+        String onOff = previous != null && previous.onOff == MegaDPortState.Switch.OFF ? "OFF" : "ON";
+        update(index, onOff + "/" + counter);
+    }
+
+    public void clear() {
+        for (int i = 0; i < MAX_PORTS; i++) {
+            states.set(i, null);
+        }
+    }
+
+    private static int parsePort(String port) {
+        try {
+            return Integer.parseInt(port.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -15,9 +15,11 @@ package org.openhab.binding.megad.internal;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.megad.handler.MegaDBridgeDeviceHandler;
 import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.Thing;
+import org.openhab.core.types.State;
 
 /**
  * The {@link MegaDRS485Interface} is responsible for Midea modbus protocol feature for megad
@@ -26,7 +28,16 @@ import org.openhab.core.thing.Thing;
  */
 @NonNullByDefault
 public interface MegaDRS485Interface {
-    String[] getValueFromRS485(MegaDBridgeDeviceHandler bridgeHandler);
+    /**
+     * Polls the device once per cycle, channels are served from the result by {@link #getState(String)}
+     */
+    void updateValues(MegaDBridgeDeviceHandler bridgeHandler);
+
+    /**
+     * @return state of the channel from the last poll, null if it is unknown
+     */
+    @Nullable
+    State getState(String channelId);
 
     void setValuesToRS485(MegaDBridgeDeviceHandler bridgeHandler, String channelUID, String command);
 
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link MegaDRs485Bus} is responsible for exclusive access to the single UART of megad.
+ * Transaction is uart_tx followed by uart_rx, so transactions of different slaves never interleave
+ * and reply is always read by the device that sent the request. Waiting transactions are ordered
+ * by priority, then by arrival. Response time of each slave is learned, reply is read when it is
+ * expected to be complete and read again shortly while it is not
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDRs485Bus {
+    public static final int PRIORITY_WRITE = 0;
+    public static final int PRIORITY_POLL = 1;
+    /**
+     * Silent interval between end of reply and next request
+     */
+    private static final long FRAME_GAP_MILLIS = 5;
+    private static final long STATISTICS_PERIOD_MILLIS = 60000;
+    /**
+     * Pause between reads of incomplete reply
+     */
+    private static final long RETRY_MILLIS = 10;
+    /**
+     * Minimal time to wait for reply after expected response time
+     */
+    private static final long MIN_TIMEOUT_MILLIS = 50;
+    private static final long MIN_DELAY_MILLIS = 5;
+    private static final long MAX_DELAY_MILLIS = 1000;
+    private static final long MIN_MARGIN_MILLIS = 5;
+    /**
+     * Key flag of slaves of other protocols, their addresses may overlap with modbus addresses
+     */
+    private static final int NOT_MODBUS = 0x100;
+
+    private final Logger logger = LoggerFactory.getLogger(MegaDRs485Bus.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition turn = lock.newCondition();
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+    private long sequence = 0;
+    private boolean busy = false;
+    private long lastEnd = System.nanoTime();
+
+    private long transactions = 0;
+    private long errors = 0;
+    private long busyNanos = 0;
+    private long statisticsStart = System.nanoTime();
+    private final Map<Integer, ResponseTime> responseTimes = new ConcurrentHashMap<>();
+
+    private static final class Ticket implements Comparable<Ticket> {
+        final int priority;
+        final long sequence;
+
+        Ticket(int priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            return priority != other.priority ? Integer.compare(priority, other.priority)
+                    : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Estimate of the time between request and complete reply of one slave, average and mean deviation
+     * in milliseconds. Complete reply at first read only shows that the slave is not slower, so such
+     * transaction lowers the average and next read is tried earlier, until the reply is short and
+     * time of complete reply is measured
+     */
+    private static final class ResponseTime {
+        private static final double GAIN = 0.125;
+        private static final double DEVIATION_GAIN = 0.25;
+        private static final double PROBE = 0.75;
+
+        private double average;
+        private double deviation = 0;
+
+        ResponseTime(long initialDelay) {
+            average = initialDelay;
+        }
+
+        long getDelayNanos() {
+            double delay = average + Math.max(MIN_MARGIN_MILLIS, 2 * deviation);
+            delay = Math.min(MAX_DELAY_MILLIS, Math.max(MIN_DELAY_MILLIS, delay));
+            return TimeUnit.MICROSECONDS.toNanos(Math.round(delay * 1000));
+        }
+
+        void update(long elapsedNanos, boolean measured) {
+            if (measured) {
+                double sample = elapsedNanos / 1e6;
+                deviation += DEVIATION_GAIN * (Math.abs(sample - average) - deviation);
+                average += GAIN * (sample - average);
+            } else {
+                average += GAIN * (average * PROBE - average);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f+-%.1f ms", average, deviation);
+        }
+    }
+
+    /**
+     * Sends frame and reads reply as one transaction, waits until bus is free
+     *
+     * @param priority {@link #PRIORITY_WRITE} for commands, {@link #PRIORITY_POLL} for polling
+     * @param slave address of the slave, response time is learned per slave
+     * @param replyLength length of complete reply
+     * @param initialDelay time in milliseconds to wait for reply until response time of the slave is learned
+     * @return length of the reply in rx buffer, or {@link MegaDRs485Codec#ERROR}
+     */
+    public int exchange(int priority, String baseUrl, int slave, byte[] tx, int txLength, boolean modbus, byte[] rx,
+            int replyLength, long initialDelay) {
+        ResponseTime responseTime = responseTimes.computeIfAbsent(modbus ? slave : slave | NOT_MODBUS,
+                key -> new ResponseTime(initialDelay));
+        if (!acquire(priority)) {
+            return MegaDRs485Codec.ERROR;
+        }
+        long start = System.nanoTime();
+        int length = MegaDRs485Codec.ERROR;
+        try {
+            length = transaction(baseUrl, tx, txLength, modbus, rx, replyLength, responseTime);
+            return length;
+        } finally {
+            release(start, length);
+        }
+    }
+
+    private int transaction(String baseUrl, byte[] tx, int txLength, boolean modbus, byte[] rx, int replyLength,
+            ResponseTime responseTime) {
+        MegaDRs485Transport.send(baseUrl, tx, txLength, modbus);
+        long sent = System.nanoTime();
+        long delay = responseTime.getDelayNanos();
+        long deadline = sent + Math.max(2 * delay, delay + TimeUnit.MILLISECONDS.toNanos(MIN_TIMEOUT_MILLIS));
+        long readAt = sent + delay;
+        int length = 0;
+        boolean retried = false;
+        while (true) {
+            if (!sleepUntil(readAt)) {
+                return MegaDRs485Codec.ERROR;
+            }
+            long read = System.nanoTime();
+            int received = MegaDRs485Transport.receive(baseUrl, modbus, rx, length);
+            if (received == MegaDRs485Codec.ERROR) {
+                return MegaDRs485Codec.ERROR;
+            }
+            length += received;
+            if (length >= replyLength) {
+                responseTime.update(read - sent, retried);
+                return length;
+            }
+            // short frame that does not grow is complete, e.g. modbus exception
+            if ((length > 0 && received == 0) || read >= deadline) {
+                return length;
+            }
+            retried = true;
+            readAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS);
+        }
+    }
+
+    private static boolean sleepUntil(long time) {
+        long delay = time - System.nanoTime();
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean acquire(int priority) {
+        lock.lock();
+        try {
+            Ticket ticket = new Ticket(priority, sequence++);
+            waiting.add(ticket);
+            try {
+                while (true) {
+                    if (busy || waiting.peek() != ticket) {
+                        turn.await();
+                        continue;
+                    }
+                    long gap = lastEnd + TimeUnit.MILLISECONDS.toNanos(FRAME_GAP_MILLIS) - System.nanoTime();
+                    if (gap <= 0) {
+                        break;
+                    }
+                    turn.awaitNanos(gap);
+                }
+            } catch (InterruptedException e) {
+                waiting.remove(ticket);
+                turn.signalAll();
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            waiting.poll();
+            busy = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long start, int length) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            busy = false;
+            lastEnd = now;
+            transactions++;
+            if (length <= 0) {
+                errors++;
+            }
+            busyNanos += now - start;
+            if (now - statisticsStart >= TimeUnit.MILLISECONDS.toNanos(STATISTICS_PERIOD_MILLIS)) {
+                logger.debug("rs485 bus: {} transactions, {} without reply, utilization {}%", transactions, errors,
+                        busyNanos * 100 / (now - statisticsStart));
+                logger.debug("rs485 response times: {}", responseTimes);
+                transactions = 0;
+                errors = 0;
+                busyNanos = 0;
+                statisticsStart = now;
+            }
+            turn.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
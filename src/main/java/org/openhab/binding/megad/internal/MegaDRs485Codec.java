@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link MegaDRs485Codec} is responsible for binary rs485 frames of megad: modbus RTU requests and replies,
+ * CRC16 and decoding of register values. Frames are written to and read from byte buffers owned by the caller,
+ * MegaD gets and returns them as hex text
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDRs485Codec {
+    public static final int MAX_FRAME = 256;
+    public static final int ERROR = -1;
+    /**
+     * Offset of first data byte in read reply: address, function, byte count
+     */
+    public static final int DATA_OFFSET = 3;
+    public static final int READ_REQUEST_LENGTH = 8;
+    public static final int CRC_LENGTH = 2;
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+            CRC_TABLE[i] = crc;
+        }
+    }
+
+    private MegaDRs485Codec() {
+    }
+
+    /**
+     * @return slave address from configuration, or {@link #ERROR}
+     */
+    public static int parseAddress(String address, int radix) {
+        try {
+            int value = Integer.parseInt(address.trim(), radix);
+            return value >= 0 && value <= 0xFF ? value : ERROR;
+        } catch (NumberFormatException e) {
+            return ERROR;
+        }
+    }
+
+    /**
+     * @return modbus CRC16 of the bytes, low byte is sent first
+     */
+    public static int crc16(byte[] buf, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc = (crc >>> 8) ^ CRC_TABLE[(crc ^ buf[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    /**
+     * Writes read registers request with CRC to the buffer
+     *
+     * @return length of the frame
+     */
+    public static int encodeReadRequest(byte[] buf, int address, int function, int start, int count) {
+        buf[0] = (byte) address;
+        buf[1] = (byte) function;
+        buf[2] = (byte) (start >>> 8);
+        buf[3] = (byte) start;
+        buf[4] = (byte) (count >>> 8);
+        buf[5] = (byte) count;
+        int crc = crc16(buf, 0, 6);
+        buf[6] = (byte) crc;
+        buf[7] = (byte) (crc >>> 8);
+        return READ_REQUEST_LENGTH;
+    }
+
+    /**
+     * @return length of complete reply for read registers request
+     */
+    public static int readReplyLength(int count) {
+        return DATA_OFFSET + count * 2 + CRC_LENGTH;
+    }
+
+    /**
+     * Checks reply for read registers request: slave address, function without exception flag,
+     * number of data bytes and CRC
+     *
+     * @return number of data bytes starting at {@link #DATA_OFFSET}, or {@link #ERROR}
+     */
+    public static int checkReadReply(byte[] buf, int length, int address, int function, int count) {
+        if (length < DATA_OFFSET + CRC_LENGTH) {
+            return ERROR;
+        }
+        if ((buf[0] & 0xFF) != address || (buf[1] & 0xFF) != function) {
+            return ERROR;
+        }
+        int bytes = buf[2] & 0xFF;
+        if (bytes != count * 2 || length < DATA_OFFSET + bytes + CRC_LENGTH) {
+            return ERROR;
+        }
+        int crc = crc16(buf, 0, DATA_OFFSET + bytes);
+        int received = (buf[DATA_OFFSET + bytes] & 0xFF) | (buf[DATA_OFFSET + bytes + 1] & 0xFF) << 8;
+        return crc == received ? bytes : ERROR;
+    }
+
+    public static int uint16(byte[] buf, int offset) {
+        return (buf[offset] & 0xFF) << 8 | (buf[offset + 1] & 0xFF);
+    }
+
+    public static int int16(byte[] buf, int offset) {
+        return (short) uint16(buf, offset);
+    }
+
+    /**
+     * Two registers, high word first
+     */
+    public static int int32(byte[] buf, int offset) {
+        return uint16(buf, offset) << 16 | uint16(buf, offset + 2);
+    }
+
+    /**
+     * Two registers, low word first
+     */
+    public static int int32Swapped(byte[] buf, int offset) {
+        return uint16(buf, offset + 2) << 16 | uint16(buf, offset);
+    }
+
+    public static long uint32(byte[] buf, int offset) {
+        return int32(buf, offset) & 0xFFFFFFFFL;
+    }
+
+    public static float float32(byte[] buf, int offset) {
+        return Float.intBitsToFloat(int32(buf, offset));
+    }
+
+    public static float float32Swapped(byte[] buf, int offset) {
+        return Float.intBitsToFloat(int32Swapped(buf, offset));
+    }
+
+    /**
+     * Four registers, low word first
+     */
+    public static long int64Swapped(byte[] buf, int offset) {
+        return (long) int32Swapped(buf, offset + 4) << 32 | (int32Swapped(buf, offset) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Sum of bytes, used as checksum by protocols without CRC
+     */
+    public static int sum(byte[] buf, int offset, int length) {
+        int sum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            sum += buf[i] & 0xFF;
+        }
+        return sum;
+    }
+
+    public static StringBuilder appendHex(StringBuilder sb, byte[] buf, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            sb.append(HEX[(buf[i] >>> 4) & 0x0F]).append(HEX[buf[i] & 0x0F]);
+        }
+        return sb;
+    }
+
+    /**
+     * Parses uart_rx answer of MegaD, hex bytes separated by '|'
+     *
+     * @return number of bytes written to the buffer, or {@link #ERROR} if answer is not hex
+     */
+    public static int parseHex(CharSequence text, byte[] buf) {
+        return parseHex(text, buf, 0);
+    }
+
+    /**
+     * Parses uart_rx answer of MegaD to the buffer after bytes already received
+     *
+     * @return number of bytes written to the buffer, or {@link #ERROR} if answer is not hex
+     */
+    public static int parseHex(CharSequence text, byte[] buf, int offset) {
+        int length = offset;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '|';
+            if (c == '|') {
+                if (digits > 0) {
+                    if (length == buf.length) {
+                        return ERROR;
+                    }
+                    buf[length++] = (byte) value;
+                }
+                value = 0;
+                digits = 0;
+            } else if (c != ' ') {
+                int digit = Character.digit(c, 16);
+                if (digit < 0 || ++digits > 2) {
+                    return ERROR;
+                }
+                value = value << 4 | digit;
+            }
+        }
+        return length - offset;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link MegaDRs485Transport} is responsible for sending binary frame to rs485 port of megad
+ * and reading received bytes to a buffer, it is used only by {@link MegaDRs485Bus}
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+final class MegaDRs485Transport {
+    private MegaDRs485Transport() {
+    }
+
+    /**
+     * Sends frame with uart_tx.
+     * In modbus mode MegaD appends CRC to the frame itself, so CRC of the frame is not sent
+     */
+    static void send(String baseUrl, byte[] tx, int txLength, boolean modbus) {
+        int length = modbus ? txLength - MegaDRs485Codec.CRC_LENGTH : txLength;
+        StringBuilder request = new StringBuilder(baseUrl).append("?uart_tx=");
+        MegaDRs485Codec.appendHex(request, tx, 0, length).append(mode(modbus));
+        MegaHttpHelpers.sendRequest(request.toString());
+    }
+
+    /**
+     * Reads bytes received by megad since last uart_rx and appends them to the buffer
+     *
+     * @return number of bytes appended at offset, or {@link MegaDRs485Codec#ERROR}
+     */
+    static int receive(String baseUrl, boolean modbus, byte[] rx, int offset) {
+        String answer = MegaHttpHelpers.sendRequest(baseUrl + "?uart_rx=1" + mode(modbus));
+        return MegaDRs485Codec.parseHex(answer, rx, offset);
+    }
+
+    private static String mode(boolean modbus) {
+        return modbus ? "&mode=rs485" : "";
+    }
+}
@@ -13,7 +13,10 @@
 package org.openhab.binding.megad.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -32,148 +35,127 @@ import org.slf4j.LoggerFactory;
 
 @NonNullByDefault
 public class MegaDSdm120 implements ModbusPowermeterInterface {
+    /**
+     * Registers per block, frame with 80 data bytes fits to UART buffer of MegaD
+     */
+    private static final int MAX_BLOCK_REGISTERS = 40;
+    /**
+     * Reading a few unused registers is cheaper than one more transaction
+     */
+    private static final int MAX_BLOCK_GAP = 8;
+    private static final int REGISTERS_COUNT = 0x015A;
+    private static final int READ_INPUT_REGISTERS = 0x04;
+    private static final Map<MegaDMeterQuantity, Integer> QUANTITY_REGISTERS = new EnumMap<>(Map.ofEntries(
+            Map.entry(MegaDMeterQuantity.VOLTAGE, 0x0000),
+            Map.entry(MegaDMeterQuantity.CURRENT, 0x0006),
+            Map.entry(MegaDMeterQuantity.ACTIVE_POWER, 0x000C),
+            Map.entry(MegaDMeterQuantity.APPARENT_POWER, 0x0012),
+            Map.entry(MegaDMeterQuantity.REACTIVE_POWER, 0x0018),
+            Map.entry(MegaDMeterQuantity.POWER_FACTOR, 0x001E),
+            Map.entry(MegaDMeterQuantity.PHASE_ANGLE, 0x0024),
+            Map.entry(MegaDMeterQuantity.FREQUENCY, 0x0046),
+            Map.entry(MegaDMeterQuantity.IMPORT_ACTIVE_ENERGY, 0x0048),
+            Map.entry(MegaDMeterQuantity.EXPORT_ACTIVE_ENERGY, 0x004A),
+            Map.entry(MegaDMeterQuantity.IMPORT_REACTIVE_ENERGY, 0x004C),
+            Map.entry(MegaDMeterQuantity.EXPORT_REACTIVE_ENERGY, 0x004E),
+            Map.entry(MegaDMeterQuantity.TOTAL_SYSTEM_POWER_DEMAND, 0x0054),
+            Map.entry(MegaDMeterQuantity.MAX_TOTAL_SYSTEM_POWER_DEMAND, 0x0056),
+            Map.entry(MegaDMeterQuantity.IMPORT_SYSTEM_POWER_DEMAND, 0x0058),
+            Map.entry(MegaDMeterQuantity.MAX_IMPORT_SYSTEM_POWER_DEMAND, 0x005A),
+            Map.entry(MegaDMeterQuantity.EXPORT_SYSTEM_POWER_DEMAND, 0x005C),
+            Map.entry(MegaDMeterQuantity.MAX_EXPORT_SYSTEM_POWER_DEMAND, 0x005E),
+            Map.entry(MegaDMeterQuantity.CURRENT_DEMAND, 0x0102),
+            Map.entry(MegaDMeterQuantity.MAX_CURRENT_DEMAND, 0x0108),
+            Map.entry(MegaDMeterQuantity.TOTAL_ACTIVE_ENERGY, 0x0156),
+            Map.entry(MegaDMeterQuantity.TOTAL_REACTIVE_ENERGY, 0x0158)));
+
+    private final Logger logger = LoggerFactory.getLogger(MegaDSdm120.class);
     String address;
     MegaDBridgeDeviceHandler bridgeHandler;
+    private final int slave;
+    private final byte[] frame = new byte[MegaDRs485Codec.MAX_FRAME];
+    private final byte[] data = new byte[REGISTERS_COUNT * 2];
+    private final boolean[] valid = new boolean[REGISTERS_COUNT];
+    private volatile MegaDModbusReadPlan readPlan = MegaDModbusReadPlan.EMPTY;
 
     public MegaDSdm120(MegaDBridgeDeviceHandler bridgeHandler, String address) {
         this.address = address;
         this.bridgeHandler = bridgeHandler;
-    }
-
-    private String getValueFromSDM120(String valueByte) {
-        final Logger logger = LoggerFactory.getLogger(MegaDSdm120.class);
-        String result = "http://" + bridgeHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                + bridgeHandler.getThing().getConfiguration().get("password").toString() + "/?uart_tx=" + address + "04"
-                + valueByte + "0002&mode=rs485";
-        MegaHttpHelpers.sendRequest(result);
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException ignored) {
-        }
-        result = "http://" + bridgeHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                + bridgeHandler.getThing().getConfiguration().get("password").toString() + "/?uart_rx=1&mode=rs485";
-        String updateRequest = MegaHttpHelpers.sendRequest(result);
-        logger.debug("sdm 120 answer: {}", updateRequest);
-        try {
-            String[] answer = updateRequest.split("[|]");
-            String parse = answer[3] + answer[4] + answer[5] + answer[6];
-            logger.debug("sdm 120 hex answer: {}", parse);
-            int n = (int) Long.parseLong(parse, 16);
-            Float convert = Float.intBitsToFloat(n);
-            return String.format("%.4f", convert).replace(",", ".");
-        } catch (Exception ignored) {
-            return "ERROR";
+        this.slave = MegaDRs485Codec.parseAddress(address, 16);
+        if (slave == MegaDRs485Codec.ERROR) {
+            logger.warn("Illegal rs485 address: {}", address);
         }
     }
 
+    /**
+     * Reads blocks of the plan and stores their registers
+     */
     @Override
-    public String getVoltage() {
-        return getValueFromSDM120("0000");
-    }
-
-    @Override
-    public String getCurrent(int line) {
-        return getValueFromSDM120("0006");
-    }
-
-    @Override
-    public String getActivePower(int line) {
-        return getValueFromSDM120("000C");
-    }
-
-    @Override
-    public String getApparentPower(int line) {
-        return getValueFromSDM120("0012");
-    }
-
-    @Override
-    public String getReactivePower(int line) {
-        return getValueFromSDM120("0018");
-    }
-
-    @Override
-    public String getPowerFactor(int line) {
-        return getValueFromSDM120("001E");
-    }
-
-    @Override
-    public String getPhaseAngle(int line) {
-        return getValueFromSDM120("0024");
-    }
-
-    @Override
-    public String getFrequency() {
-        return getValueFromSDM120("0046");
-    }
-
-    @Override
-    public String getImportActiveEnergy() {
-        return getValueFromSDM120("0048");
-    }
-
-    @Override
-    public String getExportActiveEnergy() {
-        return getValueFromSDM120("004A");
-    }
-
-    @Override
-    public String getImportReactiveEnergy() {
-        return getValueFromSDM120("004C");
-    }
-
-    @Override
-    public String getExportReactiveEnergy() {
-        return getValueFromSDM120("004E");
-    }
-
-    @Override
-    public String getTotalSystemPowerDemand() {
-        return getValueFromSDM120("0054");
-    }
-
-    @Override
-    public String getMaxTotalSystemPowerDemand() {
-        return getValueFromSDM120("0056");
-    }
-
-    @Override
-    public String getImportSystemPowerDemand() {
-        return getValueFromSDM120("0058");
-    }
-
-    @Override
-    public String getMaxImportSystemPowerDemand() {
-        return getValueFromSDM120("005A");
-    }
-
-    @Override
-    public String getExportSystemPowerDemand() {
-        return getValueFromSDM120("005C");
-    }
-
-    @Override
-    public String getMaxExportSystemPowerDemand() {
-        return getValueFromSDM120("005E");
-    }
-
-    @Override
-    public String getCurrentDemand() {
-        return getValueFromSDM120("0102");
+    public void updateValues() {
+        MegaDModbusReadPlan plan = readPlan;
+        for (MegaDModbusReadPlan.Block block : plan.getBlocks()) {
+            readBlock(block);
+        }
     }
 
     @Override
-    public String getMaxCurrentDemand() {
-        return getValueFromSDM120("0108");
+    public void setLinkedChannels(Collection<String> channelIds) {
+        MegaDModbusReadPlan.Builder builder = new MegaDModbusReadPlan.Builder();
+        for (String channelId : channelIds) {
+            String channel = channelId.substring(channelId.indexOf('#') + 1);
+            MegaDMeterQuantity quantity = MegaDMeterQuantity.fromChannel(channel);
+            Integer register = quantity == null ? null : QUANTITY_REGISTERS.get(quantity);
+            if (register != null) {
+                builder.add(register, 2);
+            }
+        }
+        readPlan = builder.build(MAX_BLOCK_REGISTERS, MAX_BLOCK_GAP);
+        logger.debug("sdm 120 {} read in {} blocks", address, readPlan.getBlocks().size());
+    }
+
+    private void readBlock(MegaDModbusReadPlan.Block block) {
+        synchronized (data) {
+            int length = MegaDRs485Codec.encodeReadRequest(frame, slave, READ_INPUT_REGISTERS, block.start,
+                    block.count);
+            length = bridgeHandler.getRs485Bus().exchange(MegaDRs485Bus.PRIORITY_POLL,
+                    bridgeHandler.getDeviceConfig().baseUrl, slave, frame, length, true, frame,
+                    MegaDRs485Codec.readReplyLength(block.count), 100);
+            int bytes = MegaDRs485Codec.checkReadReply(frame, length, slave, READ_INPUT_REGISTERS, block.count);
+            boolean ok = bytes != MegaDRs485Codec.ERROR;
+            if (ok) {
+                System.arraycopy(frame, MegaDRs485Codec.DATA_OFFSET, data, block.start * 2, bytes);
+            } else {
+                logger.debug("sdm 120 bad answer for registers {}, {} bytes", block.start, length);
+            }
+            for (int i = 0; i < block.count; i++) {
+                valid[block.start + i] = ok;
+            }
+        }
     }
 
+    /**
+     * Meter has one line, line number is not checked
+     */
     @Override
-    public String getTotalActiveEnergy() {
-        return getValueFromSDM120("0156");
+    public boolean isValid(MegaDMeterQuantity quantity, int line) {
+        Integer register = QUANTITY_REGISTERS.get(quantity);
+        if (register == null) {
+            return false;
+        }
+        synchronized (data) {
+            return valid[register] && valid[register + 1];
+        }
     }
 
     @Override
-    public String getTotalReactiveActiveEnergy(int line) {
-        return getValueFromSDM120("0158");
+    public double getValue(MegaDMeterQuantity quantity, int line) {
+        Integer register = QUANTITY_REGISTERS.get(quantity);
+        if (register == null) {
+            return Double.NaN;
+        }
+        synchronized (data) {
+            return MegaDRs485Codec.float32(data, register * 2);
+        }
     }
 
     @Override
@@ -214,12 +196,4 @@ public class MegaDSdm120 implements ModbusPowermeterInterface {
         return channelList;
     }
 
-    @Override
-    public String getActiveEnergy(int line) {
-        return " ";
-    }
-
-    @Override
-    public void updateValues() {
-    }
 }
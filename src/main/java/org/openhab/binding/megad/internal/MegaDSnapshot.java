@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link MegaDSnapshot} keeps the last ';'-separated snapshot a bridge polled, like answer of cmd=get
+ * for extender ports. A new snapshot is compared with the previous one in one pass and only indices
+ * that changed are returned, so bridges notify only children whose value changed.
+ * Unchanged elements are not copied. If heartbeat is set, all indices are returned once per heartbeat period
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDSnapshot {
+    private static final int[] NONE = new int[0];
+
+    private @Nullable String[] values;
+    private boolean[] stale;
+    private int size = 0;
+    private LongSupplier heartbeat = () -> 0;
+    private long lastFull = 0;
+
+    public MegaDSnapshot(int capacity) {
+        values = new String[capacity];
+        stale = new boolean[capacity];
+    }
+
+    /**
+     * @param heartbeat source of period in milliseconds all indices are reported as changed with, read on every
+     *            update, 0 disables it
+     */
+    public synchronized void setHeartbeat(LongSupplier heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Compares snapshot with the previous one and stores it
+     *
+     * @return indices of elements that changed, were set stale or all indices if heartbeat period is over
+     */
+    public int[] update(String snapshot) {
+        return update(snapshot, index -> false);
+    }
+
+    /**
+     * Compares snapshot with the previous one and stores it, skipped elements keep their value
+     * and are not reported, used for elements that have newer value from another source
+     *
+     * @return indices of elements that changed, were set stale or all indices if heartbeat period is over
+     */
+    public synchronized int[] update(String snapshot, IntPredicate skip) {
+        if (snapshot.isEmpty()) {
+            return NONE;
+        }
+        long now = System.currentTimeMillis();
+        long heartbeat = this.heartbeat.getAsLong();
+        boolean full = heartbeat > 0 && now - lastFull >= heartbeat;
+        if (full) {
+            lastFull = now;
+        }
+        int[] changed = new int[8];
+        int count = 0;
+        int index = 0;
+        int start = 0;
+        int length = snapshot.length();
+        while (start < length) {
+            int end = snapshot.indexOf(';', start);
+            if (end < 0) {
+                end = length;
+            }
+            ensureCapacity(index + 1);
+            if (skip.test(index)) {
+                index++;
+                start = end + 1;
+                continue;
+            }
+            boolean same = sameElement(snapshot, start, end, values[index]);
+            if (!same) {
+                values[index] = snapshot.substring(start, end);
+            }
+            if (full || stale[index] || !same) {
+                stale[index] = false;
+                if (count == changed.length) {
+                    changed = Arrays.copyOf(changed, count * 2);
+                }
+                changed[count++] = index;
+            }
+            index++;
+            start = end + 1;
+        }
+        size = Math.max(size, index);
+        return count == 0 ? NONE : Arrays.copyOf(changed, count);
+    }
+
+    /**
+     * @return element of the last snapshot, empty string if there is no such element
+     */
+    public synchronized String get(int index) {
+        String value = index >= 0 && index < values.length ? values[index] : null;
+        return value == null ? "" : value;
+    }
+
+    public String get(String index) {
+        try {
+            return get(Integer.parseInt(index.trim()));
+        } catch (NumberFormatException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Stores element value known from another source, like incoming message or sent command,
+     * so the next snapshot reports the element only if it differs from this value
+     */
+    public synchronized void set(int index, String value) {
+        if (index < 0) {
+            return;
+        }
+        ensureCapacity(index + 1);
+        values[index] = value;
+        size = Math.max(size, index + 1);
+    }
+
+    /**
+     * Makes the next snapshot report the element as changed, used when a child is registered
+     */
+    public synchronized void invalidate(int index) {
+        if (index >= 0) {
+            ensureCapacity(index + 1);
+            stale[index] = true;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(values, null);
+        Arrays.fill(stale, false);
+        size = 0;
+    }
+
+    /**
+     * @return true if the part of snapshot between start and end equals the previous value
+     */
+    public static boolean sameElement(String snapshot, int start, int end, @Nullable String previous) {
+        return previous != null && previous.length() == end - start
+                && snapshot.regionMatches(start, previous, 0, end - start);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            int newCapacity = Math.max(capacity, values.length * 2);
+            values = Arrays.copyOf(values, newCapacity);
+            stale = Arrays.copyOf(stale, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.types.State;
+
+/**
+ * The {@link MegaDStateCache} keeps the last published state of every channel of a thing
+ * and tells handlers whether a polled value has to be sent to the framework again.
+ * Unchanged values are suppressed; if heartbeat is set, they are re-published once per heartbeat period.
+ * Values pushed by the controller are events and are only recorded
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDStateCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile LongSupplier heartbeat = () -> 0;
+
+    /**
+     * @param heartbeat source of re-publish period in milliseconds, read on every check so changes
+     *            of the bridge configuration apply at once, 0 disables re-publishing of unchanged values
+     */
+    public void setHeartbeat(LongSupplier heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Stores state as the last published one if it has to be published
+     *
+     * @return true if state differs from the last published one or heartbeat period is over
+     */
+    public boolean isChanged(String channelId, State state) {
+        long now = System.currentTimeMillis();
+        long heartbeat = this.heartbeat.getAsLong();
+        Entry entry = entries.get(channelId);
+        if (entry == null) {
+            entries.put(channelId, new Entry(state, now));
+            return true;
+        }
+        synchronized (entry) {
+            if (!state.equals(entry.state) || (heartbeat > 0 && now - entry.published >= heartbeat)) {
+                entry.state = state;
+                entry.published = now;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stores state published without check, like an event pushed by the controller, so the next poll
+     * of the same value is suppressed
+     */
+    public void record(String channelId, State state) {
+        entries.put(channelId, new Entry(state, System.currentTimeMillis()));
+    }
+
+    public void invalidate(String channelId) {
+        entries.remove(channelId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static class Entry {
+        State state;
+        long published;
+
+        Entry(State state, long published) {
+            this.state = state;
+            this.published = published;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.PercentType;
+
+/**
+ * The {@link MegaDStates} class holds shared immutable state instances for values handlers publish most often:
+ * percents and small integers, such as dimmer and pwm levels or click counts
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDStates {
+    /**
+     * Largest integer having a cached {@link DecimalType}, enough for 12 bit PCA9685 pwm
+     */
+    public static final int MAX_CACHED_DECIMAL = 4095;
+
+    private static final PercentType[] PERCENTS = new PercentType[101];
+    private static final DecimalType[] DECIMALS = new DecimalType[MAX_CACHED_DECIMAL + 1];
+
+    static {
+        for (int i = 0; i < PERCENTS.length; i++) {
+            PERCENTS[i] = new PercentType(i);
+        }
+        for (int i = 0; i < DECIMALS.length; i++) {
+            DECIMALS[i] = new DecimalType(i);
+        }
+    }
+
+    private MegaDStates() {
+    }
+
+    /**
+     * @return cached percent, value is limited to 0..100
+     */
+    public static PercentType percent(int value) {
+        return PERCENTS[Math.max(0, Math.min(100, value))];
+    }
+
+    /**
+     * @return cached decimal for 0..{@value #MAX_CACHED_DECIMAL}, new instance otherwise
+     */
+    public static DecimalType decimal(long value) {
+        if (value >= 0 && value <= MAX_CACHED_DECIMAL) {
+            return DECIMALS[(int) value];
+        }
+        return new DecimalType(value);
+    }
+}
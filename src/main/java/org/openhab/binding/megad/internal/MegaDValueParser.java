@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link MegaDValueParser} class parses controller answers in one pass without splitting them into strings.
+ * Temperatures of 1-wire sensors are converted to fixed-point values in hundredths, values of I2C sensors
+ * are located in the answer and keep their precision
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public final class MegaDValueParser {
+    /**
+     * Result of {@link #parseHundredths(String, int, int)} and {@link #findNumber(String, int, int)}
+     * if the text is not a number
+     */
+    public static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final String SENSOR_TYPE_KEY = "i2c_dev=";
+    private static final long MAX_INTEGER_PART = Long.MAX_VALUE / 1000;
+
+    private MegaDValueParser() {
+    }
+
+    /**
+     * Parses decimal number like -12.5 into hundredths, further digits are truncated.
+     * Used for 1-wire temperatures that are reported with two decimals
+     *
+     * @return value in hundredths or {@link #NO_VALUE}
+     */
+    public static long parseHundredths(String text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start >= end) {
+            return NO_VALUE;
+        }
+        boolean negative = text.charAt(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i >= end) {
+            return NO_VALUE;
+        }
+        long result = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (fraction < 0) {
+                    if (result > MAX_INTEGER_PART) {
+                        return NO_VALUE;
+                    }
+                    result = result * 10 + (c - '0');
+                } else if (fraction < 2) {
+                    result = result * 10 + (c - '0');
+                    fraction++;
+                }
+            } else {
+                return NO_VALUE;
+            }
+        }
+        for (int digits = Math.max(fraction, 0); digits < 2; digits++) {
+            result *= 10;
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Finds decimal number like -12.5, +3 or 1.5E3 between start and end, surrounding spaces are skipped
+     *
+     * @return span of the number, see {@link #spanStart(long)} and {@link #spanEnd(long)}, or {@link #NO_VALUE}
+     */
+    public static long findNumber(String text, int start, int end) {
+        while (start < end && text.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int i = start;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return NO_VALUE;
+        }
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentStart = i;
+            while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == exponentStart) {
+                return NO_VALUE;
+            }
+        }
+        return i == end ? (long) start << 32 | end : NO_VALUE;
+    }
+
+    public static int spanStart(long span) {
+        return (int) (span >>> 32);
+    }
+
+    public static int spanEnd(long span) {
+        return (int) span;
+    }
+
+    /**
+     * Parses answer of standalone I2C sensor: single value or key:value pairs separated by '/',
+     * like temp:23.5/hum:40
+     */
+    public static MegaDItoCValues parseItoCValues(String answer) {
+        MegaDItoCValues values = new MegaDItoCValues(answer);
+        int length = answer.length();
+        // trailing separators are ignored, so answer like 23.5/ is still single value
+        while (length > 0 && isSeparator(answer.charAt(length - 1))) {
+            length--;
+        }
+        if (isSingleValue(answer, length)) {
+            values.first = findNumber(answer, 0, length);
+            values.temp = values.first;
+            return values;
+        }
+        int start = 0;
+        boolean first = true;
+        while (start < length) {
+            int end = answer.indexOf('/', start);
+            if (end < 0 || end > length) {
+                end = length;
+            }
+            int colon = answer.indexOf(':', start);
+            if (colon < 0 || colon > end) {
+                if (first) {
+                    values.first = findNumber(answer, start, end);
+                }
+            } else {
+                long value = findNumber(answer, colon + 1, end);
+                if (first) {
+                    values.first = findNumber(answer, start, colon);
+                }
+                if (answer.startsWith("temp", start) && colon - start == 4) {
+                    values.temp = value;
+                } else if (answer.startsWith("hum", start) && colon - start == 3) {
+                    values.hum = value;
+                } else if (answer.startsWith("press", start) && colon - start == 5) {
+                    values.press = value;
+                } else if (answer.startsWith("gas", start) && colon - start == 3) {
+                    values.gas = value;
+                }
+            }
+            first = false;
+            start = end + 1;
+        }
+        return values;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ':' || c == '/';
+    }
+
+    private static boolean isSingleValue(String answer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (isSeparator(answer.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses HTML page of I2C bus scan, sensor types are taken from i2c_dev parameter of the links
+     */
+    public static List<String> parseItoCScan(String page) {
+        List<String> sensorTypes = new ArrayList<>();
+        int index = page.indexOf(SENSOR_TYPE_KEY);
+        while (index >= 0) {
+            int start = index + SENSOR_TYPE_KEY.length();
+            int end = start;
+            while (end < page.length() && isSensorTypeChar(page.charAt(end))) {
+                end++;
+            }
+            if (end > start) {
+                sensorTypes.add(page.substring(start, end));
+            }
+            index = page.indexOf(SENSOR_TYPE_KEY, end);
+        }
+        return sensorTypes;
+    }
+
+    private static boolean isSensorTypeChar(char c) {
+        return c != '>' && c != '&' && c != '"' && c != '\'' && c != ' ' && c != '<';
+    }
+}
@@ -13,6 +13,7 @@
 package org.openhab.binding.megad.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -31,272 +32,219 @@ import org.slf4j.LoggerFactory;
 
 @NonNullByDefault
 public class MegaDWBMAP6S implements ModbusPowermeterInterface {
+    private static final int LINES = 6;
+    /**
+     * Lines 1-3 are measured by first chip, lines 4-6 by second one with the same register map shifted by offset
+     */
+    private static final int LINES_PER_CHIP = 3;
+    private static final int CHIP_OFFSET = 0x1000;
+    private static final int REGISTER_BASE = 0x1000;
+    private static final int REGISTERS_COUNT = 0x2000;
+    private static final int READ_INPUT_REGISTERS = 0x04;
+    private static final int MAX_BLOCK_REGISTERS = 40;
+    private static final int MAX_BLOCK_GAP = 8;
+
+    private static final int VOLTAGE = 0x10D9;
+    private static final int FREQUENCY = 0x10F8;
+    // registers of line 1, registers of next lines of the chip go down by size of the value
+    private static final int POWER_FACTOR = 0x10BF;
+    private static final int PHASE_ANGLE = 0x10FB;
+    private static final int ACTIVE_ENERGY = 0x120C;
+    private static final int REACTIVE_ENERGY = 0x122C;
+    private static final int ACTIVE_POWER = 0x1306;
+    private static final int REACTIVE_POWER = 0x130E;
+    private static final int APPARENT_POWER = 0x1316;
+    private static final int CURRENT = 0x141A;
+
+    private final Logger logger = LoggerFactory.getLogger(MegaDWBMAP6S.class);
     String address;
     MegaDBridgeDeviceHandler bridgeHandler;
+    private final int slave;
+    private final byte[] frame = new byte[MegaDRs485Codec.MAX_FRAME];
+    private final byte[] data = new byte[REGISTERS_COUNT * 2];
+    private final boolean[] valid = new boolean[REGISTERS_COUNT];
+    private volatile MegaDModbusReadPlan readPlan = MegaDModbusReadPlan.EMPTY;
 
     public MegaDWBMAP6S(MegaDBridgeDeviceHandler bridgeHandler, String address) {
         this.address = address;
         this.bridgeHandler = bridgeHandler;
-    }
-
-    private String getValueFromWBMAP6S(String valueByte, int registersCount) {
-        final Logger logger = LoggerFactory.getLogger(MegaDWBMAP6S.class);
-        String result = "http://" + bridgeHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                + bridgeHandler.getThing().getConfiguration().get("password").toString() + "/?uart_tx="
-                + Integer.toHexString(Integer.parseInt(address)) + "04" + valueByte + "000" + registersCount
-                + "&mode=rs485";
-        MegaHttpHelpers.sendRequest(result);
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException ignored) {
-        }
-        result = "http://" + bridgeHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                + bridgeHandler.getThing().getConfiguration().get("password").toString() + "/?uart_rx=1&mode=rs485";
-        String updateRequest = MegaHttpHelpers.sendRequest(result);
-        logger.debug("WB-MAP6S answer: {}", updateRequest);
-        try {
-            String[] answer = updateRequest.split("[|]");
-            String parse = "";
-            int bytesCnt = Integer.parseInt(answer[2]);
-            if (registersCount != 4) {
-                for (int i = 1; i <= bytesCnt; i++) {
-                    parse = parse + answer[i + 2];
-                }
-            } else {
-                parse = answer[9] + answer[10] + answer[7] + answer[8] + answer[5] + answer[6] + answer[3] + answer[4];
-            }
-            logger.debug("WB-MAP6S hex answer: {}", parse);
-
-            return parse;
-        } catch (Exception ignored) {
-            return "ERROR";
+        this.slave = MegaDRs485Codec.parseAddress(address, 10);
+        if (slave == MegaDRs485Codec.ERROR) {
+            logger.warn("Illegal rs485 address: {}", address);
         }
     }
 
-    @Override
-    public String getVoltage() {
-        String value = getValueFromWBMAP6S("10D9", 1);
-        int n = (int) Long.parseLong(value, 16);
-        float voltage = (float) (n * 0.01);
-        return String.format("%.2f", voltage).replace(",", ".");
+    private static int lineRegister(int line1Register, int size, int line) {
+        int chip = (line - 1) / LINES_PER_CHIP;
+        int phase = (line - 1) % LINES_PER_CHIP;
+        return line1Register - phase * size + chip * CHIP_OFFSET;
     }
 
+    /**
+     * Reads blocks of the plan and stores their registers, all lines are served from this snapshot
+     */
     @Override
     public void updateValues() {
-    }
-
-    @Override
-    public String getCurrent(int line) {
-        String value;
-        switch (line) {
-            case 1:
-                value = getValueFromWBMAP6S("141A", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 2.44141E-07)).replace(",", ".");
-            case 2:
-                value = getValueFromWBMAP6S("1418", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 2.44141E-07)).replace(",", ".");
-            case 3:
-                value = getValueFromWBMAP6S("1416", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 2.44141E-07)).replace(",", ".");
-            default:
-                return "ERR";
+        MegaDModbusReadPlan plan = readPlan;
+        for (MegaDModbusReadPlan.Block block : plan.getBlocks()) {
+            readBlock(block);
         }
     }
 
     @Override
-    public String getActivePower(int line) {
-        String value;
-        switch (line) {
-            case 1:
-                value = getValueFromWBMAP6S("1306", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            case 2:
-                value = getValueFromWBMAP6S("1304", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            case 3:
-                value = getValueFromWBMAP6S("1302", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            default:
-                return "ERR";
+    public void setLinkedChannels(Collection<String> channelIds) {
+        MegaDModbusReadPlan.Builder builder = new MegaDModbusReadPlan.Builder();
+        for (String channelId : channelIds) {
+            int separator = channelId.indexOf('#');
+            MegaDMeterQuantity quantity = MegaDMeterQuantity.fromChannel(channelId.substring(separator + 1));
+            if (quantity == null) {
+                continue;
+            }
+            int line = MegaDMeterQuantity.lineOf(separator < 0 ? null : channelId.substring(0, separator));
+            int register = registerOf(quantity, line);
+            if (register != MegaDRs485Codec.ERROR) {
+                builder.add(register, sizeOf(quantity));
+            }
         }
+        readPlan = builder.build(MAX_BLOCK_REGISTERS, MAX_BLOCK_GAP);
+        logger.debug("WB-MAP6S {} read in {} blocks", address, readPlan.getBlocks().size());
     }
 
-    @Override
-    public String getApparentPower(int line) {
-        String value;
-        switch (line) {
-            case 1:
-                value = getValueFromWBMAP6S("1316", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            case 2:
-                value = getValueFromWBMAP6S("1314", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            case 3:
-                value = getValueFromWBMAP6S("1312", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            default:
-                return "ERR";
+    private void readBlock(MegaDModbusReadPlan.Block block) {
+        int first = block.start - REGISTER_BASE;
+        synchronized (data) {
+            int length = MegaDRs485Codec.encodeReadRequest(frame, slave, READ_INPUT_REGISTERS, block.start,
+                    block.count);
+            length = bridgeHandler.getRs485Bus().exchange(MegaDRs485Bus.PRIORITY_POLL,
+                    bridgeHandler.getDeviceConfig().baseUrl, slave, frame, length, true, frame,
+                    MegaDRs485Codec.readReplyLength(block.count), 100);
+            int bytes = MegaDRs485Codec.checkReadReply(frame, length, slave, READ_INPUT_REGISTERS, block.count);
+            boolean ok = bytes != MegaDRs485Codec.ERROR;
+            if (ok) {
+                System.arraycopy(frame, MegaDRs485Codec.DATA_OFFSET, data, first * 2, bytes);
+            } else {
+                logger.debug("WB-MAP6S bad answer for registers {}, {} bytes", block.start, length);
+            }
+            for (int i = 0; i < block.count; i++) {
+                valid[first + i] = ok;
+            }
         }
     }
 
-    @Override
-    public String getReactivePower(int line) {
-        String value;
-        switch (line) {
-            case 1:
-                value = getValueFromWBMAP6S("130E", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            case 2:
-                value = getValueFromWBMAP6S("130C", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            case 3:
-                value = getValueFromWBMAP6S("130A", 2);
-                return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.000244141)).replace(",", ".");
-            default:
-                return "ERR";
+    /**
+     * @return offset of register value in data, or {@link MegaDRs485Codec#ERROR} if registers were not read
+     */
+    private int offsetOf(int register, int registersCount) {
+        int first = register - REGISTER_BASE;
+        if (first < 0 || first + registersCount > REGISTERS_COUNT) {
+            return MegaDRs485Codec.ERROR;
+        }
+        for (int i = 0; i < registersCount; i++) {
+            if (!valid[first + i]) {
+                return MegaDRs485Codec.ERROR;
+            }
         }
+        return first * 2;
     }
 
-    @Override
-    public String getPowerFactor(int line) {
-        String value;
-        switch (line) {
-            case 1:
-                value = getValueFromWBMAP6S("10BF", 1);
-                return String.format("%.2f", (float) ((short) Integer.parseInt(value, 16) * 0.001)).replace(",", ".");
-            case 2:
-                value = getValueFromWBMAP6S("10BE", 1);
-                return String.format("%.2f", (float) ((short) Integer.parseInt(value, 16) * 0.001)).replace(",", ".");
-            case 3:
-                value = getValueFromWBMAP6S("10BD", 1);
-                return String.format("%.2f", (float) ((short) Integer.parseInt(value, 16) * 0.001)).replace(",", ".");
+    /**
+     * @return number of registers of the quantity, values of lines are signed
+     */
+    private static int sizeOf(MegaDMeterQuantity quantity) {
+        switch (quantity) {
+            case VOLTAGE:
+            case FREQUENCY:
+            case POWER_FACTOR:
+            case PHASE_ANGLE:
+                return 1;
+            case CURRENT:
+            case ACTIVE_POWER:
+            case APPARENT_POWER:
+            case REACTIVE_POWER:
+                return 2;
+            case ACTIVE_ENERGY:
+            case REACTIVE_ENERGY:
+                // energy counters are stored as four registers with low word first
+                return 4;
             default:
-                return "ERR";
+                return 0;
         }
     }
 
-    @Override
-    public String getPhaseAngle(int line) {
-        String value;
-        switch (line) {
-            case 1:
-                value = getValueFromWBMAP6S("10FB", 1);
-                return String.format("%.2f", (float) ((short) Integer.parseInt(value, 16) * 0.1)).replace(",", ".");
-            case 2:
-                value = getValueFromWBMAP6S("10FA", 1);
-                return String.format("%.2f", (float) ((short) Integer.parseInt(value, 16) * 0.1)).replace(",", ".");
-            case 3:
-                value = getValueFromWBMAP6S("10F9", 1);
-                return String.format("%.2f", (float) ((short) Integer.parseInt(value, 16) * 0.1)).replace(",", ".");
+    /**
+     * @return first register of the quantity of the line, or {@link MegaDRs485Codec#ERROR} if it is not measured
+     */
+    private static int registerOf(MegaDMeterQuantity quantity, int line) {
+        if (quantity == MegaDMeterQuantity.VOLTAGE) {
+            return VOLTAGE;
+        } else if (quantity == MegaDMeterQuantity.FREQUENCY) {
+            return FREQUENCY;
+        }
+        if (line < 1 || line > LINES) {
+            return MegaDRs485Codec.ERROR;
+        }
+        int size = sizeOf(quantity);
+        switch (quantity) {
+            case CURRENT:
+                return lineRegister(CURRENT, size, line);
+            case ACTIVE_POWER:
+                return lineRegister(ACTIVE_POWER, size, line);
+            case APPARENT_POWER:
+                return lineRegister(APPARENT_POWER, size, line);
+            case REACTIVE_POWER:
+                return lineRegister(REACTIVE_POWER, size, line);
+            case POWER_FACTOR:
+                return lineRegister(POWER_FACTOR, size, line);
+            case PHASE_ANGLE:
+                return lineRegister(PHASE_ANGLE, size, line);
+            case ACTIVE_ENERGY:
+                return lineRegister(ACTIVE_ENERGY, size, line);
+            case REACTIVE_ENERGY:
+                return lineRegister(REACTIVE_ENERGY, size, line);
             default:
-                return "ERR";
+                return MegaDRs485Codec.ERROR;
         }
     }
 
-    @Override
-    public String getFrequency() {
-        String value = getValueFromWBMAP6S("10F8", 1);
-        return String.format("%.2f", (float) ((int) Long.parseLong(value, 16) * 0.01)).replace(",", ".");
+    private int offsetOf(MegaDMeterQuantity quantity, int line) {
+        int register = registerOf(quantity, line);
+        return register == MegaDRs485Codec.ERROR ? MegaDRs485Codec.ERROR : offsetOf(register, sizeOf(quantity));
     }
 
     @Override
-    public String getImportActiveEnergy() {
-        return " ";
-    }
-
-    @Override
-    public String getExportActiveEnergy() {
-        return " ";
-    }
-
-    @Override
-    public String getImportReactiveEnergy() {
-        return " ";
-    }
-
-    @Override
-    public String getExportReactiveEnergy() {
-        return " ";
-    }
-
-    @Override
-    public String getTotalSystemPowerDemand() {
-        return " ";
-    }
-
-    @Override
-    public String getMaxTotalSystemPowerDemand() {
-        return " ";
-    }
-
-    @Override
-    public String getImportSystemPowerDemand() {
-        return " ";
-    }
-
-    @Override
-    public String getMaxImportSystemPowerDemand() {
-        return " ";
-    }
-
-    @Override
-    public String getExportSystemPowerDemand() {
-        return " ";
-    }
-
-    @Override
-    public String getMaxExportSystemPowerDemand() {
-        return " ";
-    }
-
-    @Override
-    public String getCurrentDemand() {
-        return " ";
-    }
-
-    @Override
-    public String getMaxCurrentDemand() {
-        return " ";
-    }
-
-    @Override
-    public String getTotalActiveEnergy() {
-        return " ";
-    }
-
-    @Override
-    public String getActiveEnergy(int line) {
-        String value;
-        switch (line) {
-            case 1:
-                value = getValueFromWBMAP6S("120C", 4);
-                return String.format("%.2f", (float) Long.parseLong(value, 16) * 0.00001).replace(",", ".");
-            case 2:
-                value = getValueFromWBMAP6S("1208", 4);
-                return String.format("%.2f", (float) Long.parseLong(value, 16) * 0.00001).replace(",", ".");
-            case 3:
-                value = getValueFromWBMAP6S("1204", 4);
-                return String.format("%.2f", (float) Long.parseLong(value, 16) * 0.00001).replace(",", ".");
-            default:
-                return "ERR";
+    public boolean isValid(MegaDMeterQuantity quantity, int line) {
+        synchronized (data) {
+            return offsetOf(quantity, line) != MegaDRs485Codec.ERROR;
         }
     }
 
     @Override
-    public String getTotalReactiveActiveEnergy(int line) {
-        String value;
-        switch (line) {
-            case 1:
-                value = getValueFromWBMAP6S("122C", 4);
-                return String.format("%.2f", (float) Long.parseLong(value, 16) * 0.00001).replace(",", ".");
-            case 2:
-                value = getValueFromWBMAP6S("1228", 4);
-                return String.format("%.2f", (float) Long.parseLong(value, 16) * 0.00001).replace(",", ".");
-            case 3:
-                value = getValueFromWBMAP6S("1224", 4);
-                return String.format("%.2f", (float) Long.parseLong(value, 16) * 0.00001).replace(",", ".");
-            default:
-                return "ERR";
+    public double getValue(MegaDMeterQuantity quantity, int line) {
+        synchronized (data) {
+            int offset = offsetOf(quantity, line);
+            if (offset == MegaDRs485Codec.ERROR) {
+                return Double.NaN;
+            }
+            switch (quantity) {
+                case VOLTAGE:
+                case FREQUENCY:
+                    return MegaDRs485Codec.uint16(data, offset) * 0.01;
+                case POWER_FACTOR:
+                    return MegaDRs485Codec.int16(data, offset) * 0.001;
+                case PHASE_ANGLE:
+                    return MegaDRs485Codec.int16(data, offset) * 0.1;
+                case CURRENT:
+                    return MegaDRs485Codec.int32(data, offset) * 2.44141E-07;
+                case ACTIVE_POWER:
+                case APPARENT_POWER:
+                case REACTIVE_POWER:
+                    return MegaDRs485Codec.int32(data, offset) * 0.000244141;
+                case ACTIVE_ENERGY:
+                case REACTIVE_ENERGY:
+                    return MegaDRs485Codec.int64Swapped(data, offset) * 0.00001;
+                default:
+                    return Double.NaN;
+            }
         }
     }
 
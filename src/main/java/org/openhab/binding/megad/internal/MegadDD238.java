@@ -13,6 +13,7 @@
 package org.openhab.binding.megad.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
@@ -31,145 +32,99 @@ import org.slf4j.LoggerFactory;
  */
 @NonNullByDefault
 public class MegadDD238 implements ModbusPowermeterInterface {
+    private static final int READ_HOLDING_REGISTERS = 0x03;
+    private static final int REGISTERS_COUNT = 0x12;
+    private static final int TOTAL_ENERGY = 0x00;
+    private static final int VOLTAGE = 0x0C;
+    private static final int CURRENT = 0x0D;
+    private static final int ACTIVE_POWER = 0x0E;
+    private static final int APPARENT_POWER = 0x0F;
+    private static final int POWER_FACTOR = 0x10;
+    private static final int FREQUENCY = 0x11;
+
     final Logger logger = LoggerFactory.getLogger(MegadDD238.class);
-    String[] answer = {};
     String address;
     MegaDBridgeDeviceHandler bridgeHandler;
+    private final int slave;
+    private final byte[] frame = new byte[MegaDRs485Codec.MAX_FRAME];
+    private final byte[] data = new byte[REGISTERS_COUNT * 2];
+    private volatile boolean valid = false;
 
     public MegadDD238(MegaDBridgeDeviceHandler bridgeHandler, String address) {
         this.address = address;
         this.bridgeHandler = bridgeHandler;
+        this.slave = MegaDRs485Codec.parseAddress(address, 16);
+        if (slave == MegaDRs485Codec.ERROR) {
+            logger.warn("Illegal rs485 address: {}", address);
+        }
     }
 
-    @Override
-    public String getVoltage() {
-        return String.valueOf((double) Integer.parseInt(answer[27] + answer[28], 16) / 10);
+    private int uint16(int register) {
+        return MegaDRs485Codec.uint16(data, register * 2);
     }
 
     @Override
     public void updateValues() {
-        String result = "http://" + bridgeHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                + bridgeHandler.getThing().getConfiguration().get("password").toString() + "/?uart_tx=" + address
-                + "0300000012&mode=rs485";
-        MegaHttpHelpers.sendRequest(result);
-        try {
-            Thread.sleep(100);
-        } catch (InterruptedException ignored) {
-        }
-        result = "http://" + bridgeHandler.getThing().getConfiguration().get("hostname").toString() + "/"
-                + bridgeHandler.getThing().getConfiguration().get("password").toString() + "/?uart_rx=1&mode=rs485";
-        String updateRequest = MegaHttpHelpers.sendRequest(result);
-        logger.debug("DD238 answer: {}", updateRequest);
-        try {
-            answer = updateRequest.split("[|]");
-        } catch (Exception ignored) {
-            answer = new String[] { "ERROR" };
+        synchronized (data) {
+            int length = MegaDRs485Codec.encodeReadRequest(frame, slave, READ_HOLDING_REGISTERS, 0, REGISTERS_COUNT);
+            length = bridgeHandler.getRs485Bus().exchange(MegaDRs485Bus.PRIORITY_POLL,
+                    bridgeHandler.getDeviceConfig().baseUrl, slave, frame, length, true, frame,
+                    MegaDRs485Codec.readReplyLength(REGISTERS_COUNT), 100);
+            int bytes = MegaDRs485Codec.checkReadReply(frame, length, slave, READ_HOLDING_REGISTERS, REGISTERS_COUNT);
+            valid = bytes != MegaDRs485Codec.ERROR;
+            if (valid) {
+                System.arraycopy(frame, MegaDRs485Codec.DATA_OFFSET, data, 0, bytes);
+            } else {
+                logger.debug("DD238 bad answer, {} bytes", length);
+            }
         }
     }
 
     @Override
-    public String getCurrent(int line) {
-        return String.valueOf((double) Integer.parseInt(answer[29] + answer[30], 16) / 100);
-    }
-
-    @Override
-    public String getActivePower(int line) {
-        return String.valueOf(Math.abs((short) Integer.parseInt(answer[31] + answer[32], 16)));
-    }
-
-    @Override
-    public String getApparentPower(int line) {
-        return String.valueOf((double) Integer.parseInt(answer[33] + answer[34], 16));
-    }
-
-    @Override
-    public String getReactivePower(int line) {
-        return "null";
-    }
-
-    @Override
-    public String getPowerFactor(int line) {
-        return String.valueOf((double) Integer.parseInt(answer[35] + answer[36], 16) / 1000);
+    public void setLinkedChannels(Collection<String> channelIds) {
     }
 
+    /**
+     * Meter has one line, line number is not checked
+     */
     @Override
-    public String getPhaseAngle(int line) {
-        return "null";
-    }
-
-    @Override
-    public String getFrequency() {
-        return String.valueOf((double) Integer.parseInt(answer[37] + answer[38], 16) / 100);
-    }
-
-    @Override
-    public String getImportActiveEnergy() {
-        return "null";
-    }
-
-    @Override
-    public String getExportActiveEnergy() {
-        return "null";
-    }
-
-    @Override
-    public String getImportReactiveEnergy() {
-        return "null";
-    }
-
-    @Override
-    public String getExportReactiveEnergy() {
-        return "null";
-    }
-
-    @Override
-    public String getTotalSystemPowerDemand() {
-        return "null";
-    }
-
-    @Override
-    public String getMaxTotalSystemPowerDemand() {
-        return "null";
-    }
-
-    @Override
-    public String getImportSystemPowerDemand() {
-        return "null";
-    }
-
-    @Override
-    public String getMaxImportSystemPowerDemand() {
-        return "null";
-    }
-
-    @Override
-    public String getExportSystemPowerDemand() {
-        return "null";
-    }
-
-    @Override
-    public String getMaxExportSystemPowerDemand() {
-        return "null";
-    }
-
-    @Override
-    public String getCurrentDemand() {
-        return "null";
-    }
-
-    @Override
-    public String getMaxCurrentDemand() {
-        return "null";
-    }
-
-    @Override
-    public String getTotalActiveEnergy() {
-        return String.valueOf((double) Integer.parseInt(answer[3] + answer[4] + answer[5] + answer[6], 16) / 100);
+    public boolean isValid(MegaDMeterQuantity quantity, int line) {
+        switch (quantity) {
+            case VOLTAGE:
+            case CURRENT:
+            case ACTIVE_POWER:
+            case APPARENT_POWER:
+            case POWER_FACTOR:
+            case FREQUENCY:
+            case TOTAL_ACTIVE_ENERGY:
+                return valid;
+            default:
+                return false;
+        }
     }
 
     @Override
-    public String getTotalReactiveActiveEnergy(int line) {
-        return "null";
+    public double getValue(MegaDMeterQuantity quantity, int line) {
+        synchronized (data) {
+            switch (quantity) {
+                case VOLTAGE:
+                    return uint16(VOLTAGE) / 10.0;
+                case CURRENT:
+                    return uint16(CURRENT) / 100.0;
+                case ACTIVE_POWER:
+                    return Math.abs((short) uint16(ACTIVE_POWER));
+                case APPARENT_POWER:
+                    return uint16(APPARENT_POWER);
+                case POWER_FACTOR:
+                    return uint16(POWER_FACTOR) / 1000.0;
+                case FREQUENCY:
+                    return uint16(FREQUENCY) / 100.0;
+                case TOTAL_ACTIVE_ENERGY:
+                    return MegaDRs485Codec.uint32(data, TOTAL_ENERGY * 2) / 100.0;
+                default:
+                    return Double.NaN;
+            }
+        }
     }
 
     @Override
@@ -185,9 +140,4 @@ public class MegadDD238 implements ModbusPowermeterInterface {
         channelList.add(Objects.requireNonNull(thing.getChannel("cmn#" + MegaDBindingConstants.CHANNEL_TOTALACTNRG)));
         return channelList;
     }
-
-    @Override
-    public String getActiveEnergy(int line) {
-        return " ";
-    }
 }
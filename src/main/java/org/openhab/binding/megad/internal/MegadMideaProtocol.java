@@ -17,10 +17,14 @@ import java.util.List;
 import java.util.Objects;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.megad.MegaDBindingConstants;
 import org.openhab.binding.megad.handler.MegaDBridgeDeviceHandler;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.StringType;
 import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.Thing;
+import org.openhab.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,179 +35,104 @@ import org.slf4j.LoggerFactory;
  */
 @NonNullByDefault
 public class MegadMideaProtocol implements MegaDRS485Interface {
-    String[] answer = { "" };
+    /**
+     * Age of the last polled status that is used to compose commands without reading the status first
+     */
+    private static final long STATUS_MAX_AGE_MILLIS = 30000;
+
     final Logger logger = LoggerFactory.getLogger(MegadMideaProtocol.class);
     String address;
+    private final int slave;
+    private final byte[] frame = new byte[MegaDRs485Codec.MAX_FRAME];
+    private volatile @Nullable MegaDMideaStatus status;
 
     public MegadMideaProtocol(String address) {
         this.address = address;
+        // address is hex text, like in status query frame of unit, e.g. "0A" for unit 10
+        this.slave = MegaDRs485Codec.parseAddress(address, 16);
+        if (slave == MegaDRs485Codec.ERROR) {
+            logger.warn("Illegal rs485 address: {}", address);
+        }
     }
 
-    private void request(MegaDBridgeDeviceHandler bridgeHandler) {
+    private @Nullable MegaDMideaStatus request(MegaDBridgeDeviceHandler bridgeHandler, int priority) {
         logger.debug("Requesting...");
-        int crc = (int) Long.parseLong("C0", 16);
-        crc += (int) Long.parseLong(address, 16);
-        crc += (int) Long.parseLong("80", 16);
-        crc += (int) Long.parseLong("3F", 16);
-        int crcRq = 255 - crc % 256 + 1;
-        String result = "http://"
-                + Objects.requireNonNull(bridgeHandler).getThing().getConfiguration().get("hostname").toString() + "/"
-                + Objects.requireNonNull(bridgeHandler).getThing().getConfiguration().get("password").toString()
-                + "/?uart_tx=AAC0" + address + "008000000000000000003F" + String.format("%02X", crcRq) + "55";
-        MegaHttpHelpers.sendRequest(result);
-        try {
-            Thread.sleep(200);
-        } catch (InterruptedException ignored) {
-        }
-        result = "http://"
-                + Objects.requireNonNull(bridgeHandler).getThing().getConfiguration().get("hostname").toString() + "/"
-                + Objects.requireNonNull(bridgeHandler).getThing().getConfiguration().get("password").toString()
-                + "/?uart_rx=1";
-        String updateRequest = MegaHttpHelpers.sendRequest(result);
-        logger.info("Midea answer is: {}", updateRequest);
-        try {
-            answer = updateRequest.split("[|]");
-            String parse = "";
-            int crcSum = 0;
-            for (int i = 1; i < 29; i++) {
-                parse += answer[i];
-                int n = (int) Long.parseLong(answer[i], 16);
-                crcSum += n;
-            }
-            int crcFin = 255 - crcSum % 256 + 1;
-            if (answer[30].equals(String.format("%02X", crcFin))) {
-                logger.debug("CRC: {}", String.format("%02X", crcFin));
-            } else {
-                logger.debug("Bad CRC: {}", String.format("%02X", crcFin));
-            }
-        } catch (Exception ignored) {
+        int length = MegaDMideaCodec.encodeQuery(frame, slave);
+        length = bridgeHandler.getRs485Bus().exchange(priority, bridgeHandler.getDeviceConfig().baseUrl, slave, frame,
+                length, false, frame, MegaDMideaCodec.STATUS_LENGTH, 200);
+        if (!MegaDMideaCodec.checkStatus(frame, length)) {
+            logger.debug("Bad Midea answer, {} bytes", length);
+            return null;
         }
+        return MegaDMideaStatus.decode(frame, System.currentTimeMillis());
     }
 
     @Override
-    public String[] getValueFromRS485(MegaDBridgeDeviceHandler bridgeHandler) {
-        answer = new String[] { "" };
-        request(bridgeHandler);
-        return answer;
+    public synchronized void updateValues(MegaDBridgeDeviceHandler bridgeHandler) {
+        status = request(bridgeHandler, MegaDRs485Bus.PRIORITY_POLL);
     }
 
     @Override
-    public void setValuesToRS485(MegaDBridgeDeviceHandler bridgeHandler, String channelUID, String command) {
-        answer = new String[] { "" };
-        request(bridgeHandler);
-        try {
-            Thread.sleep(200);
-        } catch (InterruptedException ignored) {
+    public @Nullable State getState(String channelId) {
+        MegaDMideaStatus current = status;
+        if (current == null) {
+            return null;
         }
-        String cmd = "AAC3" + String.format("%02X", Integer.parseInt(address)) + "008000";
-        int crc = (int) Long.parseLong("C3", 16);
-        crc += (int) Long.parseLong(String.format("%02X", Integer.parseInt(address)), 16);
-        crc += (int) Long.parseLong("80", 16);
-        if ("opermode".equals(channelUID)) {
-            switch (command) {
-                case "OFF":
-                    cmd += "00";
-                    crc += (int) Long.parseLong("00", 16);
-                    break;
-                case "AUTO":
-                    cmd += "98";
-                    crc += (int) Long.parseLong("98", 16);
-                    break;
-                case "COOL":
-                    cmd += "88";
-                    crc += (int) Long.parseLong("88", 16);
-                    break;
-                case "DRY":
-                    cmd += "82";
-                    crc += (int) Long.parseLong("82", 16);
-                    break;
-                case "HEAT":
-                    cmd += "84";
-                    crc += (int) Long.parseLong("84", 16);
-                    break;
-                case "FAN":
-                    cmd += "81";
-                    crc += (int) Long.parseLong("81", 16);
-                    break;
-            }
-        } else {
-            if (answer.length == 32) {
-                cmd += answer[8];
-                crc += (int) Long.parseLong(answer[8], 16);
-            } else {
-                logger.error("Response from rs485 contains errors: <{}>", (Object) answer);
-            }
+        int separator = channelId.indexOf('#');
+        switch (channelId.substring(separator + 1)) {
+            case MegaDBindingConstants.CHANNEL_MIDEAOPERMODE:
+                return StringType.valueOf(current.getModeName());
+            case MegaDBindingConstants.CHANNEL_MIDEAFANMODE:
+                return StringType.valueOf(current.getFanName());
+            case MegaDBindingConstants.CHANNEL_MIDEATEMP:
+                return new DecimalType(current.temperature);
+            default:
+                return null;
         }
+    }
 
-        if ("fanmode".equals(channelUID)) {
-            switch (command) {
-                case "OFF":
-                    cmd += "00";
-                    crc += (int) Long.parseLong("00", 16);
-                    break;
-                case "AUTO":
-                    cmd += "84";
-                    crc += (int) Long.parseLong("84", 16);
-                    break;
-                case "HIGH":
-                    cmd += "01";
-                    crc += (int) Long.parseLong("01", 16);
-                    break;
-                case "MEDIUM":
-                    cmd += "02";
-                    crc += (int) Long.parseLong("02", 16);
-                    break;
-                case "LOW":
-                    cmd += "04";
-                    crc += (int) Long.parseLong("04", 16);
-                    break;
-            }
-        } else {
-            if (answer.length == 32) {
-                cmd += answer[9];
-                crc += (int) Long.parseLong(answer[9], 16);
-            } else {
-                logger.error("Response from rs485 contains errors: <{}>", (Object) answer);
-            }
-
-        }
-        if ("mideatemperature".equals(channelUID)) {
-            cmd += String.format("%02X", Integer.parseInt(command));
-            crc += Integer.parseInt(command);
-        } else {
-            if (answer.length == 32) {
-                cmd += answer[10];
-                crc += (int) Long.parseLong(answer[10], 16);
-            } else {
-                logger.error("Response from rs485 contains errors: <{}>", (Object) answer);
+    @Override
+    public synchronized void setValuesToRS485(MegaDBridgeDeviceHandler bridgeHandler, String channelUID,
+            String command) {
+        MegaDMideaStatus current = status;
+        if (current == null || System.currentTimeMillis() - current.timestamp > STATUS_MAX_AGE_MILLIS) {
+            current = request(bridgeHandler, MegaDRs485Bus.PRIORITY_WRITE);
+            if (current == null) {
+                logger.error("Response from rs485 contains errors, command {} for {} is not sent", command, channelUID);
+                return;
             }
-
         }
-        if (answer.length == 32) {
-            crc += (int) Long.parseLong(answer[20] + answer[17] + answer[18] + "003C", 16);
-            int crcFin = 255 - crc % 256 + 1;
-            cmd += answer[20] + answer[17] + answer[18] + "003C" + String.format("%02X", crcFin) + "55";
-            String result = "http://"
-                    + Objects.requireNonNull(bridgeHandler).getThing().getConfiguration().get("hostname").toString()
-                    + "/"
-                    + Objects.requireNonNull(bridgeHandler).getThing().getConfiguration().get("password").toString()
-                    + "/?uart_tx=" + cmd;
-            MegaHttpHelpers.sendRequest(result);
-            logger.debug("Sending command: {}", result);
+        String channel = channelUID.substring(channelUID.indexOf('#') + 1);
+        int mode = current.mode;
+        int fan = current.fan;
+        int temperature = current.temperature;
+        if (MegaDBindingConstants.CHANNEL_MIDEAOPERMODE.equals(channel)) {
+            int code = MegaDMideaStatus.modeCode(command);
+            mode = code == MegaDMideaStatus.UNKNOWN ? mode : code;
+        } else if (MegaDBindingConstants.CHANNEL_MIDEAFANMODE.equals(channel)) {
+            int code = MegaDMideaStatus.fanCode(command);
+            fan = code == MegaDMideaStatus.UNKNOWN ? fan : code;
+        } else if (MegaDBindingConstants.CHANNEL_MIDEATEMP.equals(channel)) {
             try {
-                Thread.sleep(200);
-            } catch (InterruptedException ignored) {
+                temperature = (int) Math.round(Double.parseDouble(command));
+            } catch (NumberFormatException e) {
+                logger.warn("Illegal temperature: {}", command);
+                return;
             }
-            result = "http://"
-                    + Objects.requireNonNull(bridgeHandler).getThing().getConfiguration().get("hostname").toString()
-                    + "/"
-                    + Objects.requireNonNull(bridgeHandler).getThing().getConfiguration().get("password").toString()
-                    + "/?uart_rx=1";
-            String updateRequest = MegaHttpHelpers.sendRequest(result);
-            logger.info("Receive: {}", updateRequest);
-        } else {
-            logger.error("Response from rs485 contains errors: <{}>", (Object) answer);
         }
+        int length = MegaDMideaCodec.encodeSet(frame, slave, mode, fan, temperature, current);
+        logger.debug("Sending command: {}", MegaDRs485Codec.appendHex(new StringBuilder(), frame, 0, length));
+        length = bridgeHandler.getRs485Bus().exchange(MegaDRs485Bus.PRIORITY_WRITE,
+                bridgeHandler.getDeviceConfig().baseUrl, slave, frame, length, false, frame,
+                MegaDMideaCodec.STATUS_LENGTH, 200);
+        if (!MegaDMideaCodec.checkStatus(frame, length)) {
+            logger.warn("Midea unit {} did not acknowledge command {} for {}, {} bytes", address, command, channelUID,
+                    length);
+            status = current;
+            return;
+        }
+        // unit answers the command with its new status
+        status = MegaDMideaStatus.decode(frame, System.currentTimeMillis());
     }
 
     @Override
@@ -12,6 +12,7 @@
  */
 package org.openhab.binding.megad.internal;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -25,53 +26,26 @@ import org.openhab.core.thing.Thing;
  */
 @NonNullByDefault
 public interface ModbusPowermeterInterface {
-    String getVoltage();
-
     void updateValues();
 
-    String getCurrent(int line);
-
-    String getActivePower(int line);
-
-    String getApparentPower(int line);
-
-    String getReactivePower(int line);
-
-    String getPowerFactor(int line);
-
-    String getPhaseAngle(int line);
-
-    String getFrequency();
-
-    String getImportActiveEnergy();
-
-    String getExportActiveEnergy();
-
-    String getImportReactiveEnergy();
-
-    String getExportReactiveEnergy();
-
-    String getTotalSystemPowerDemand();
-
-    String getMaxTotalSystemPowerDemand();
-
-    String getImportSystemPowerDemand();
-
-    String getMaxImportSystemPowerDemand();
-
-    String getExportSystemPowerDemand();
-
-    String getMaxExportSystemPowerDemand();
-
-    String getCurrentDemand();
-
-    String getMaxCurrentDemand();
-
-    String getTotalActiveEnergy();
-
-    String getTotalReactiveActiveEnergy(int line);
+    /**
+     * Tells the meter which channels are linked, so only their registers are read by {@link #updateValues()}
+     *
+     * @param channelIds ids of linked channels with group, e.g. cmn#voltage
+     */
+    void setLinkedChannels(Collection<String> channelIds);
+
+    /**
+     * @param line line number, or {@link MegaDMeterQuantity#COMMON} for quantities of the meter
+     * @return true if the meter measures the quantity and it was read in last cycle
+     */
+    boolean isValid(MegaDMeterQuantity quantity, int line);
+
+    /**
+     * @param line line number, or {@link MegaDMeterQuantity#COMMON} for quantities of the meter
+     * @return value in unit of the quantity, meaningful only if {@link #isValid(MegaDMeterQuantity, int)}
+     */
+    double getValue(MegaDMeterQuantity quantity, int line);
 
     List<Channel> getChannelsList(Thing thing);
-
-    String getActiveEnergy(int line);
 }
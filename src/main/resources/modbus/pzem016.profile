@@ -0,0 +1,13 @@
+# Peacefair PZEM-016 single-phase meter, 32-bit values have low word first
+function = 0x04
+address-radix = 16
+max-registers = 10
+max-gap = 0
+
+# channel               register  type            scale
+cmn#voltage             0x0000    uint16          0.1
+line1#current           0x0001    uint32-swapped  0.001
+line1#activepower       0x0003    uint32-swapped  0.1
+cmn#totalactnrg         0x0005    uint32-swapped  0.001
+cmn#frequency           0x0007    uint16          0.1
+line1#powerfactor       0x0008    uint16          0.01
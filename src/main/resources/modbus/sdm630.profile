@@ -0,0 +1,41 @@
+# Eastron SDM630 three-phase energy meter, input registers are IEEE 754 floats
+function = 0x04
+address-radix = 16
+max-registers = 40
+max-gap = 8
+
+# channel               register  type     scale
+cmn#voltage             0x002A    float32
+line1#current           0x0006    float32
+line2#current           0x0008    float32
+line3#current           0x000A    float32
+line1#activepower       0x000C    float32
+line2#activepower       0x000E    float32
+line3#activepower       0x0010    float32
+line1#apparentpower     0x0012    float32
+line2#apparentpower     0x0014    float32
+line3#apparentpower     0x0016    float32
+line1#reactivepower     0x0018    float32
+line2#reactivepower     0x001A    float32
+line3#reactivepower     0x001C    float32
+line1#powerfactor       0x001E    float32
+line2#powerfactor       0x0020    float32
+line3#powerfactor       0x0022    float32
+line1#phaseangle        0x0024    float32
+line2#phaseangle        0x0026    float32
+line3#phaseangle        0x0028    float32
+cmn#frequency           0x0046    float32
+cmn#importactnrg        0x0048    float32
+cmn#exportactnrg        0x004A    float32
+cmn#importreactnrg      0x004C    float32
+cmn#exportreactnrg      0x004E    float32
+cmn#totalsyspwrdmd      0x0054    float32
+cmn#maxtotalsyspwrdmd   0x0056    float32
+cmn#totalactnrg         0x0156    float32
+cmn#totalreactnrg       0x0158    float32
+line1#actnrg            0x0166    float32
+line2#actnrg            0x0168    float32
+line3#actnrg            0x016A    float32
+line1#reactnrg          0x017E    float32
+line2#reactnrg          0x0180    float32
+line3#reactnrg          0x0182    float32
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The {@link MegaDMideaCodecTest} is responsible for testing Midea frames of {@link MegaDMideaCodec} and
+ * {@link MegaDMideaStatus}
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDMideaCodecTest {
+    /**
+     * uart_rx answer of unit 0 in COOL mode, HIGH fan, 24 degrees
+     */
+    private static final String STATUS = "AA|C0|00|00|80|00|00|00|88|01|18|1A|1B|00|00|00|"
+            + "00|00|00|00|10|00|00|00|00|00|00|00|00|00|DA|55";
+
+    private static String hex(byte[] buf, int length) {
+        return MegaDRs485Codec.appendHex(new StringBuilder(), buf, 0, length).toString();
+    }
+
+    private static byte[] status() {
+        byte[] frame = new byte[MegaDRs485Codec.MAX_FRAME];
+        assertEquals(MegaDMideaCodec.STATUS_LENGTH, MegaDRs485Codec.parseHex(STATUS, frame));
+        return frame;
+    }
+
+    @Test
+    public void encodeQuery() {
+        byte[] buf = new byte[MegaDRs485Codec.MAX_FRAME];
+        int length = MegaDMideaCodec.encodeQuery(buf, 0x00);
+        assertEquals(MegaDMideaCodec.REQUEST_LENGTH, length);
+        // checksum is 0x100 - (C0 + 80 + 3F) for unit 0
+        assertEquals("AAC000008000000000000000003F8155", hex(buf, length));
+
+        length = MegaDMideaCodec.encodeQuery(buf, 0x01);
+        assertEquals("AAC001008000000000000000003F8055", hex(buf, length));
+    }
+
+    @Test
+    public void checkStatusAcceptsValidFrame() {
+        assertTrue(MegaDMideaCodec.checkStatus(status(), MegaDMideaCodec.STATUS_LENGTH));
+    }
+
+    @Test
+    public void checkStatusRejectsBadFrames() {
+        byte[] frame = status();
+        assertFalse(MegaDMideaCodec.checkStatus(frame, MegaDMideaCodec.STATUS_LENGTH - 1));
+        assertFalse(MegaDMideaCodec.checkStatus(frame, MegaDMideaCodec.STATUS_LENGTH + 1));
+
+        frame[MegaDMideaCodec.STATUS_TEMPERATURE] = 0x19;
+        assertFalse(MegaDMideaCodec.checkStatus(frame, MegaDMideaCodec.STATUS_LENGTH));
+
+        frame = status();
+        frame[0] = 0x55;
+        assertFalse(MegaDMideaCodec.checkStatus(frame, MegaDMideaCodec.STATUS_LENGTH));
+
+        frame = status();
+        frame[MegaDMideaCodec.STATUS_LENGTH - 1] = 0x00;
+        assertFalse(MegaDMideaCodec.checkStatus(frame, MegaDMideaCodec.STATUS_LENGTH));
+    }
+
+    @Test
+    public void decodeStatus() {
+        MegaDMideaStatus status = MegaDMideaStatus.decode(status(), 1000);
+        assertEquals(0x88, status.mode);
+        assertEquals("COOL", status.getModeName());
+        assertEquals(0x01, status.fan);
+        assertEquals("HIGH", status.getFanName());
+        assertEquals(24, status.temperature);
+        assertEquals(0x10, status.modeFlags);
+        assertEquals(0, status.timerStart);
+        assertEquals(0, status.timerStop);
+        assertEquals(1000, status.timestamp);
+    }
+
+    @Test
+    public void encodeSetCopiesFlagsAndTimersOfStatus() {
+        MegaDMideaStatus status = MegaDMideaStatus.decode(status(), 1000);
+        byte[] buf = new byte[MegaDRs485Codec.MAX_FRAME];
+        int length = MegaDMideaCodec.encodeSet(buf, 0x00, MegaDMideaStatus.modeCode("COOL"),
+                MegaDMideaStatus.fanCode("HIGH"), 24, status);
+        assertEquals(MegaDMideaCodec.REQUEST_LENGTH, length);
+        assertEquals("AAC300008000880118100000003CD055", hex(buf, length));
+        // checksum completes sum of bytes after start byte to zero
+        assertEquals(0, MegaDRs485Codec.sum(buf, 1, length - 2) & 0xFF);
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The {@link MegaDModbusProfileTest} is responsible for testing bundled modbus profiles and parsing of
+ * {@link MegaDModbusProfile}
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDModbusProfileTest {
+
+    private static MegaDModbusProfile parse(String text) {
+        return MegaDModbusProfile.parse("test", new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertEntry(int register, MegaDModbusProfile.Type type, double scale,
+            MegaDModbusProfile.@Nullable Entry entry) {
+        assertNotNull(entry);
+        if (entry != null) {
+            assertEquals(register, entry.register);
+            assertEquals(type, entry.type);
+            assertEquals(scale, entry.scale);
+        }
+    }
+
+    @Test
+    public void loadSdm630() {
+        MegaDModbusProfile profile = MegaDModbusProfile.load("sdm630");
+        assertEquals("sdm630", profile.getName());
+        assertEquals(0x04, profile.getFunction());
+        assertEquals(16, profile.getAddressRadix());
+        assertEquals(34, profile.getEntries().size());
+        assertEntry(0x002A, MegaDModbusProfile.Type.FLOAT32, 1, profile.getEntry("cmn#voltage"));
+        assertEntry(0x0006, MegaDModbusProfile.Type.FLOAT32, 1, profile.getEntry("line1#current"));
+        assertEntry(0x0028, MegaDModbusProfile.Type.FLOAT32, 1, profile.getEntry("line3#phaseangle"));
+        assertEntry(0x0182, MegaDModbusProfile.Type.FLOAT32, 1, profile.getEntry("line3#reactnrg"));
+        assertNull(profile.getEntry("line1#voltage"));
+        assertSame(profile, MegaDModbusProfile.load("sdm630"));
+    }
+
+    @Test
+    public void loadPzem016() {
+        MegaDModbusProfile profile = MegaDModbusProfile.load("pzem016");
+        assertEquals(0x04, profile.getFunction());
+        assertEquals(16, profile.getAddressRadix());
+        assertEquals(6, profile.getEntries().size());
+        assertEntry(0x0000, MegaDModbusProfile.Type.UINT16, 0.1, profile.getEntry("cmn#voltage"));
+        assertEntry(0x0001, MegaDModbusProfile.Type.UINT32_SWAPPED, 0.001, profile.getEntry("line1#current"));
+        assertEntry(0x0003, MegaDModbusProfile.Type.UINT32_SWAPPED, 0.1, profile.getEntry("line1#activepower"));
+        assertEntry(0x0005, MegaDModbusProfile.Type.UINT32_SWAPPED, 0.001, profile.getEntry("cmn#totalactnrg"));
+        assertEntry(0x0007, MegaDModbusProfile.Type.UINT16, 0.1, profile.getEntry("cmn#frequency"));
+        assertEntry(0x0008, MegaDModbusProfile.Type.UINT16, 0.01, profile.getEntry("line1#powerfactor"));
+    }
+
+    @Test
+    public void compilePzem016ToOneBlock() {
+        MegaDModbusProfile profile = MegaDModbusProfile.load("pzem016");
+        List<MegaDModbusReadPlan.Block> blocks = profile.compile(profile.getEntries()).getBlocks();
+        assertEquals(1, blocks.size());
+        assertEquals(0x0000, blocks.get(0).start);
+        assertEquals(9, blocks.get(0).count);
+        assertSame(MegaDModbusReadPlan.EMPTY, profile.compile(List.of()));
+    }
+
+    @Test
+    public void decodeSwappedValueOfPzem016() {
+        // 0x000186A0 = 100000 mA with low word first
+        byte[] buf = { (byte) 0x86, (byte) 0xA0, 0x00, 0x01 };
+        assertEquals(100000, MegaDModbusProfile.Type.UINT32_SWAPPED.decode(buf, 0));
+        buf = new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF };
+        assertEquals(0xFFFFFFFFL, MegaDModbusProfile.Type.UINT32_SWAPPED.decode(buf, 0));
+        assertEquals(-1, MegaDModbusProfile.Type.INT32_SWAPPED.decode(buf, 0));
+    }
+
+    @Test
+    public void parseSettingsAndComments() {
+        MegaDModbusProfile profile = parse("# comment\nfunction = 0x03\naddress-radix = 10\n\n"
+                + "cmn#voltage 0x0010 int16 0.1 # voltage\nline2#current 20 float32-swapped\n");
+        assertEquals(0x03, profile.getFunction());
+        assertEquals(10, profile.getAddressRadix());
+        assertEquals(2, profile.getEntries().size());
+        assertEntry(0x0010, MegaDModbusProfile.Type.INT16, 0.1, profile.getEntry("cmn#voltage"));
+        assertEntry(20, MegaDModbusProfile.Type.FLOAT32_SWAPPED, 1, profile.getEntry("line2#current"));
+    }
+
+    @Test
+    public void malformedLineThrows() {
+        assertThrows(IllegalArgumentException.class, () -> parse("cmn#voltage 0x0010"));
+        assertThrows(IllegalArgumentException.class, () -> parse("cmn#voltage 0x0010 float32 1 2"));
+        assertThrows(IllegalArgumentException.class, () -> parse("cmn#voltage 0x0010 double"));
+        assertThrows(IllegalArgumentException.class, () -> parse("cmn#voltage 0xZZ float32"));
+        assertThrows(IllegalArgumentException.class, () -> parse("cmn#voltage 0x0010 float32 tenth"));
+        assertThrows(IllegalArgumentException.class, () -> parse("max-regs = 10"));
+        assertThrows(IllegalArgumentException.class, () -> parse("function = read"));
+    }
+
+    @Test
+    public void malformedLineIsReported() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parse("function = 0x04\n\ncmn#voltage 0x0010 double\n"));
+        assertTrue(String.valueOf(e.getMessage()).startsWith("Modbus profile test line 3: "));
+    }
+
+    @Test
+    public void unknownProfileThrows() {
+        assertThrows(IllegalArgumentException.class, () -> MegaDModbusProfile.load("sdm999"));
+        assertThrows(IllegalArgumentException.class, () -> MegaDModbusProfile.load("../sdm630"));
+    }
+}
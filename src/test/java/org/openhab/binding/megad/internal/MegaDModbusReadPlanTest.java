@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The {@link MegaDModbusReadPlanTest} is responsible for testing joining of registers to read blocks by
+ * {@link MegaDModbusReadPlan.Builder}
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDModbusReadPlanTest {
+    /**
+     * Float registers of SDM120 meter
+     */
+    private static final int[] SDM120 = { 0x00, 0x06, 0x0C, 0x12, 0x18, 0x1E, 0x24, 0x46, 0x48, 0x4A, 0x4C, 0x4E,
+            0x54, 0x56, 0x58, 0x5A, 0x5C, 0x5E, 0x102, 0x108, 0x156, 0x158 };
+
+    private static void assertBlock(int start, int count, MegaDModbusReadPlan.@Nullable Block block) {
+        assertNotNull(block);
+        if (block != null) {
+            assertEquals(start, block.start);
+            assertEquals(count, block.count);
+        }
+    }
+
+    @Test
+    public void emptyBuilderReturnsEmptyPlan() {
+        MegaDModbusReadPlan plan = new MegaDModbusReadPlan.Builder().build(40, 8);
+        assertSame(MegaDModbusReadPlan.EMPTY, plan);
+        assertTrue(plan.getBlocks().isEmpty());
+        assertNull(plan.find(0, 1));
+    }
+
+    @Test
+    public void sdm120RegistersAreReadByFourBlocks() {
+        MegaDModbusReadPlan.Builder builder = new MegaDModbusReadPlan.Builder();
+        for (int register : SDM120) {
+            builder.add(register, 2);
+        }
+        List<MegaDModbusReadPlan.Block> blocks = builder.build(40, 8).getBlocks();
+        assertEquals(4, blocks.size());
+        assertBlock(0x00, 38, blocks.get(0));
+        assertBlock(0x46, 26, blocks.get(1));
+        assertBlock(0x102, 8, blocks.get(2));
+        assertBlock(0x156, 4, blocks.get(3));
+    }
+
+    @Test
+    public void registersAreSortedAndOrderOfAddIsIgnored() {
+        MegaDModbusReadPlan plan = new MegaDModbusReadPlan.Builder().add(0x0C, 2).add(0x00, 2).add(0x06, 2)
+                .build(40, 8);
+        assertEquals(1, plan.getBlocks().size());
+        assertBlock(0x00, 14, plan.getBlocks().get(0));
+    }
+
+    @Test
+    public void gapLimitSplitsBlocks() {
+        // gap of 4 registers between 0x02 and 0x06
+        MegaDModbusReadPlan.Builder builder = new MegaDModbusReadPlan.Builder().add(0x00, 2).add(0x06, 2);
+        assertEquals(1, builder.build(40, 4).getBlocks().size());
+        assertEquals(2, builder.build(40, 3).getBlocks().size());
+
+        // adjacent values are joined without gap
+        MegaDModbusReadPlan plan = new MegaDModbusReadPlan.Builder().add(0x00, 2).add(0x02, 2).add(0x05, 1)
+                .build(40, 0);
+        assertEquals(2, plan.getBlocks().size());
+        assertBlock(0x00, 4, plan.getBlocks().get(0));
+        assertBlock(0x05, 1, plan.getBlocks().get(1));
+    }
+
+    @Test
+    public void maxRegistersLimitSplitsBlocks() {
+        MegaDModbusReadPlan.Builder builder = new MegaDModbusReadPlan.Builder().add(0x00, 2).add(0x02, 2)
+                .add(0x04, 2);
+        assertEquals(1, builder.build(6, 0).getBlocks().size());
+
+        List<MegaDModbusReadPlan.Block> blocks = builder.build(4, 0).getBlocks();
+        assertEquals(2, blocks.size());
+        assertBlock(0x00, 4, blocks.get(0));
+        assertBlock(0x04, 2, blocks.get(1));
+
+        // value longer than the limit still gets its own block
+        blocks = new MegaDModbusReadPlan.Builder().add(0x00, 4).build(2, 0).getBlocks();
+        assertEquals(1, blocks.size());
+        assertBlock(0x00, 4, blocks.get(0));
+    }
+
+    @Test
+    public void overlappingRangesAreMerged() {
+        // same register added as uint16 and float32, and value starting inside another one
+        MegaDModbusReadPlan plan = new MegaDModbusReadPlan.Builder().add(0x10, 1).add(0x10, 2).add(0x11, 4)
+                .add(0x12, 1).build(40, 0);
+        assertEquals(1, plan.getBlocks().size());
+        assertBlock(0x10, 5, plan.getBlocks().get(0));
+    }
+
+    @Test
+    public void findReturnsBlockContainingValue() {
+        MegaDModbusReadPlan.Builder builder = new MegaDModbusReadPlan.Builder();
+        for (int register : SDM120) {
+            builder.add(register, 2);
+        }
+        MegaDModbusReadPlan plan = builder.build(40, 8);
+        assertBlock(0x00, 38, plan.find(0x00, 2));
+        assertBlock(0x00, 38, plan.find(0x24, 2));
+        assertBlock(0x46, 26, plan.find(0x5E, 2));
+        assertBlock(0x156, 4, plan.find(0x158, 2));
+        // gap register read with the block
+        assertBlock(0x00, 38, plan.find(0x02, 1));
+        // value crossing end of block or not read at all
+        assertNull(plan.find(0x25, 2));
+        assertNull(plan.find(0x158, 4));
+        assertNull(plan.find(0x200, 2));
+    }
+}
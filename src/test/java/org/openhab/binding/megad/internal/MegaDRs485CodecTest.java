@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The {@link MegaDRs485CodecTest} is responsible for testing modbus frames and register decoding of
+ * {@link MegaDRs485Codec}
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDRs485CodecTest {
+
+    private static byte[] bytes(int... values) {
+        byte[] buf = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            buf[i] = (byte) values[i];
+        }
+        return buf;
+    }
+
+    private static String hex(byte[] buf, int length) {
+        return MegaDRs485Codec.appendHex(new StringBuilder(), buf, 0, length).toString();
+    }
+
+    @Test
+    public void crc16OfKnownFrames() {
+        assertEquals(0xCB71, MegaDRs485Codec.crc16(bytes(0x01, 0x04, 0x00, 0x00, 0x00, 0x02), 0, 6));
+        assertEquals(0xCDC5, MegaDRs485Codec.crc16(bytes(0x01, 0x03, 0x00, 0x00, 0x00, 0x0A), 0, 6));
+        assertEquals(0xFFFF, MegaDRs485Codec.crc16(new byte[0], 0, 0));
+    }
+
+    @Test
+    public void crc16OfFrameWithOffset() {
+        byte[] buf = bytes(0xFF, 0x01, 0x04, 0x00, 0x00, 0x00, 0x02);
+        assertEquals(0xCB71, MegaDRs485Codec.crc16(buf, 1, 6));
+    }
+
+    @Test
+    public void encodeReadRequestAppendsCrcLowByteFirst() {
+        byte[] buf = new byte[MegaDRs485Codec.MAX_FRAME];
+        int length = MegaDRs485Codec.encodeReadRequest(buf, 0x01, 0x04, 0x0000, 2);
+        assertEquals(MegaDRs485Codec.READ_REQUEST_LENGTH, length);
+        assertEquals("01040000000271CB", hex(buf, length));
+
+        length = MegaDRs485Codec.encodeReadRequest(buf, 0x01, 0x03, 0x0000, 10);
+        assertEquals("01030000000AC5CD", hex(buf, length));
+    }
+
+    @Test
+    public void checkReadReplyAcceptsValidReply() {
+        // 230.0 V as float32 from register 0x0000 of slave 1
+        byte[] reply = bytes(0x01, 0x04, 0x04, 0x43, 0x66, 0x00, 0x00, 0x0E, 0x1F);
+        assertEquals(9, MegaDRs485Codec.readReplyLength(2));
+        assertEquals(4, MegaDRs485Codec.checkReadReply(reply, reply.length, 0x01, 0x04, 2));
+        assertEquals(230.0f, MegaDRs485Codec.float32(reply, MegaDRs485Codec.DATA_OFFSET));
+    }
+
+    @Test
+    public void checkReadReplyRejectsBadReplies() {
+        byte[] reply = bytes(0x01, 0x04, 0x04, 0x43, 0x66, 0x00, 0x00, 0x0E, 0x1F);
+        // other slave, other function, other register count
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.checkReadReply(reply, reply.length, 0x02, 0x04, 2));
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.checkReadReply(reply, reply.length, 0x01, 0x03, 2));
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.checkReadReply(reply, reply.length, 0x01, 0x04, 1));
+        // truncated reply
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.checkReadReply(reply, 8, 0x01, 0x04, 2));
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.checkReadReply(reply, 2, 0x01, 0x04, 2));
+        // corrupted data byte
+        reply[4] = 0x67;
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.checkReadReply(reply, reply.length, 0x01, 0x04, 2));
+    }
+
+    @Test
+    public void checkReadReplyRejectsExceptionReply() {
+        byte[] reply = bytes(0x01, 0x84, 0x02, 0xC2, 0xC1);
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.checkReadReply(reply, reply.length, 0x01, 0x04, 1));
+    }
+
+    @Test
+    public void decodeRegisters() {
+        byte[] buf = bytes(0xFF, 0xFE, 0x00, 0x01);
+        assertEquals(0xFFFE, MegaDRs485Codec.uint16(buf, 0));
+        assertEquals(-2, MegaDRs485Codec.int16(buf, 0));
+        assertEquals(0xFFFE0001, MegaDRs485Codec.int32(buf, 0));
+        assertEquals(0xFFFE0001L, MegaDRs485Codec.uint32(buf, 0));
+    }
+
+    @Test
+    public void decodeSwappedRegisters() {
+        // 0x0001E240 = 123456 with low word first
+        byte[] buf = bytes(0xE2, 0x40, 0x00, 0x01);
+        assertEquals(123456, MegaDRs485Codec.int32Swapped(buf, 0));
+        // 230.0f = 0x43660000 with low word first
+        assertEquals(230.0f, MegaDRs485Codec.float32Swapped(bytes(0x00, 0x00, 0x43, 0x66), 0));
+        // 0x0000000100000002 with low word first
+        byte[] value = bytes(0x00, 0x02, 0x00, 0x00, 0x00, 0x01, 0x00, 0x00);
+        assertEquals(0x100000002L, MegaDRs485Codec.int64Swapped(value, 0));
+        assertEquals(-1L, MegaDRs485Codec.int64Swapped(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF), 0));
+    }
+
+    @Test
+    public void parseHexOfMegaDAnswer() {
+        byte[] buf = new byte[MegaDRs485Codec.MAX_FRAME];
+        assertEquals(9, MegaDRs485Codec.parseHex("01|04|04|43|66|00|00|0E|1F", buf));
+        assertEquals("010404436600000E1F", hex(buf, 9));
+        assertEquals(3, MegaDRs485Codec.parseHex("1|a| ff |", buf));
+        assertEquals("010AFF", hex(buf, 3));
+        assertEquals(0, MegaDRs485Codec.parseHex("", buf));
+    }
+
+    @Test
+    public void parseHexAfterReceivedBytes() {
+        byte[] buf = new byte[MegaDRs485Codec.MAX_FRAME];
+        assertEquals(4, MegaDRs485Codec.parseHex("01|04|04|43", buf));
+        assertEquals(5, MegaDRs485Codec.parseHex("66|00|00|0E|1F", buf, 4));
+        assertEquals(4, MegaDRs485Codec.checkReadReply(buf, 9, 0x01, 0x04, 2));
+    }
+
+    @Test
+    public void parseHexRejectsInvalidAnswer() {
+        byte[] buf = new byte[MegaDRs485Codec.MAX_FRAME];
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.parseHex("01|0G", buf));
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.parseHex("010|04", buf));
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.parseHex("Error", buf));
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.parseHex("01|02|03", new byte[2]));
+    }
+
+    @Test
+    public void parseAddress() {
+        assertEquals(0x10, MegaDRs485Codec.parseAddress("10", 16));
+        assertEquals(10, MegaDRs485Codec.parseAddress(" 10 ", 10));
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.parseAddress("100", 16));
+        assertEquals(MegaDRs485Codec.ERROR, MegaDRs485Codec.parseAddress("x", 16));
+    }
+}
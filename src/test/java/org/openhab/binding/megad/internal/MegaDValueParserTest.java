@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010-2022 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.megad.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.types.DecimalType;
+
+/**
+ * The {@link MegaDValueParserTest} is responsible for testing {@link MegaDValueParser}. Answers of I2C sensors
+ * and scan pages are compared with results of the split based parsing the parser replaced
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class MegaDValueParserTest {
+    private static final String[] ITOC_ANSWERS = { "23.5", "-5.25", "+3", "1.5E3", ".5", "0", "NA", "", "abc",
+            "temp:23.5/hum:40", "temp:-12.75/hum:40.125/press:1013.2", "hum:40/temp:23.5", "temp:21/gas:12345.678",
+            "press:750.12/gas:3", "temp:/hum:40", "temp:NA/hum:40", "temp:23.5/hum:", "temp:23.5/hum", "temp",
+            "temp:", "temp:1e5/hum:x1", "temp:23.5/temp:24.5", "co2:450", "23.5:1", "lux:12/temp:20",
+            // trailing or leading separators
+            "23.5/", "23.5//", "23.5:", "/23.5", "temp:23.5/", "temp:2/hum:4/", "temp:2/hum:4//" };
+
+    private static final String LINK = "<a href=/sec/?pt=30&scl=31&i2c_dev=";
+    private static final String[] SCAN_PAGES = { "", "No devices",
+            "<a href=/sec/>Back</a><br>" + LINK + "htu21d>0x40 htu21d</a><br>" + LINK + "bh1750>0x23 bh1750</a><br>",
+            "<a href=/sec/>Back</a><br>" + LINK + "bmp180>0x77</a>", "<a href=/sec/>Back</a><br>0x50 unknown<br>",
+            // truncated page
+            "<a href=/sec/>Back</a><br>" + LINK + "htu21d>0x40</a><br>" + LINK + "sht",
+            "<a href=/sec/>Back</a><br>" + LINK + "htu21d>0x40</a><b" };
+
+    /**
+     * Value of temp, hum, press or gas channel as published before: answer split on ':' and '/', single value
+     * is temperature
+     */
+    private static @Nullable BigDecimal splitValue(String answer, String key) {
+        String[] updateRequest = answer.split("[:/]");
+        BigDecimal value = null;
+        for (int i = 0; i < updateRequest.length; i++) {
+            try {
+                if ("temp".equals(key) && updateRequest.length == 1) {
+                    value = new BigDecimal(updateRequest[0]);
+                } else if (updateRequest[i].equals(key)) {
+                    value = new BigDecimal(updateRequest[i + 1]);
+                }
+            } catch (RuntimeException e) {
+                // incorrect value was logged and skipped
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Value of other channel as published before: first field of the split answer
+     */
+    private static @Nullable BigDecimal splitFirst(String answer) {
+        try {
+            return new BigDecimal(answer.split("[:/]")[0]);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sensor types of scan page as found before: fourth '=' field of the link in every line after the first one
+     */
+    private static List<String> splitScan(String page) {
+        String[] sensorsList = page.split("<br>");
+        List<String> sensorTypes = new ArrayList<>();
+        for (int i = 1; i < sensorsList.length; i++) {
+            try {
+                String[] sensorUrl = sensorsList[i].split("href=");
+                sensorUrl = sensorUrl[1].split("[>]");
+                String[] sensorType = sensorUrl[0].split("[=]");
+                sensorTypes.add(sensorType[3]);
+            } catch (RuntimeException e) {
+                // SDA port is not defined
+            }
+        }
+        return sensorTypes;
+    }
+
+    private static @Nullable BigDecimal value(MegaDItoCValues values, long span) {
+        DecimalType state = values.toState(span);
+        return state == null ? null : state.toBigDecimal();
+    }
+
+    @Test
+    public void itoCValuesMatchSplitParsing() {
+        for (String answer : ITOC_ANSWERS) {
+            MegaDItoCValues values = MegaDValueParser.parseItoCValues(answer);
+            assertEquals(splitValue(answer, "temp"), value(values, values.temp), answer);
+            assertEquals(splitValue(answer, "hum"), value(values, values.hum), answer);
+            assertEquals(splitValue(answer, "press"), value(values, values.press), answer);
+            assertEquals(splitValue(answer, "gas"), value(values, values.gas), answer);
+            assertEquals(splitFirst(answer), value(values, values.first), answer);
+        }
+    }
+
+    @Test
+    public void itoCValuesKeepPrecision() {
+        MegaDItoCValues values = MegaDValueParser.parseItoCValues("temp:-12.750/gas:12345.678");
+        assertEquals(new BigDecimal("-12.750"), value(values, values.temp));
+        assertEquals(new BigDecimal("12345.678"), value(values, values.gas));
+        assertNull(value(values, values.hum));
+        assertNull(value(values, values.press));
+    }
+
+    @Test
+    public void itoCValuesSkipSpaces() {
+        MegaDItoCValues values = MegaDValueParser.parseItoCValues("temp: 23.5 /hum:40 ");
+        assertEquals(new BigDecimal("23.5"), value(values, values.temp));
+        assertEquals(new BigDecimal("40"), value(values, values.hum));
+    }
+
+    @Test
+    public void itoCScanMatchesSplitParsing() {
+        for (String page : SCAN_PAGES) {
+            assertEquals(splitScan(page), MegaDValueParser.parseItoCScan(page), page);
+        }
+        assertEquals(List.of("htu21d", "bh1750"), MegaDValueParser.parseItoCScan(SCAN_PAGES[2]));
+    }
+
+    @Test
+    public void findNumber() {
+        assertSpan(0, 4, MegaDValueParser.findNumber("23.5", 0, 4));
+        assertSpan(1, 6, MegaDValueParser.findNumber(" -1e-3 ", 0, 7));
+        assertSpan(5, 7, MegaDValueParser.findNumber("temp:+3/hum", 5, 7));
+        assertEquals(MegaDValueParser.NO_VALUE, MegaDValueParser.findNumber("", 0, 0));
+        assertEquals(MegaDValueParser.NO_VALUE, MegaDValueParser.findNumber("-", 0, 1));
+        assertEquals(MegaDValueParser.NO_VALUE, MegaDValueParser.findNumber(".", 0, 1));
+        assertEquals(MegaDValueParser.NO_VALUE, MegaDValueParser.findNumber("1e", 0, 2));
+        assertEquals(MegaDValueParser.NO_VALUE, MegaDValueParser.findNumber("1.2.3", 0, 5));
+        assertEquals(MegaDValueParser.NO_VALUE, MegaDValueParser.findNumber("12x", 0, 3));
+        assertEquals(MegaDValueParser.NO_VALUE, MegaDValueParser.findNumber("NA", 0, 2));
+    }
+
+    private static void assertSpan(int start, int end, long span) {
+        assertEquals(start, MegaDValueParser.spanStart(span));
+        assertEquals(end, MegaDValueParser.spanEnd(span));
+    }
+
+    @Test
+    public void parseHundredths() {
+        assertEquals(2350, parseHundredths("23.5"));
+        assertEquals(-1275, parseHundredths("-12.75"));
+        assertEquals(-1275, parseHundredths("-12.759"));
+        assertEquals(8500, parseHundredths("85"));
+        assertEquals(-50, parseHundredths("-0.5"));
+        assertEquals(700, parseHundredths(" 7 "));
+        assertEquals(MegaDValueParser.NO_VALUE, parseHundredths(""));
+        assertEquals(MegaDValueParser.NO_VALUE, parseHundredths("-"));
+        assertEquals(MegaDValueParser.NO_VALUE, parseHundredths("NA"));
+        assertEquals(MegaDValueParser.NO_VALUE, parseHundredths("1.2.3"));
+        assertEquals(MegaDValueParser.NO_VALUE, parseHundredths("12a"));
+        assertEquals(MegaDValueParser.NO_VALUE, parseHundredths("99999999999999999999"));
+    }
+
+    @Test
+    public void parseHundredthsOfListEntry() {
+        String list = "28ff1a2b3c4d5e6f:-3.25;28ff000000000001:21.06";
+        int colon = list.indexOf(':');
+        assertEquals(-325, MegaDValueParser.parseHundredths(list, colon + 1, list.indexOf(';')));
+        assertEquals(2106, MegaDValueParser.parseHundredths(list, list.lastIndexOf(':') + 1, list.length()));
+    }
+
+    private static long parseHundredths(String text) {
+        return MegaDValueParser.parseHundredths(text, 0, text.length());
+    }
+}